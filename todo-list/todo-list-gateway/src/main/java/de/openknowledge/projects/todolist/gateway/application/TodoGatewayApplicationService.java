@@ -16,48 +16,218 @@
 package de.openknowledge.projects.todolist.gateway.application;
 
 import de.openknowledge.projects.todolist.gateway.infrastructure.domain.service.Service;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.cache.ResponseCache;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.hedging.RequestHedger;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit.RoundTrip;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.proxy.ResponseProxy;
 
+import org.eclipse.microprofile.faulttolerance.Asynchronous;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+import org.eclipse.microprofile.faulttolerance.CircuitBreaker;
+import org.eclipse.microprofile.faulttolerance.Fallback;
+import org.eclipse.microprofile.faulttolerance.Retry;
+import org.eclipse.microprofile.faulttolerance.Timeout;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
 import javax.inject.Inject;
+import javax.ws.rs.ServerErrorException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 /**
- * Service that provides access to the
+ * Service that provides access to the todo-list-service.
+ * <p>
+ * All requests to the todo-list-service are asynchronous, so no thread is blocked while waiting for its response.
+ * <p>
+ * Responses of the todo-list-service are forwarded as streams (see {@link ResponseProxy}). Todos that are read are cached per path, query
+ * string and accepted media type (see {@link ResponseCache}). If a cached todo matches the <code>If-None-Match</code> header of the
+ * client, <code>304 Not Modified</code> is returned. The cache is invalidated whenever todos are created, updated or deleted
+ * through the gateway.
+ * <p>
+ * Each operation is guarded by a timeout, a circuit breaker and a bulkhead with a waiting queue, so a degraded todo-list-service can't
+ * exhaust the threads of the gateway. Reading todos is retried, because it is idempotent. If todos can't be read, the last cached response
+ * is served instead (see {@link ResponseCache#getLastKnown(String)}). The policies can be configured per operation with the config
+ * properties of MicroProfile Fault Tolerance, e.g. <code>&lt;class name&gt;/getTodos/Timeout/value</code>.
+ * <p>
+ * Requests that read todos may be hedged to reduce the tail latency (see {@link RequestHedger}). Multiple todos are read with one request
+ * if the todo-list-service supports it (see {@link TodoMultiGet}), they are not cached.
+ * <p>
+ * The requests to the todo-list-service are measured with the given {@link RoundTrip}, which the admission control of the gateway adapts
+ * its limits by.
  */
 @Service
 public class TodoGatewayApplicationService {
 
   private static Logger LOG = LoggerFactory.getLogger(TodoGatewayApplicationService.class);
 
+  private static final String TODOS_PATH = "todos";
+
+  private static final long RETRY_AFTER = 5;
+
   @Inject
   @RestClient
   private TodoListServiceClient client;
 
-  public Response createTodo(final String newTodo) {
-    LOG.debug("Request createTodo of todo {}", newTodo);
-    return client.createTodo(newTodo);
+  @Inject
+  private ResponseCache cache;
+
+  @Inject
+  private RequestHedger hedger;
+
+  @Inject
+  private TodoMultiGet multiGet;
+
+  private volatile boolean available = true;
+
+  @Asynchronous
+  @Timeout(3000)
+  @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 2)
+  @Bulkhead(value = 20, waitingTaskQueue = 50)
+  public CompletionStage<Response> createTodo(final String contentType, final InputStream newTodo, final RoundTrip roundTrip) {
+    LOG.debug("Request createTodo of todo ({})", contentType);
+    return modify(roundTrip.measure(() -> client.createTodo(contentType, newTodo)));
   }
 
-  public Response deleteTodo(final Long todoId) {
+  @Asynchronous
+  @Timeout(3000)
+  @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 2)
+  @Bulkhead(value = 20, waitingTaskQueue = 50)
+  public CompletionStage<Response> deleteTodo(final Long todoId, final RoundTrip roundTrip) {
     LOG.debug("Request deleteTodo todo with id {}", todoId);
-    return client.deleteTodo(todoId);
+    return modify(roundTrip.measure(() -> client.deleteTodo(todoId)));
   }
 
-  public Response getTodo(final Long todoId) {
+  @Asynchronous
+  @Timeout(3000)
+  @Retry(maxRetries = 2, delay = 100, jitter = 50, abortOn = {CircuitBreakerOpenException.class, BulkheadException.class})
+  @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 2)
+  @Bulkhead(value = 50, waitingTaskQueue = 100)
+  @Fallback(fallbackMethod = "getCachedTodo")
+  public CompletionStage<Response> getTodo(final Long todoId, final String accept, final String ifNoneMatch,
+                                           final RoundTrip roundTrip) {
     LOG.debug("Request todo with id {}", todoId);
-    return client.getTodo(todoId);
+    return read(cache.get(key(TODOS_PATH + '/' + todoId, accept), ifNoneMatch,
+                          entityTag -> hedge(roundTrip, () -> client.getTodo(todoId, accept, entityTag))));
+  }
+
+  @Asynchronous
+  @Timeout(3000)
+  @Retry(maxRetries = 2, delay = 100, jitter = 50, abortOn = {CircuitBreakerOpenException.class, BulkheadException.class})
+  @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 2)
+  @Bulkhead(value = 50, waitingTaskQueue = 100)
+  @Fallback(fallbackMethod = "getCachedTodos")
+  public CompletionStage<Response> getTodos(final TodoListQuery query, final String accept, final String ifNoneMatch,
+                                            final RoundTrip roundTrip) {
+    LOG.debug("Request todos {}", query);
+    return read(cache.get(key(todosPath(query), accept), ifNoneMatch,
+                          entityTag -> hedge(roundTrip, () -> client.getTodos(query.getLimit(), query.getAfter(), query.getDone(),
+                                                                              query.getDueFrom(), query.getDueTo(), accept,
+                                                                              entityTag))));
+  }
+
+  @Asynchronous
+  @Timeout(3000)
+  @Retry(maxRetries = 2, delay = 100, jitter = 50, abortOn = {CircuitBreakerOpenException.class, BulkheadException.class})
+  @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 2)
+  @Bulkhead(value = 50, waitingTaskQueue = 100)
+  public CompletionStage<Response> getTodosById(final List<Long> todoIds, final String accept, final RoundTrip roundTrip) {
+    LOG.debug("Request todos with ids {}", todoIds);
+    return read(roundTrip.measure(() -> multiGet.getTodos(todoIds, accept)));
+  }
+
+  /**
+   * Returns <code>false</code> if todos could not be read from the todo-list-service the last time, so a fallback was served.
+   */
+  public boolean isTodoListServiceAvailable() {
+    return available;
+  }
+
+  public CompletionStage<Response> streamChanges(final String lastEventId) {
+    LOG.debug("Request changes after event {}", lastEventId);
+    return client.streamChanges(lastEventId).thenApply(response -> ResponseProxy.forward(response, true).build());
+  }
+
+  @Asynchronous
+  @Timeout(3000)
+  @CircuitBreaker(requestVolumeThreshold = 20, failureRatio = 0.5, delay = 5000, successThreshold = 2)
+  @Bulkhead(value = 20, waitingTaskQueue = 50)
+  public CompletionStage<Response> updateTodo(final Long todoId, final String contentType, final InputStream modifiedTodo,
+                                              final RoundTrip roundTrip) {
+    LOG.info("Request updateTodo todo with id {} ({})", todoId, contentType);
+    return modify(roundTrip.measure(() -> client.updateTodo(todoId, contentType, modifiedTodo)));
+  }
+
+  CompletionStage<Response> getCachedTodo(final Long todoId, final String accept, final String ifNoneMatch, final RoundTrip roundTrip) {
+    return fallback(key(TODOS_PATH + '/' + todoId, accept));
+  }
+
+  CompletionStage<Response> getCachedTodos(final TodoListQuery query, final String accept, final String ifNoneMatch,
+                                           final RoundTrip roundTrip) {
+    return fallback(key(todosPath(query), accept));
+  }
+
+  /**
+   * Hedges a request that reads todos and measures the round trip time until the first response.
+   */
+  private CompletionStage<Response> hedge(final RoundTrip roundTrip, final Supplier<CompletionStage<Response>> request) {
+    return roundTrip.measure(() -> hedger.hedge(request));
+  }
+
+  /**
+   * Fails a request that reads todos if the todo-list-service responds with a server error, so it counts as failure of the circuit
+   * breaker and is retried.
+   */
+  private CompletionStage<Response> read(final CompletionStage<Response> request) {
+    return request.thenApply(response -> {
+      if (Status.Family.familyOf(response.getStatus()) == Status.Family.SERVER_ERROR) {
+        response.close();
+        throw new ServerErrorException(response.getStatus());
+      }
+      available = true;
+      return response;
+    });
+  }
+
+  /**
+   * Serves the last cached response if todos can't be read from the todo-list-service, e.g. because its circuit breaker is open.
+   */
+  private CompletionStage<Response> fallback(final String key) {
+    available = false;
+    Response response = cache.getLastKnown(key).orElseGet(() -> {
+      LOG.warn("todo-list-service is not available and no cached response of {} exists", key);
+      return Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER).build();
+    });
+    return CompletableFuture.completedFuture(response);
+  }
+
+  /**
+   * Forwards the response of a request that modifies todos and invalidates the cache when the request is completed, whether it succeeded
+   * or not.
+   */
+  private CompletionStage<Response> modify(final CompletionStage<Response> request) {
+    return request
+        .whenComplete((response, e) -> cache.invalidate())
+        .thenApply(response -> ResponseProxy.forward(response, false).build());
   }
 
-  public Response getTodos() {
-    LOG.debug("Request all todos");
-    return client.getTodos();
+  private static String todosPath(final TodoListQuery query) {
+    String queryString = query.toQueryString();
+    return queryString.isEmpty() ? TODOS_PATH : TODOS_PATH + '?' + queryString;
   }
 
-  public Response updateTodo(final Long todoId, final String modifiedTodo) {
-    LOG.info("Request updateTodo todo with id {} ({})", todoId, modifiedTodo);
-    return client.updateTodo(todoId, modifiedTodo);
+  private static String key(final String path, final String accept) {
+    return path + ' ' + (accept == null ? MediaType.WILDCARD : accept);
   }
 }
@@ -15,23 +15,53 @@
  */
 package de.openknowledge.projects.todolist.gateway.application;
 
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit.AdmissionControl;
+
 import org.eclipse.microprofile.metrics.MetricUnits;
 import org.eclipse.microprofile.metrics.annotation.Timed;
 import org.eclipse.microprofile.openapi.annotations.Operation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
 import javax.inject.Inject;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
 
 /**
  * A resource that provides access to the todo-list-service.
+ * <p>
+ * Request and response bodies are passed through as streams, so they are neither decoded nor held in memory as a whole. All methods
+ * return without waiting for the todo-list-service, so the request thread is released while the request is in flight.
+ * <p>
+ * Concurrent requests are limited per method by an adaptive limit, requests beyond the limit are rejected (see {@link AdmissionControl}).
+ * The stream of change events is not limited, because it is kept open by design.
+ * <p>
+ * Payloads of new and modified todos can be validated before they are admitted, so invalid requests are rejected by the gateway (see
+ * {@link TodoPayloadValidator}).
  */
 @Path("todos")
 @Timed(name = "todos", unit = MetricUnits.MILLISECONDS, description = "Metrics of the TodoGatewayResource", absolute = true)
@@ -39,45 +69,150 @@ public class TodoGatewayResource {
 
   private static final Logger LOG = LoggerFactory.getLogger(TodoGatewayResource.class);
 
+  static final int MAX_IDS = 100;
+
   @Inject
   private TodoGatewayApplicationService repository;
 
+  @Inject
+  private AdmissionControl admissionControl;
+
+  @Inject
+  private TodoPayloadValidator validator;
+
+  @Context
+  private UriInfo uriInfo;
+
   @POST
-  public Response createTodo(final String newTodo) {
-    LOG.info("Request createTodo of todo {}", newTodo);
-    Response response = repository.createTodo(newTodo);
-    return Response.fromResponse(response).build();
+  public CompletionStage<Response> createTodo(@HeaderParam(HttpHeaders.CONTENT_TYPE) final String contentType, final InputStream newTodo) {
+    LOG.info("Request createTodo of todo ({})", contentType);
+    return validator.validate(contentType, newTodo, NewTodo::new, CreateTodoValidationGroup.class,
+                              payload -> admissionControl.admit("createTodo",
+                                                                roundTrip -> repository.createTodo(contentType, payload, roundTrip)));
   }
 
   @DELETE
   @Path("/{id}")
-  public Response deleteTodo(@PathParam("id") final Long todoId) {
+  public CompletionStage<Response> deleteTodo(@PathParam("id") final Long todoId) {
     LOG.info("Request deleteTodo todo with id {}", todoId);
-    Response response = repository.deleteTodo(todoId);
-    return Response.fromResponse(response).build();
+    return admissionControl.admit("deleteTodo", roundTrip -> repository.deleteTodo(todoId, roundTrip));
   }
 
   @GET
   @Path("/{id}")
-  public Response getTodo(@PathParam("id") final Long todoId) {
+  public CompletionStage<Response> getTodo(@PathParam("id") final Long todoId, @HeaderParam(HttpHeaders.ACCEPT) final String accept,
+                                           @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch) {
     LOG.info("Request todo with id {}", todoId);
-    Response response = repository.getTodo(todoId);
-    return Response.fromResponse(response).build();
+    return admissionControl.admit("getTodo", roundTrip -> repository.getTodo(todoId, accept, ifNoneMatch, roundTrip));
+  }
+
+  /**
+   * Finds a page of todos, or the todos with the given comma separated ids, e.g. <code>?ids=1,2,3</code>. Todos with ids are returned as
+   * one result per id in the order of the ids (see {@link TodoMultiGet}).
+   * <p>
+   * The next page is linked by the todo-list-service in the <code>Link</code> header with relation <code>next</code>. The link is
+   * rewritten to the URI of the gateway, so clients can page through the gateway.
+   */
+  @GET
+  @Operation(description = "Find todos or the todos with the given ids. Further pages are linked in the 'Link' header with relation "
+                            + "'next'.")
+  public CompletionStage<Response> getTodos(@HeaderParam(HttpHeaders.ACCEPT) final String accept,
+                                            @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch,
+                                            @QueryParam("ids") final String ids,
+                                            @QueryParam("limit") final String limit,
+                                            @QueryParam("after") final String after,
+                                            @QueryParam("done") final String done,
+                                            @QueryParam("dueFrom") final String dueFrom,
+                                            @QueryParam("dueTo") final String dueTo) {
+    if (ids != null) {
+      List<Long> todoIds = parseIds(ids);
+      LOG.info("Request todos with ids {}", todoIds);
+      return admissionControl.admit("getTodosById", roundTrip -> repository.getTodosById(todoIds, accept, roundTrip));
+    }
+
+    TodoListQuery query = new TodoListQuery(limit, after, done, dueFrom, dueTo);
+    LOG.info("Request todos {}", query);
+    UriBuilder requestUri = uriInfo.getRequestUriBuilder();
+    return admissionControl.admit("getTodos", roundTrip -> repository.getTodos(query, accept, ifNoneMatch, roundTrip))
+        .thenApply(response -> rewriteNextLink(response, requestUri));
   }
 
+  /**
+   * Proxies the server-sent change events of the todo-list-service. Every chunk is written to the client as soon as it is read, so events
+   * are neither buffered nor delayed by the gateway.
+   */
   @GET
-  @Operation(description = "Find all todos")
-  public Response getTodos() {
-    LOG.info("Request all todos");
-    Response response = repository.getTodos();
-    return Response.fromResponse(response).build();
+  @Path("/changes")
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  @Operation(description = "Stream changes of todos as server-sent events")
+  public CompletionStage<Response> streamChanges(@HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) final String lastEventId) {
+    LOG.info("Request changes after event {}", lastEventId);
+    return repository.streamChanges(lastEventId)
+        .thenApply(response -> Response.fromResponse(response).header(HttpHeaders.CACHE_CONTROL, "no-cache").build());
   }
 
   @PUT
   @Path("/{id}")
-  public Response updateTodo(@PathParam("id") final Long todoId, final String modifiedTodo) {
-    LOG.info("Request updateTodo todo with id {} ({})", todoId, modifiedTodo);
-    Response response = repository.updateTodo(todoId, modifiedTodo);
-    return Response.fromResponse(response).build();
+  public CompletionStage<Response> updateTodo(@PathParam("id") final Long todoId,
+                             @HeaderParam(HttpHeaders.CONTENT_TYPE) final String contentType,
+                             final InputStream modifiedTodo) {
+    LOG.info("Request updateTodo todo with id {} ({})", todoId, contentType);
+    return validator.validate(contentType, modifiedTodo, ModifiedTodo::new, UpdateTodoValidationGroup.class,
+                              payload -> admissionControl.admit("updateTodo",
+                                                                roundTrip -> repository.updateTodo(todoId, contentType, payload,
+                                                                                                   roundTrip)));
+  }
+
+  private static List<Long> parseIds(final String ids) {
+    List<Long> todoIds = new ArrayList<>();
+    for (String id : ids.split(",", -1)) {
+      try {
+        todoIds.add(Long.valueOf(id.trim()));
+      } catch (NumberFormatException e) {
+        throw new BadRequestException("ids must be a comma separated list of todo identifiers", e);
+      }
+    }
+
+    if (todoIds.size() > MAX_IDS) {
+      throw new BadRequestException(String.format("ids must contain between 1 and %d identifiers", MAX_IDS));
+    }
+    return todoIds;
+  }
+
+  /**
+   * Replaces the link to the next page of the todo-list-service with the request URI of the gateway and the cursor of the next page.
+   * Other links are removed, because they refer to the todo-list-service. The request URI is resolved on the request thread.
+   */
+  private static Response rewriteNextLink(final Response response, final UriBuilder requestUri) {
+    List<String> links = response.getStringHeaders().get(HttpHeaders.LINK);
+    if (links == null || links.isEmpty()) {
+      return response;
+    }
+
+    Response.ResponseBuilder builder = Response.fromResponse(response).header(HttpHeaders.LINK, null);
+    for (String value : links) {
+      Link link = Link.valueOf(value);
+      String after = getQueryParam(link.getUri(), "after");
+      if ("next".equals(link.getRel()) && after != null) {
+        builder.link(requestUri.replaceQueryParam("after", after).build(), "next");
+      }
+    }
+    return builder.build();
+  }
+
+  private static String getQueryParam(final URI uri, final String name) {
+    if (uri.getRawQuery() == null) {
+      return null;
+    }
+    for (String param : uri.getRawQuery().split("&")) {
+      if (param.startsWith(name + '=')) {
+        try {
+          return URLDecoder.decode(param.substring(name.length() + 1), StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    }
+    return null;
   }
 }
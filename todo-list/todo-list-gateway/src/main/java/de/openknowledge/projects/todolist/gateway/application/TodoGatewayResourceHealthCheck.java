@@ -33,6 +33,9 @@ import javax.ws.rs.core.UriBuilder;
 
 /**
  * Health check for the resource {@link TodoGatewayResource}.
+ * <p>
+ * The gateway stays ready if the todo-list-service is not available, because cached todos are still served as fallback. Whether the
+ * todo-list-service is available is reported as additional data.
  */
 @Readiness
 @ApplicationScoped
@@ -46,6 +49,9 @@ public class TodoGatewayResourceHealthCheck implements HealthCheck {
   @ConfigProperty(name = "app.context.root")
   private String contextRoot;
 
+  @Inject
+  private TodoGatewayApplicationService service;
+
   @Override
   public HealthCheckResponse call() {
     HealthCheckResponseBuilder builder = HealthCheckResponse.named(TodoGatewayResource.class.getSimpleName());
@@ -58,6 +64,8 @@ public class TodoGatewayResourceHealthCheck implements HealthCheck {
 
     boolean up = Response.Status.OK.equals(response.getStatusInfo().toEnum());
 
+    builder.withData("todo-list-service", service.isTodoListServiceAvailable() ? "available" : "not available");
+
     if (up) {
       builder.withData("resource", "available").up();
     } else {
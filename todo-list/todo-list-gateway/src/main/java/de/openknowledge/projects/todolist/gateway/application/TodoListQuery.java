@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.value.AbstractValueObject;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The query parameters of a page of todos. The values are passed to the todo-list-service as they are, so it validates them.
+ */
+public class TodoListQuery extends AbstractValueObject {
+
+  private final String limit;
+
+  private final String after;
+
+  private final String done;
+
+  private final String dueFrom;
+
+  private final String dueTo;
+
+  public TodoListQuery(final String limit, final String after, final String done, final String dueFrom, final String dueTo) {
+    super();
+    this.limit = limit;
+    this.after = after;
+    this.done = done;
+    this.dueFrom = dueFrom;
+    this.dueTo = dueTo;
+  }
+
+  public String getLimit() {
+    return limit;
+  }
+
+  public String getAfter() {
+    return after;
+  }
+
+  public String getDone() {
+    return done;
+  }
+
+  public String getDueFrom() {
+    return dueFrom;
+  }
+
+  public String getDueTo() {
+    return dueTo;
+  }
+
+  /**
+   * Returns the encoded query string of the parameters that are set, always in the same order, or an empty string if none is set.
+   */
+  public String toQueryString() {
+    StringBuilder query = new StringBuilder();
+    append(query, "limit", limit);
+    append(query, "after", after);
+    append(query, "done", done);
+    append(query, "dueFrom", dueFrom);
+    append(query, "dueTo", dueTo);
+    return query.toString();
+  }
+
+  private static void append(final StringBuilder query, final String name, final String value) {
+    if (value == null) {
+      return;
+    }
+    if (query.length() > 0) {
+      query.append('&');
+    }
+    try {
+      query.append(name).append('=').append(URLEncoder.encode(value, StandardCharsets.UTF_8.name()));
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  protected Object[] values() {
+    return new Object[]{limit, after, done, dueFrom, dueTo};
+  }
+
+  @Override
+  public String toString() {
+    return "TodoListQuery{" +
+           "limit=" + limit +
+           ", after='" + after + '\'' +
+           ", done=" + done +
+           ", dueFrom=" + dueFrom +
+           ", dueTo=" + dueTo +
+           '}';
+  }
+}
@@ -15,32 +15,55 @@
  */
 package de.openknowledge.projects.todolist.gateway.application;
 
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 @Path("/api/todos")
 public interface TodoListServiceClient {
 
   @POST
-  Response createTodo(final String newTodo);
+  CompletionStage<Response> createTodo(@HeaderParam(HttpHeaders.CONTENT_TYPE) final String contentType, final InputStream newTodo);
 
   @DELETE
   @Path("/{todoId}")
-  Response deleteTodo(@PathParam(value = "todoId") final Long todoId);
+  CompletionStage<Response> deleteTodo(@PathParam(value = "todoId") final Long todoId);
 
   @GET
   @Path("/{todoId}")
-  Response getTodo(@PathParam(value = "todoId") final Long todoId);
+  CompletionStage<Response> getTodo(@PathParam(value = "todoId") final Long todoId, @HeaderParam(HttpHeaders.ACCEPT) final String accept,
+                                    @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch);
+
+  @GET
+  CompletionStage<Response> getTodos(@QueryParam("limit") final String limit, @QueryParam("after") final String after,
+                                     @QueryParam("done") final String done, @QueryParam("dueFrom") final String dueFrom,
+                                     @QueryParam("dueTo") final String dueTo, @HeaderParam(HttpHeaders.ACCEPT) final String accept,
+                                     @HeaderParam(HttpHeaders.IF_NONE_MATCH) final String ifNoneMatch);
+
+  @GET
+  @Path("/batch")
+  CompletionStage<Response> getTodosById(@QueryParam("id") final List<Long> todoIds, @HeaderParam(HttpHeaders.ACCEPT) final String accept);
 
   @GET
-  Response getTodos();
+  @Path("/changes")
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  CompletionStage<Response> streamChanges(@HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) final String lastEventId);
 
   @PUT
   @Path("/{todoId}")
-  Response updateTodo(@PathParam(value = "todoId") final Long todoId, String modifiedTodo);
+  CompletionStage<Response> updateTodo(@PathParam(value = "todoId") final Long todoId,
+                                       @HeaderParam(HttpHeaders.CONTENT_TYPE) final String contentType, final InputStream modifiedTodo);
 }
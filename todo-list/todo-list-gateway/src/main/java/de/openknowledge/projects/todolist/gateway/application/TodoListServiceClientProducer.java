@@ -15,21 +15,54 @@
  */
 package de.openknowledge.projects.todolist.gateway.application;
 
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer.LoadBalancer;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer.Upstream;
+
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.RestClientBuilder;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
 import javax.enterprise.context.ApplicationScoped;
-import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import javax.ws.rs.core.UriBuilder;
 
+/**
+ * Produces the {@link TodoListServiceClient}.
+ * <p>
+ * The client is thread-safe and created once per application, so connections to the todo-list-service are kept alive and reused across
+ * requests. Timeouts and keep-alive are configured with the config properties <code>todo-list-service.connect-timeout</code>,
+ * <code>todo-list-service.read-timeout</code> and <code>todo-list-service.keep-alive</code>. The connection pool itself can't be
+ * configured per client: the REST client of Open Liberty sends requests with <code>HttpURLConnection</code>, whose connections are pooled
+ * per host and port by the JVM. Its size is set by the JVM-wide system property <code>http.maxConnections</code> (see
+ * <code>JAVA_OPTS</code> in the Dockerfile), idle connections are closed after the keep-alive timeout sent by the service.
+ * <p>
+ * The todo-list-service may run as several instances, configured as comma separated list of <code>host:port</code> with the config
+ * property <code>todo-list-service.endpoints</code>. Otherwise <code>todo-list-service.host</code> and <code>todo-list-service.port</code>
+ * are used. Requests are balanced across the instances by a {@link LoadBalancer}, which probes the readiness endpoint of each instance
+ * periodically.
+ */
 @ApplicationScoped
 public class TodoListServiceClientProducer {
 
+  private static final Logger LOG = LoggerFactory.getLogger(TodoListServiceClientProducer.class);
+
+  private static final String KEEP_ALIVE_PROPERTY = "com.ibm.ws.jaxrs.client.keepalive.connection";
+
   @Inject
   @ConfigProperty(name = "todo-list-service.host")
   private String host;
@@ -38,18 +71,97 @@ public class TodoListServiceClientProducer {
   @ConfigProperty(name = "todo-list-service.port")
   private Integer port;
 
+  @Inject
+  @ConfigProperty(name = "todo-list-service.endpoints")
+  private Optional<String> endpoints;
+
+  @Inject
+  @ConfigProperty(name = "todo-list-service.connect-timeout", defaultValue = "3000")
+  private Long connectTimeout;
+
+  @Inject
+  @ConfigProperty(name = "todo-list-service.read-timeout", defaultValue = "3000")
+  private Long readTimeout;
+
+  @Inject
+  @ConfigProperty(name = "todo-list-service.keep-alive", defaultValue = "true")
+  private Boolean keepAlive;
+
+  @Inject
+  @ConfigProperty(name = "todo-list-service.balancer.consecutive-failures", defaultValue = "5")
+  private Integer consecutiveFailures;
+
+  @Inject
+  @ConfigProperty(name = "todo-list-service.balancer.slow-threshold", defaultValue = "2000")
+  private Long slowThreshold;
+
+  @Inject
+  @ConfigProperty(name = "todo-list-service.balancer.ejection-time", defaultValue = "30000")
+  private Long ejectionTime;
+
+  @Inject
+  @ConfigProperty(name = "todo-list-service.balancer.health-interval", defaultValue = "5000")
+  private Long healthInterval;
+
+  @Resource
+  private ManagedScheduledExecutorService executor;
+
+  private ScheduledFuture<?> probes;
+
   @Produces
   @RestClient
-  @RequestScoped
+  @ApplicationScoped
   public TodoListServiceClient create() {
+    List<Upstream<TodoListServiceClient>> upstreams = new ArrayList<>();
+    for (String endpoint : getEndpoints()) {
+      URI uri = URI.create("http://" + endpoint);
+      upstreams.add(new Upstream<>(endpoint, UriBuilder.fromUri(uri).path("health/ready").build(), create(uri.getHost(), uri.getPort())));
+    }
+
+    LoadBalancer<TodoListServiceClient> balancer = new LoadBalancer<>(upstreams, consecutiveFailures, slowThreshold, ejectionTime,
+                                                                      connectTimeout.intValue());
+    probes = executor.scheduleWithFixedDelay(balancer::probe, 0, healthInterval, TimeUnit.MILLISECONDS);
+    return balancer.asClient(TodoListServiceClient.class);
+  }
+
+  public void close(@Disposes @RestClient final TodoListServiceClient client) {
+    if (probes != null) {
+      probes.cancel(false);
+    }
+    if (client instanceof Closeable) {
+      try {
+        ((Closeable) client).close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close client for todo-list-service", e);
+      }
+    }
+  }
+
+  private List<String> getEndpoints() {
+    List<String> result = new ArrayList<>();
+    for (String endpoint : endpoints.orElse("").split(",")) {
+      if (!endpoint.trim().isEmpty()) {
+        result.add(endpoint.trim());
+      }
+    }
+    if (result.isEmpty()) {
+      result.add(host + ':' + port);
+    }
+    return result;
+  }
+
+  private TodoListServiceClient create(final String host, final int port) {
+    LOG.info("Create client for todo-list-service at {}:{} (connectTimeout={}, readTimeout={}, keepAlive={})",
+             host, port, connectTimeout, readTimeout, keepAlive);
     return RestClientBuilder.newBuilder()
         .baseUri(UriBuilder.fromUri("todo-list-service")
                      .scheme("http")
                      .host(host)
                      .port(port)
                      .build())
-        .connectTimeout(3000, TimeUnit.MILLISECONDS)
-        .readTimeout(3000, TimeUnit.MILLISECONDS)
+        .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+        .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+        .property(KEEP_ALIVE_PROPERTY, keepAlive ? "keep-alive" : "close")
         .build(TodoListServiceClient.class);
   }
 }
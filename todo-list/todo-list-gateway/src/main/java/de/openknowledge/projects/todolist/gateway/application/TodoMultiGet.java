@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.proxy.ResponseProxy;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonReaderFactory;
+import javax.json.JsonValue;
+import javax.ws.rs.ServerErrorException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Reads multiple todos with one request to the todo-list-service, which finds them with one query.
+ * <p>
+ * The response contains one result per requested id in the order of the ids, duplicates included. Each result consists of the index of
+ * the id, the id, the status the id would have had as single request and, if the todo was found, the todo. So todos that were not found
+ * are marked with status 404, other client errors with their status and the errors of the todo-list-service.
+ * <p>
+ * Older versions of the todo-list-service can't read multiple todos. If the todo-list-service responds with 404 or 405, every distinct
+ * todo of this request is read with a single request instead, with at most <code>gateway.multi-get.concurrency</code> requests at a time,
+ * and the results are returned as JSON in the same order and format. Each request tries to read multiple todos with one request first,
+ * because the instances of the todo-list-service the requests are balanced across (see
+ * {@link de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer.LoadBalancer}) may run different versions.
+ */
+@ApplicationScoped
+public class TodoMultiGet {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TodoMultiGet.class);
+
+  private static final JsonReaderFactory READER_FACTORY = Json.createReaderFactory(Collections.emptyMap());
+
+  private static final JsonBuilderFactory BUILDER_FACTORY = Json.createBuilderFactory(Collections.emptyMap());
+
+  @Inject
+  @RestClient
+  private TodoListServiceClient client;
+
+  @Inject
+  @ConfigProperty(name = "gateway.multi-get.concurrency", defaultValue = "8")
+  private int concurrency;
+
+  public TodoMultiGet() {
+    super();
+  }
+
+  TodoMultiGet(final TodoListServiceClient client, final int concurrency) {
+    this();
+    this.client = notNull(client, "client must not be null");
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * Reads the todos with the given ids.
+   *
+   * @param todoIds the ids of the todos
+   * @param accept  the accepted media type, results of single requests are always returned as JSON
+   */
+  public CompletionStage<Response> getTodos(final List<Long> todoIds, final String accept) {
+    return client.getTodosById(todoIds, accept).thenCompose(response -> {
+      if (response.getStatus() == Status.NOT_FOUND.getStatusCode() || response.getStatus() == Status.METHOD_NOT_ALLOWED.getStatusCode()) {
+        response.close();
+        LOG.warn("todo-list-service can't read multiple todos with one request, read them one by one");
+        return fanOut(todoIds);
+      }
+
+      if (Status.Family.familyOf(response.getStatus()) == Status.Family.SERVER_ERROR) {
+        return CompletableFuture.completedFuture(response);
+      }
+
+      return CompletableFuture.completedFuture(ResponseProxy.forward(response, false).build());
+    });
+  }
+
+  private CompletionStage<Response> fanOut(final List<Long> todoIds) {
+    return new FanOut(new ArrayList<>(new LinkedHashSet<>(todoIds))).start()
+        .thenApply(results -> toResponse(todoIds, results));
+  }
+
+  private static Response toResponse(final List<Long> todoIds, final Map<Long, JsonObject> results) {
+    JsonArrayBuilder array = BUILDER_FACTORY.createArrayBuilder();
+    for (int index = 0; index < todoIds.size(); index++) {
+      Long todoId = todoIds.get(index);
+      JsonObjectBuilder result = BUILDER_FACTORY.createObjectBuilder()
+          .add("index", index)
+          .add("id", todoId);
+      results.get(todoId).forEach((name, value) -> result.add(name, value));
+      array.add(result);
+    }
+    return Response.ok(array.build().toString(), MediaType.APPLICATION_JSON_TYPE).build();
+  }
+
+  /**
+   * Reads the todos with single requests, at most {@link #concurrency} at a time. The first failed request fails all.
+   */
+  private final class FanOut {
+
+    private final List<Long> todoIds;
+
+    private final Map<Long, JsonObject> results = new ConcurrentHashMap<>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final CompletableFuture<Map<Long, JsonObject>> completion = new CompletableFuture<>();
+
+    private FanOut(final List<Long> todoIds) {
+      this.todoIds = todoIds;
+    }
+
+    private CompletionStage<Map<Long, JsonObject>> start() {
+      LOG.debug("Read {} todos one by one", todoIds.size());
+      for (int i = 0; i < Math.min(concurrency, todoIds.size()); i++) {
+        readNext();
+      }
+      return completion;
+    }
+
+    private void readNext() {
+      int index = next.getAndIncrement();
+      if (index >= todoIds.size() || completion.isDone()) {
+        return;
+      }
+
+      Long todoId = todoIds.get(index);
+      CompletionStage<Response> request;
+      try {
+        request = client.getTodo(todoId, MediaType.APPLICATION_JSON, null);
+      } catch (RuntimeException e) {
+        completion.completeExceptionally(e);
+        return;
+      }
+
+      request.whenComplete((response, e) -> {
+        if (e != null) {
+          completion.completeExceptionally(e);
+          return;
+        }
+        try {
+          results.put(todoId, toResult(response));
+        } catch (RuntimeException ex) {
+          completion.completeExceptionally(ex);
+          return;
+        }
+        if (results.size() == todoIds.size()) {
+          completion.complete(results);
+        } else {
+          readNext();
+        }
+      });
+    }
+
+    private JsonObject toResult(final Response response) {
+      try {
+        Status.Family family = Status.Family.familyOf(response.getStatus());
+        if (family == Status.Family.SERVER_ERROR) {
+          throw new ServerErrorException(response.getStatus());
+        }
+
+        JsonObjectBuilder result = BUILDER_FACTORY.createObjectBuilder()
+            .add("status", family == Status.Family.SUCCESSFUL ? Status.OK.getStatusCode() : response.getStatus());
+        if (family == Status.Family.SUCCESSFUL) {
+          result.add("errors", BUILDER_FACTORY.createArrayBuilder());
+          try (JsonReader reader = READER_FACTORY.createReader(response.readEntity(InputStream.class))) {
+            result.add("todo", reader.readObject());
+          }
+        } else {
+          result.add("errors", readErrors(response));
+        }
+        return result.build();
+      } finally {
+        response.close();
+      }
+    }
+
+    /**
+     * Reads the errors of a client error response of the todo-list-service, e.g. the constraint violations of an invalid id. Responses
+     * <code>404 Not Found</code> has no errors.
+     */
+    private JsonArray readErrors(final Response response) {
+      if (response.getStatus() == Status.NOT_FOUND.getStatusCode() || !response.hasEntity()) {
+        return JsonValue.EMPTY_JSON_ARRAY;
+      }
+      try (JsonReader reader = READER_FACTORY.createReader(response.readEntity(InputStream.class))) {
+        JsonObject body = reader.readObject();
+        if (body.get("errors") instanceof JsonArray) {
+          return body.getJsonArray("errors");
+        }
+        return body.containsKey("code") ? BUILDER_FACTORY.createArrayBuilder().add(body).build() : JsonValue.EMPTY_JSON_ARRAY;
+      } catch (JsonException | IllegalStateException e) {
+        LOG.debug("Errors of response with status {} can't be read", response.getStatus(), e);
+        return JsonValue.EMPTY_JSON_ARRAY;
+      }
+    }
+  }
+}
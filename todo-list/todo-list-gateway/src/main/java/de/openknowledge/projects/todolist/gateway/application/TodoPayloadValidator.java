@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ApplicationErrorsDTO;
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ErrorDTO;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.proxy.ResponseProxy;
+import de.openknowledge.projects.todolist.gateway.infrastructure.validation.ValidationErrorDTO;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonReaderFactory;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.validation.Validator;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Validates todo payloads at the gateway with the constraints of the todo-list-service (see {@link NewTodo} and {@link ModifiedTodo}), so
+ * invalid requests are rejected without a request to the todo-list-service.
+ * <p>
+ * The validation is disabled by default and enabled with the config property <code>gateway.validation.enabled</code>. Only JSON payloads
+ * up to <code>gateway.validation.max-payload-size</code> bytes are validated, all other payloads are passed through unchanged and are
+ * validated by the todo-list-service. So are payloads that can't be read as todo, e.g. malformed JSON, fields of the wrong type or due dates
+ * that aren't ISO 8601 date-times, so the client receives the same errors with and without validation at the gateway.
+ */
+@ApplicationScoped
+public class TodoPayloadValidator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TodoPayloadValidator.class);
+
+  private static final JsonReaderFactory READER_FACTORY = Json.createReaderFactory(Collections.emptyMap());
+
+  @Inject
+  @ConfigProperty(name = "gateway.validation.enabled", defaultValue = "false")
+  private boolean enabled;
+
+  @Inject
+  @ConfigProperty(name = "gateway.validation.max-payload-size", defaultValue = "65536")
+  private int maxPayloadSize;
+
+  @Inject
+  private Validator validator;
+
+  public TodoPayloadValidator() {
+    super();
+  }
+
+  TodoPayloadValidator(final int maxPayloadSize, final Validator validator) {
+    this();
+    this.enabled = true;
+    this.maxPayloadSize = maxPayloadSize;
+    this.validator = notNull(validator, "validator must not be null");
+  }
+
+  /**
+   * Validates the payload and passes it to the request if it is valid. If it is invalid, a response with status 400 and the errors is
+   * returned and the request is not executed.
+   *
+   * @param contentType the content type of the payload
+   * @param payload     the payload
+   * @param todo        creates the todo the payload is read into
+   * @param group       the validation group
+   * @param request     the request that is executed with the payload
+   */
+  public <T extends AbstractTodo> CompletionStage<Response> validate(final String contentType,
+                                                                     final InputStream payload,
+                                                                     final Supplier<T> todo,
+                                                                     final Class<?> group,
+                                                                     final Function<InputStream, CompletionStage<Response>> request) {
+    if (!enabled || payload == null || !isJson(contentType)) {
+      return request.apply(payload);
+    }
+
+    byte[] buffer;
+    try {
+      buffer = ResponseProxy.read(payload, maxPayloadSize + 1);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (buffer.length > maxPayloadSize) {
+      LOG.debug("Payload exceeds {} bytes and is not validated", maxPayloadSize);
+      return request.apply(new SequenceInputStream(new ByteArrayInputStream(buffer), payload));
+    }
+
+    List<? extends ErrorDTO> errors;
+    try {
+      errors = validate(buffer, todo.get(), group);
+    } catch (JsonException | ClassCastException | DateTimeParseException e) {
+      LOG.debug("Payload can't be read as todo and is not validated: {}", e.getMessage());
+      return request.apply(new ByteArrayInputStream(buffer));
+    }
+    if (!errors.isEmpty()) {
+      LOG.warn("Validation failed. {} constraint violation(s) occurred.", errors.size());
+      return CompletableFuture.completedFuture(Response.status(Response.Status.BAD_REQUEST)
+                                                   .type(MediaType.APPLICATION_JSON_TYPE)
+                                                   .entity(new ApplicationErrorsDTO(errors))
+                                                   .build());
+    }
+
+    return request.apply(new ByteArrayInputStream(buffer));
+  }
+
+  private List<? extends ErrorDTO> validate(final byte[] payload, final AbstractTodo todo, final Class<?> group) {
+    try (JsonReader reader = READER_FACTORY.createReader(new ByteArrayInputStream(payload))) {
+      JsonObject json = reader.readObject();
+      todo.setTitle(getString(json, "title"));
+      todo.setDescription(getString(json, "description"));
+      todo.setDone(getBoolean(json, "done"));
+      String dueDate = getString(json, "dueDate");
+      todo.setDueDate(dueDate != null ? DateTimeFormatter.ISO_OFFSET_DATE_TIME.parse(dueDate, OffsetDateTime::from) : null);
+    }
+
+    return validator.validate(todo, group)
+        .stream()
+        .map(ValidationErrorDTO::new)
+        .collect(Collectors.toList());
+  }
+
+  private static String getString(final JsonObject json, final String name) {
+    JsonValue value = json.get(name);
+    if (value == null || value.getValueType() == JsonValue.ValueType.NULL) {
+      return null;
+    }
+    if (value.getValueType() != JsonValue.ValueType.STRING) {
+      throw new JsonException(String.format("%s must be a string", name));
+    }
+    return ((JsonString) value).getString();
+  }
+
+  private static Boolean getBoolean(final JsonObject json, final String name) {
+    JsonValue value = json.get(name);
+    if (value == null || value.getValueType() == JsonValue.ValueType.NULL) {
+      return null;
+    }
+    if (value.getValueType() != JsonValue.ValueType.TRUE && value.getValueType() != JsonValue.ValueType.FALSE) {
+      throw new JsonException(String.format("%s must be a boolean", name));
+    }
+    return value.getValueType() == JsonValue.ValueType.TRUE;
+  }
+
+  private static boolean isJson(final String contentType) {
+    if (contentType == null) {
+      return false;
+    }
+    try {
+      MediaType mediaType = MediaType.valueOf(contentType);
+      return "application".equalsIgnoreCase(mediaType.getType())
+             && ("json".equalsIgnoreCase(mediaType.getSubtype()) || mediaType.getSubtype().toLowerCase().endsWith("+json"));
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.validation.ValidationErrorPayload;
+
+/**
+ * Error payload for the todos validated by the gateway, the error codes are the same as those of the todo-list-service.
+ */
+public final class TodoValidationErrorCodes {
+
+  public static class TitleIsNull extends ValidationErrorPayload {
+
+    public TitleIsNull() {
+      super("TITLE_IS_NULL");
+    }
+  }
+
+  public static class InvalidTitleSize extends ValidationErrorPayload {
+
+    public InvalidTitleSize() {
+      super("TITLE_INVALID_SIZE");
+    }
+  }
+
+  public static class DescriptionTooLong extends ValidationErrorPayload {
+
+    public DescriptionTooLong() {
+      super("DESCRIPTION_TOO_LONG");
+    }
+  }
+
+  public static class DueDateIsNull extends ValidationErrorPayload {
+
+    public DueDateIsNull() {
+      super("DUE_DATE_IS_NULL");
+    }
+  }
+
+  public static class DoneIsNull extends ValidationErrorPayload {
+
+    public DoneIsNull() {
+      super("DONE_IS_NULL");
+    }
+  }
+}
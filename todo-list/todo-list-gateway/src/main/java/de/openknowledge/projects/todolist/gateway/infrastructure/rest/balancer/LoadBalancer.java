@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notEmpty;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Balances requests across several instances of a proxied service.
+ * <p>
+ * Each request is sent to the instance with fewer outstanding requests of two randomly chosen available instances (power of two choices),
+ * so slow instances receive fewer requests without the balancer having to compare all instances.
+ * <p>
+ * An instance is ejected for a while if requests fail consecutively (exceptions and server errors) or if its average latency exceeds a
+ * threshold (passive outlier ejection). Additionally the readiness endpoint of each instance is probed (see {@link #probe()}), instances
+ * that are not ready receive no requests (active health checking). If no instance is available, requests are balanced across all
+ * instances, because a request that may fail is better than no request.
+ * <p>
+ * Attempts of the same request that are sent within {@link Selections#send(java.util.function.Supplier)} are sent to different instances
+ * if possible, e.g. a hedged request isn't sent to the instance that is already slow to answer the request.
+ */
+public class LoadBalancer<T> implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoadBalancer.class);
+
+  private static final int MAX_EJECTIONS = 10;
+
+  private final List<Upstream<T>> upstreams;
+
+  private final int consecutiveFailures;
+
+  private final long slowThreshold;
+
+  private final long ejectionTime;
+
+  private final int probeTimeout;
+
+  private final LongSupplier clock;
+
+  /**
+   * @param upstreams           the instances of the proxied service
+   * @param consecutiveFailures the number of consecutive failures after which an instance is ejected
+   * @param slowThreshold       the average latency (milliseconds) above which an instance is ejected
+   * @param ejectionTime        the time (milliseconds) an instance is ejected for, multiplied by the number of consecutive ejections
+   * @param probeTimeout        the connect and read timeout (milliseconds) of the readiness probes
+   */
+  public LoadBalancer(final List<Upstream<T>> upstreams, final int consecutiveFailures, final long slowThreshold,
+                      final long ejectionTime, final int probeTimeout) {
+    this(upstreams, consecutiveFailures, slowThreshold, ejectionTime, probeTimeout, System::nanoTime);
+  }
+
+  LoadBalancer(final List<Upstream<T>> upstreams, final int consecutiveFailures, final long slowThreshold, final long ejectionTime,
+               final int probeTimeout, final LongSupplier clock) {
+    notEmpty(upstreams, "upstreams must not be empty");
+    isTrue(consecutiveFailures > 0, "consecutiveFailures must be positive");
+    isTrue(slowThreshold > 0, "slowThreshold must be positive");
+    isTrue(ejectionTime > 0, "ejectionTime must be positive");
+    isTrue(probeTimeout > 0, "probeTimeout must be positive");
+    this.upstreams = Collections.unmodifiableList(new ArrayList<>(upstreams));
+    this.consecutiveFailures = consecutiveFailures;
+    this.slowThreshold = slowThreshold;
+    this.ejectionTime = TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+    this.probeTimeout = probeTimeout;
+    this.clock = notNull(clock, "clock must not be null");
+  }
+
+  public List<Upstream<T>> getUpstreams() {
+    return upstreams;
+  }
+
+  /**
+   * Sends a request to the selected instance and records its outcome. Cancelling the returned stage cancels the request, a response that
+   * is received nevertheless is closed. Cancelled requests are neither recorded as failures nor by their latency, as they were not answered
+   * because they were no longer needed, e.g. the losing attempt of a hedged request.
+   *
+   * @param request sends the request with the client of the selected instance
+   */
+  public CompletionStage<Response> call(final Function<T, CompletionStage<Response>> request) {
+    notNull(request, "request must not be null");
+
+    Selections selections = Selections.current();
+    Upstream<T> upstream = select(selections != null ? selections.getSelected() : Collections.emptySet());
+    if (selections != null) {
+      selections.add(upstream);
+    }
+    upstream.start();
+    long start = clock.getAsLong();
+
+    CompletionStage<Response> response;
+    try {
+      response = request.apply(upstream.getClient());
+    } catch (RuntimeException e) {
+      complete(upstream, start, true);
+      throw e;
+    }
+
+    CompletableFuture<Response> result = new CompletableFuture<>();
+    response.whenComplete((r, e) -> {
+      if (isCancellation(e) || result.isCancelled()) {
+        upstream.finish();
+      } else {
+        complete(upstream, start, e != null || isServerError(r));
+      }
+      if (e != null) {
+        result.completeExceptionally(e);
+      } else if (!result.complete(r)) {
+        r.close();
+      }
+    });
+    result.whenComplete((r, e) -> {
+      if (result.isCancelled()) {
+        response.toCompletableFuture().cancel(true);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Selects the instance with fewer outstanding requests of two randomly chosen available instances, that are not excluded. Excluded
+   * instances are only selected if no other instance is available.
+   *
+   * @param excluded the instances that were selected for previous attempts of the request
+   */
+  Upstream<T> select(final Collection<Upstream<?>> excluded) {
+    long now = clock.getAsLong();
+    List<Upstream<T>> available = available(now, excluded);
+    if (available.isEmpty() && !excluded.isEmpty()) {
+      available = available(now, Collections.emptySet());
+    }
+    if (available.isEmpty()) {
+      available = upstreams;
+    }
+    if (available.size() == 1) {
+      return available.get(0);
+    }
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(available.size());
+    int second = random.nextInt(available.size() - 1);
+    if (second >= first) {
+      second++;
+    }
+    Upstream<T> one = available.get(first);
+    Upstream<T> other = available.get(second);
+    return other.getOutstanding() < one.getOutstanding() ? other : one;
+  }
+
+  /**
+   * Probes the readiness endpoint of each instance. Instances that don't respond with <code>200 OK</code> receive no requests until they
+   * are ready again.
+   */
+  public void probe() {
+    for (Upstream<T> upstream : upstreams) {
+      boolean healthy = isReady(upstream);
+      if (healthy != upstream.isHealthy()) {
+        LOG.info("Instance {} of proxied service is {}", upstream, healthy ? "ready" : "not ready");
+      }
+      upstream.setHealthy(healthy);
+    }
+  }
+
+  /**
+   * Returns a client of the given type that sends each request to the selected instance. All methods of the client must return a
+   * <code>CompletionStage&lt;Response&gt;</code>. Closing the client closes the clients of all instances.
+   */
+  @SuppressWarnings("unchecked")
+  public T asClient(final Class<T> type) {
+    notNull(type, "type must not be null");
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type, Closeable.class}, (proxy, method, args) -> {
+      if (method.getDeclaringClass() == Object.class) {
+        return invokeObjectMethod(proxy, method, args);
+      }
+      if (method.getDeclaringClass() == Closeable.class) {
+        close();
+        return null;
+      }
+      return call(client -> invoke(client, method, args));
+    });
+  }
+
+  /**
+   * Closes the clients of all instances.
+   */
+  @Override
+  public void close() {
+    for (Upstream<T> upstream : upstreams) {
+      if (upstream.getClient() instanceof Closeable) {
+        try {
+          ((Closeable) upstream.getClient()).close();
+        } catch (IOException e) {
+          LOG.warn("Failed to close client for instance {} of proxied service", upstream, e);
+        }
+      }
+    }
+  }
+
+  private void complete(final Upstream<T> upstream, final long start, final boolean failed) {
+    long now = clock.getAsLong();
+    long latency = TimeUnit.NANOSECONDS.toMillis(now - start);
+    int failures = upstream.complete(latency, failed);
+    if (failures >= consecutiveFailures) {
+      eject(upstream, now, String.format("%d consecutive failures", failures));
+    } else if (upstream.isSlow(slowThreshold)) {
+      eject(upstream, now, String.format("average latency of %.0f ms", upstream.getLatency()));
+    }
+  }
+
+  /**
+   * Ejects the given instance, unless it is the last available instance.
+   */
+  private void eject(final Upstream<T> upstream, final long now, final String reason) {
+    boolean othersAvailable = upstreams.stream().anyMatch(other -> other != upstream && other.isAvailable(now));
+    if (othersAvailable && !upstream.isEjected(now)) {
+      upstream.eject(now, ejectionTime, MAX_EJECTIONS);
+      LOG.warn("Ejected instance {} of proxied service because of {}", upstream, reason);
+    }
+  }
+
+  private List<Upstream<T>> available(final long now, final Collection<Upstream<?>> excluded) {
+    List<Upstream<T>> available = new ArrayList<>(upstreams.size());
+    for (Upstream<T> upstream : upstreams) {
+      if (upstream.isAvailable(now) && !excluded.contains(upstream)) {
+        available.add(upstream);
+      }
+    }
+    return available;
+  }
+
+  private boolean isReady(final Upstream<T> upstream) {
+    HttpURLConnection connection = null;
+    try {
+      connection = (HttpURLConnection) upstream.getHealthUri().toURL().openConnection();
+      connection.setConnectTimeout(probeTimeout);
+      connection.setReadTimeout(probeTimeout);
+      return connection.getResponseCode() == Status.OK.getStatusCode();
+    } catch (IOException e) {
+      LOG.debug("Failed to probe instance {} of proxied service", upstream, e);
+      return false;
+    } finally {
+      if (connection != null) {
+        connection.disconnect();
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static CompletionStage<Response> invoke(final Object client, final Method method, final Object[] args) {
+    try {
+      return (CompletionStage<Response>) method.invoke(client, args);
+    } catch (InvocationTargetException e) {
+      CompletableFuture<Response> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e.getCause());
+      return failed;
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Object invokeObjectMethod(final Object proxy, final Method method, final Object[] args) {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      default:
+        return "LoadBalancer" + upstreams;
+    }
+  }
+
+  private static boolean isCancellation(final Throwable e) {
+    return e instanceof CancellationException || e instanceof CompletionException && e.getCause() instanceof CancellationException;
+  }
+
+  private static boolean isServerError(final Response response) {
+    return response != null && Status.Family.familyOf(response.getStatus()) == Status.Family.SERVER_ERROR;
+  }
+}
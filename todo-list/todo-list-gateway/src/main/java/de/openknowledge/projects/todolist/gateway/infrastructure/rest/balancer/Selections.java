@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The instances selected for the attempts of one request, e.g. a request and its hedged request.
+ * <p>
+ * While an attempt is sent within {@link #send(Supplier)}, the {@link LoadBalancer} excludes the instances that were selected for the
+ * previous attempts, so each attempt is sent to another instance if one is available.
+ */
+public final class Selections {
+
+  private static final ThreadLocal<Selections> CURRENT = new ThreadLocal<>();
+
+  private final Set<Upstream<?>> selected = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Sends an attempt of the request. The load balancer must be called on the current thread.
+   *
+   * @param attempt sends the attempt
+   */
+  public <R> R send(final Supplier<R> attempt) {
+    notNull(attempt, "attempt must not be null");
+
+    Selections previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      return attempt.get();
+    } finally {
+      if (previous != null) {
+        CURRENT.set(previous);
+      } else {
+        CURRENT.remove();
+      }
+    }
+  }
+
+  static Selections current() {
+    return CURRENT.get();
+  }
+
+  Set<Upstream<?>> getSelected() {
+    return selected;
+  }
+
+  void add(final Upstream<?> upstream) {
+    selected.add(upstream);
+  }
+}
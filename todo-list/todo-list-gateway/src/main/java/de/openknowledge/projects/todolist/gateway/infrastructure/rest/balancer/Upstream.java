@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An instance of a proxied service, with its client and the statistics the {@link LoadBalancer} selects instances by.
+ * <p>
+ * The latency is an exponentially weighted moving average, so a few slow requests don't eject an instance, but a continuously slow
+ * instance does. Until there are enough samples for the moving average, the latency is the mean of the samples, and an instance is only
+ * considered slow after {@link #MIN_LATENCY_SAMPLES} requests, so a single slow request after a (re)start doesn't eject it.
+ */
+public final class Upstream<T> {
+
+  private static final double LATENCY_WEIGHT = 0.2;
+
+  static final int MIN_LATENCY_SAMPLES = 5;
+
+  private final String name;
+
+  private final URI healthUri;
+
+  private final T client;
+
+  private final AtomicInteger outstanding = new AtomicInteger();
+
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+  private final LongAdder requests = new LongAdder();
+
+  private final LongAdder failures = new LongAdder();
+
+  private double latency;
+
+  private int latencySamples;
+
+  private int ejections;
+
+  private volatile long ejectedUntil;
+
+  private volatile boolean ejected;
+
+  private volatile boolean healthy = true;
+
+  /**
+   * @param name      the name of the instance, e.g. host and port
+   * @param healthUri the readiness endpoint of the instance
+   * @param client    the client that sends requests to the instance
+   */
+  public Upstream(final String name, final URI healthUri, final T client) {
+    this.name = notNull(name, "name must not be null");
+    this.healthUri = notNull(healthUri, "healthUri must not be null");
+    this.client = notNull(client, "client must not be null");
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public URI getHealthUri() {
+    return healthUri;
+  }
+
+  public T getClient() {
+    return client;
+  }
+
+  public int getOutstanding() {
+    return outstanding.get();
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  public synchronized double getLatency() {
+    return latency;
+  }
+
+  /**
+   * Returns whether the average latency exceeds the given threshold, once enough requests have been recorded.
+   *
+   * @param threshold the latency in milliseconds
+   */
+  synchronized boolean isSlow(final long threshold) {
+    return latencySamples >= MIN_LATENCY_SAMPLES && latency > threshold;
+  }
+
+  public boolean isHealthy() {
+    return healthy;
+  }
+
+  public boolean isEjected(final long now) {
+    return ejected && now - ejectedUntil < 0;
+  }
+
+  boolean isAvailable(final long now) {
+    return healthy && !isEjected(now);
+  }
+
+  void setHealthy(final boolean healthy) {
+    this.healthy = healthy;
+  }
+
+  void start() {
+    outstanding.incrementAndGet();
+    requests.increment();
+  }
+
+  /**
+   * Records a completed request and returns the number of consecutive failures.
+   *
+   * @param latency the latency of the request in milliseconds
+   * @param failed  whether the request failed
+   */
+  synchronized int complete(final long latency, final boolean failed) {
+    outstanding.decrementAndGet();
+    latencySamples = Math.min(latencySamples + 1, MIN_LATENCY_SAMPLES);
+    double weight = Math.max(LATENCY_WEIGHT, 1.0 / latencySamples);
+    this.latency = weight * latency + (1 - weight) * this.latency;
+    if (!failed) {
+      consecutiveFailures.set(0);
+      ejections = 0;
+      return 0;
+    }
+    failures.increment();
+    return consecutiveFailures.incrementAndGet();
+  }
+
+  /**
+   * Finishes a request without recording it, e.g. because it was cancelled.
+   */
+  void finish() {
+    outstanding.decrementAndGet();
+  }
+
+  /**
+   * Ejects the instance. The ejection time grows with each consecutive ejection up to the given maximum factor, so an instance that
+   * keeps failing receives requests less often. The statistics are reset, so the instance gets a fresh start when it returns.
+   */
+  synchronized void eject(final long now, final long ejectionTime, final int maxEjections) {
+    ejections = Math.min(ejections + 1, maxEjections);
+    ejectedUntil = now + ejectionTime * ejections;
+    ejected = true;
+    latency = 0;
+    latencySamples = 0;
+    consecutiveFailures.set(0);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
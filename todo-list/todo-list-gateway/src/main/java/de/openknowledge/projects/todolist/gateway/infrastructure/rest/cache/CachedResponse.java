@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.cache;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+/**
+ * A response of a proxied service held in the {@link ResponseCache}.
+ */
+final class CachedResponse {
+
+  private final int status;
+
+  private final Map<String, List<Object>> headers;
+
+  private final byte[] body;
+
+  private final long expiresAt;
+
+  private final long staleUntil;
+
+  private final AtomicBoolean revalidating = new AtomicBoolean();
+
+  CachedResponse(final int status, final Map<String, List<Object>> headers, final byte[] body, final long expiresAt,
+                 final long staleUntil) {
+    this.status = status;
+    this.headers = notNull(headers, "headers must not be null");
+    this.body = notNull(body, "body must not be null");
+    this.expiresAt = expiresAt;
+    this.staleUntil = staleUntil;
+  }
+
+  /**
+   * Returns the entity tag of the response to revalidate it, or <code>null</code> if it has none.
+   */
+  String getEntityTag() {
+    List<Object> values = headers.get(HttpHeaders.ETAG);
+    return values == null || values.isEmpty() ? null : String.valueOf(values.get(0));
+  }
+
+  /**
+   * Returns <code>true</code> if the entity tag of the response matches the given <code>If-None-Match</code> header, i.e. the client
+   * already has this response. Entity tags are compared weakly.
+   */
+  boolean matches(final String ifNoneMatch) {
+    String entityTag = getEntityTag();
+    if (ifNoneMatch == null || entityTag == null) {
+      return false;
+    }
+    for (String tag : ifNoneMatch.split(",")) {
+      String trimmed = tag.trim();
+      if ("*".equals(trimmed) || weak(trimmed).equals(weak(entityTag))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  int size() {
+    return body.length;
+  }
+
+  boolean isFresh(final long now) {
+    return now - expiresAt < 0;
+  }
+
+  boolean isUsableWhileRevalidating(final long now) {
+    return now - staleUntil < 0;
+  }
+
+  /**
+   * Marks the response as being revalidated. Returns <code>false</code> if it is already being revalidated.
+   */
+  boolean startRevalidation() {
+    return revalidating.compareAndSet(false, true);
+  }
+
+  void abortRevalidation() {
+    revalidating.set(false);
+  }
+
+  /**
+   * Returns a copy of this response that is valid for the given time, e.g. after the service confirmed that it has not been modified.
+   */
+  CachedResponse renew(final long expiresAt, final long staleUntil) {
+    return new CachedResponse(status, headers, body, expiresAt, staleUntil);
+  }
+
+  ResponseBuilder toResponse() {
+    ResponseBuilder builder = Response.status(status).entity(body);
+    headers.forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+    return builder;
+  }
+
+  /**
+   * Returns <code>304 Not Modified</code> without body if the response matches the given <code>If-None-Match</code> header, otherwise
+   * the response.
+   */
+  ResponseBuilder toResponse(final String ifNoneMatch) {
+    if (!matches(ifNoneMatch)) {
+      return toResponse();
+    }
+    ResponseBuilder builder = Response.notModified();
+    headers.forEach((name, values) -> {
+      if (!HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)) {
+        values.forEach(value -> builder.header(name, value));
+      }
+    });
+    return builder;
+  }
+
+  private static String weak(final String entityTag) {
+    return entityTag.startsWith("W/") ? entityTag.substring(2) : entityTag;
+  }
+}
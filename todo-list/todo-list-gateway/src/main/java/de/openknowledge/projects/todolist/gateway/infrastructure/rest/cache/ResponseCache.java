@@ -0,0 +1,395 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.cache;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.proxy.ResponseProxy;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * A bounded cache for responses of a proxied service. The least recently used response is evicted if the cache is full.
+ * <p>
+ * A cached response is fresh for a configurable time to live. After that it is served for another configurable time while it is
+ * revalidated asynchronously. Later it is revalidated before it is served. Responses with an <code>ETag</code> are revalidated with a
+ * conditional request (<code>If-None-Match</code>), so the service only sends the body if it has changed. Only successful responses that
+ * are not larger than a configurable size are cached, larger responses are streamed to the client.
+ * <p>
+ * If the entity tag of a buffered response matches the <code>If-None-Match</code> header of the client, <code>304 Not Modified</code> is
+ * returned without body, so the client reuses the response it already has.
+ * <p>
+ * Concurrent requests for the same response that is not cached share a single request to the service (single flight), so a spike of
+ * identical requests reaches the service only once.
+ * <p>
+ * The last cached response is kept regardless of its age until it is replaced, evicted or invalidated, so it can be served as fallback
+ * if the service is not available (see {@link #getLastKnown(String)}).
+ * <p>
+ * The cache is configured with the config properties <code>gateway.cache.size</code>, <code>gateway.cache.ttl</code> (milliseconds),
+ * <code>gateway.cache.stale-while-revalidate</code> (milliseconds) and <code>gateway.cache.max-entry-size</code> (bytes). A size of 0
+ * disables the cache.
+ */
+@ApplicationScoped
+public class ResponseCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ResponseCache.class);
+
+  @Inject
+  @ConfigProperty(name = "gateway.cache.size", defaultValue = "1000")
+  private int maxSize;
+
+  @Inject
+  @ConfigProperty(name = "gateway.cache.ttl", defaultValue = "5000")
+  private long ttl;
+
+  @Inject
+  @ConfigProperty(name = "gateway.cache.stale-while-revalidate", defaultValue = "30000")
+  private long staleWhileRevalidate;
+
+  @Inject
+  @ConfigProperty(name = "gateway.cache.max-entry-size", defaultValue = "262144")
+  private int maxEntrySize;
+
+  private final LongSupplier clock;
+
+  private final Map<String, CachedResponse> responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true) {
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, CachedResponse> eldest) {
+      return size() > maxSize;
+    }
+  };
+
+  private long generation;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder revalidations = new LongAdder();
+
+  private final LongAdder collapsed = new LongAdder();
+
+  private final LongAdder fallbacks = new LongAdder();
+
+  private final ConcurrentMap<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+  public ResponseCache() {
+    this.clock = System::nanoTime;
+  }
+
+  ResponseCache(final int maxSize, final long ttl, final long staleWhileRevalidate, final int maxEntrySize, final LongSupplier clock) {
+    isTrue(maxSize >= 0, "maxSize must not be negative");
+    isTrue(ttl > 0, "ttl must be positive");
+    isTrue(staleWhileRevalidate >= 0, "staleWhileRevalidate must not be negative");
+    isTrue(maxEntrySize > 0, "maxEntrySize must be positive");
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    this.staleWhileRevalidate = staleWhileRevalidate;
+    this.maxEntrySize = maxEntrySize;
+    this.clock = notNull(clock, "clock must not be null");
+  }
+
+  /**
+   * Returns the cached response for the given key or requests it from the service.
+   *
+   * @param key      the cache key, e.g. path and accepted media type of the request
+   * @param upstream requests the response from the service, with the given entity tag as <code>If-None-Match</code> header if it is not
+   *                 <code>null</code>
+   */
+  public CompletionStage<Response> get(final String key, final Function<String, CompletionStage<Response>> upstream) {
+    return get(key, null, upstream);
+  }
+
+  /**
+   * Returns the cached response for the given key or requests it from the service. If the response matches the given
+   * <code>If-None-Match</code> header of the client, <code>304 Not Modified</code> is returned instead.
+   *
+   * @param key         the cache key, e.g. path and accepted media type of the request
+   * @param ifNoneMatch the <code>If-None-Match</code> header of the client, may be <code>null</code>
+   * @param upstream    requests the response from the service, with the given entity tag as <code>If-None-Match</code> header if it is
+   *                    not <code>null</code>
+   */
+  public CompletionStage<Response> get(final String key, final String ifNoneMatch,
+                                       final Function<String, CompletionStage<Response>> upstream) {
+    notNull(key, "key must not be null");
+    notNull(upstream, "upstream must not be null");
+
+    CachedResponse cached;
+    long currentGeneration;
+    synchronized (responses) {
+      cached = responses.get(key);
+      currentGeneration = generation;
+    }
+
+    long now = clock.getAsLong();
+    if (cached != null && cached.isFresh(now)) {
+      hits.increment();
+      return CompletableFuture.completedFuture(cached.toResponse(ifNoneMatch).build());
+    }
+    if (cached != null && cached.isUsableWhileRevalidating(now)) {
+      hits.increment();
+      if (cached.startRevalidation()) {
+        revalidate(key, cached, upstream, currentGeneration);
+      }
+      return CompletableFuture.completedFuture(cached.toResponse(ifNoneMatch).build());
+    }
+
+    misses.increment();
+    return fetch(key, cached, ifNoneMatch, upstream, currentGeneration, false);
+  }
+
+  /**
+   * Returns the last cached response for the given key regardless of its age, e.g. as fallback if the service is not available.
+   *
+   * @param key the cache key, e.g. path and accepted media type of the request
+   */
+  public Optional<Response> getLastKnown(final String key) {
+    notNull(key, "key must not be null");
+
+    CachedResponse cached;
+    synchronized (responses) {
+      cached = responses.get(key);
+    }
+
+    if (cached == null) {
+      return Optional.empty();
+    }
+
+    fallbacks.increment();
+    return Optional.of(cached.toResponse().build());
+  }
+
+  /**
+   * Removes all cached responses, e.g. after the data of the service was modified.
+   */
+  public void invalidate() {
+    synchronized (responses) {
+      generation++;
+      responses.clear();
+    }
+
+    LOG.debug("Invalidated cached responses");
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getRevalidations() {
+    return revalidations.sum();
+  }
+
+  public long getCollapsed() {
+    return collapsed.sum();
+  }
+
+  public long getFallbacks() {
+    return fallbacks.sum();
+  }
+
+  public int size() {
+    synchronized (responses) {
+      return responses.size();
+    }
+  }
+
+  private void revalidate(final String key, final CachedResponse cached, final Function<String, CompletionStage<Response>> upstream,
+                          final long generation) {
+    fetch(key, cached, null, upstream, generation, true).whenComplete((response, e) -> {
+      if (e != null) {
+        LOG.warn("Failed to revalidate cached response {}", key, e);
+        cached.abortRevalidation();
+      }
+    });
+  }
+
+  /**
+   * Requests the response from the service, unless the same response is already being requested. In that case the in-flight request is
+   * shared, provided its response is small enough to be buffered. A response that can't be shared is requested separately. A response
+   * that is requested in the background is only cached, <code>null</code> is returned.
+   */
+  private CompletionStage<Response> fetch(final String key, final CachedResponse cached, final String ifNoneMatch,
+                                          final Function<String, CompletionStage<Response>> upstream, final long generation,
+                                          final boolean background) {
+    CompletableFuture<CachedResponse> request = new CompletableFuture<>();
+    CompletableFuture<CachedResponse> inFlightRequest = inFlight.putIfAbsent(key, request);
+    if (inFlightRequest != null) {
+      collapsed.increment();
+      return inFlightRequest.thenCompose(shared -> {
+        if (shared != null) {
+          return CompletableFuture.completedFuture(background ? null : shared.toResponse(ifNoneMatch).build());
+        }
+        return load(key, cached, upstream, generation)
+            .thenApply(fetched -> background ? fetched.discard() : fetched.toResponse(ifNoneMatch));
+      });
+    }
+
+    return load(key, cached, upstream, generation).whenComplete((fetched, e) -> {
+      inFlight.remove(key, request);
+      if (e != null) {
+        request.completeExceptionally(e);
+      } else {
+        request.complete(fetched.buffered);
+      }
+    }).thenApply(fetched -> background ? fetched.discard() : fetched.toResponse(ifNoneMatch));
+  }
+
+  /**
+   * Requests the response from the service and caches it if possible. Responses up to the maximum entry size are buffered, larger
+   * responses are streamed.
+   */
+  private CompletableFuture<Fetched> load(final String key, final CachedResponse cached,
+                                          final Function<String, CompletionStage<Response>> upstream, final long generation) {
+    try {
+      return upstream.apply(cached == null ? null : cached.getEntityTag())
+          .thenApply(response -> buffer(key, cached, response, generation))
+          .toCompletableFuture();
+    } catch (RuntimeException e) {
+      CompletableFuture<Fetched> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+
+  private Fetched buffer(final String key, final CachedResponse cached, final Response response, final long generation) {
+    if (cached != null && response.getStatus() == Status.NOT_MODIFIED.getStatusCode()) {
+      response.close();
+      revalidations.increment();
+      CachedResponse renewed = cached.renew(expiresAt(), staleUntil());
+      store(key, renewed, generation);
+      return new Fetched(renewed, null, null);
+    }
+
+    byte[] body = new byte[0];
+    if (response.hasEntity()) {
+      InputStream inputStream = response.readEntity(InputStream.class);
+      try {
+        body = ResponseProxy.read(inputStream, maxEntrySize + 1);
+      } catch (IOException e) {
+        response.close();
+        throw new UncheckedIOException(e);
+      }
+
+      if (body.length > maxEntrySize) {
+        LOG.debug("Response {} is larger than {} bytes and is not cached", key, maxEntrySize);
+        remove(key, generation);
+        InputStream remaining = new SequenceInputStream(new ByteArrayInputStream(body), inputStream);
+        return new Fetched(null, ResponseProxy.forward(response, remaining, false).build(), response);
+      }
+    }
+    response.close();
+
+    CachedResponse fetched = new CachedResponse(response.getStatus(), ResponseProxy.headers(response), body, expiresAt(), staleUntil());
+    if (response.getStatus() == Status.OK.getStatusCode()) {
+      store(key, fetched, generation);
+    } else if (response.getStatusInfo().getFamily() == Status.Family.SERVER_ERROR) {
+      if (cached != null) {
+        cached.abortRevalidation();
+      }
+    } else {
+      remove(key, generation);
+    }
+    return new Fetched(fetched, null, null);
+  }
+
+  private void store(final String key, final CachedResponse response, final long generation) {
+    synchronized (responses) {
+      if (maxSize > 0 && generation == this.generation) {
+        responses.put(key, response);
+      }
+    }
+  }
+
+  private void remove(final String key, final long generation) {
+    synchronized (responses) {
+      if (generation == this.generation) {
+        responses.remove(key);
+      }
+    }
+  }
+
+  private long expiresAt() {
+    return clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(ttl);
+  }
+
+  private long staleUntil() {
+    return clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(ttl + staleWhileRevalidate);
+  }
+
+  /**
+   * A response of the service that is either buffered or streamed. A streamed response keeps the response of the service open until its
+   * body is written, or until it is discarded.
+   */
+  private static final class Fetched {
+
+    private final CachedResponse buffered;
+
+    private final Response streamed;
+
+    private final Response upstream;
+
+    Fetched(final CachedResponse buffered, final Response streamed, final Response upstream) {
+      this.buffered = buffered;
+      this.streamed = streamed;
+      this.upstream = upstream;
+    }
+
+    Response toResponse(final String ifNoneMatch) {
+      return buffered != null ? buffered.toResponse(ifNoneMatch).build() : streamed;
+    }
+
+    /**
+     * Releases the response of the service if it is streamed, e.g. because it was requested in the background and is not sent to any
+     * client. Closing the streamed response doesn't close the response of the service, as it only closes once its body is written.
+     */
+    Response discard() {
+      if (upstream != null) {
+        upstream.close();
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.cache;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Exposes the hits, misses, revalidations, collapsed requests and fallbacks of the {@link ResponseCache} as metrics.
+ */
+@ApplicationScoped
+public class ResponseCacheMetrics {
+
+  @Inject
+  private ResponseCache responseCache;
+
+  @Gauge(name = "gateway.response-cache.hits", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of responses served from the response cache, including stale responses served while revalidating")
+  public long getHits() {
+    return responseCache.getHits();
+  }
+
+  @Gauge(name = "gateway.response-cache.misses", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of responses requested from the proxied service")
+  public long getMisses() {
+    return responseCache.getMisses();
+  }
+
+  @Gauge(name = "gateway.response-cache.revalidations", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of cached responses confirmed by the proxied service as not modified")
+  public long getRevalidations() {
+    return responseCache.getRevalidations();
+  }
+
+  @Gauge(name = "gateway.response-cache.collapsed", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of requests that shared the in-flight request of an identical request instead of calling the proxied service")
+  public long getCollapsed() {
+    return responseCache.getCollapsed();
+  }
+
+  @Gauge(name = "gateway.response-cache.fallbacks", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of cached responses served regardless of their age because the proxied service was not available")
+  public long getFallbacks() {
+    return responseCache.getFallbacks();
+  }
+
+  @Gauge(name = "gateway.response-cache.hit-ratio", unit = MetricUnits.NONE, absolute = true,
+      description = "Ratio of responses served from the response cache")
+  public double getHitRatio() {
+    long hits = responseCache.getHits();
+    long total = hits + responseCache.getMisses();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  @Gauge(name = "gateway.response-cache.size", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of cached responses")
+  public int getSize() {
+    return responseCache.size();
+  }
+}
@@ -19,16 +19,19 @@ import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.Ap
 import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ApplicationErrorsDTO;
 import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ErrorDTO;
 
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.ForbiddenException;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -43,8 +46,14 @@ public class DefaultExceptionMapper implements ExceptionMapper<Throwable> {
 
   private static final Logger LOG = LoggerFactory.getLogger(DefaultExceptionMapper.class);
 
+  private static final long RETRY_AFTER = 5;
+
   @Override
   public Response toResponse(final Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      return toResponse(throwable.getCause());
+    }
+
     LOG.debug(throwable.getMessage(), throwable);
 
     if (throwable instanceof BadRequestException) {
@@ -71,6 +80,16 @@ public class DefaultExceptionMapper implements ExceptionMapper<Throwable> {
       return Response.status(Status.NOT_FOUND).build();
     }
 
+    if (throwable instanceof FaultToleranceException) {
+      ApplicationErrorDTO error = new ApplicationErrorDTO(() -> "SERVICE_UNAVAILABLE", "The service is temporarily not available");
+      LOG.warn(String.format("The service is temporarily not available (%s)", error.getUuid()), throwable);
+      return Response.status(Status.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER)
+          .type(MediaType.APPLICATION_JSON_TYPE)
+          .entity(error)
+          .build();
+    }
+
     ApplicationErrorDTO error = new ApplicationErrorDTO(() -> "UNKNOWN", "An unknown error occurred");
 
     LOG.error(String.format("An unknown error occurred (%s)", error.getUuid()), throwable);
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.hedging;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer.Selections;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.Response;
+
+/**
+ * Hedges idempotent requests to a proxied service to reduce its tail latency.
+ * <p>
+ * If a request has not been answered after a delay, the same request is sent a second time. The balancer sends it to another instance
+ * of the service, because the instance of the first request is excluded (see {@link Selections}). The first response wins, the other request is cancelled. The
+ * delay is a configurable percentile of the latencies of recent requests, so only the slowest requests are hedged. Hedged requests are
+ * limited to a configurable percentage of all requests (budget), so a slow service isn't overloaded by hedged requests.
+ * <p>
+ * Hedging is configured with the config properties <code>gateway.hedging.enabled</code>, <code>gateway.hedging.percentile</code>,
+ * <code>gateway.hedging.min-delay</code> (milliseconds) and <code>gateway.hedging.budget</code> (percent). It is disabled by default.
+ */
+@ApplicationScoped
+public class RequestHedger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RequestHedger.class);
+
+  private static final int SAMPLES = 1000;
+
+  private static final int RECALCULATION_INTERVAL = 100;
+
+  @Inject
+  @ConfigProperty(name = "gateway.hedging.enabled", defaultValue = "false")
+  private boolean enabled;
+
+  @Inject
+  @ConfigProperty(name = "gateway.hedging.percentile", defaultValue = "95")
+  private double percentile;
+
+  @Inject
+  @ConfigProperty(name = "gateway.hedging.min-delay", defaultValue = "10")
+  private long minDelay;
+
+  @Inject
+  @ConfigProperty(name = "gateway.hedging.budget", defaultValue = "10")
+  private double budget;
+
+  @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+  private ScheduledExecutorService executor;
+
+  private final long[] latencies = new long[SAMPLES];
+
+  private int recorded;
+
+  private volatile long delay;
+
+  private final LongAdder requests = new LongAdder();
+
+  private final LongAdder hedges = new LongAdder();
+
+  private final LongAdder wins = new LongAdder();
+
+  public RequestHedger() {
+  }
+
+  RequestHedger(final double percentile, final long minDelay, final double budget, final ScheduledExecutorService executor) {
+    inclusiveBetween(0.0, 100.0, percentile, "percentile must be between 0 and 100");
+    isTrue(minDelay > 0, "minDelay must be positive");
+    inclusiveBetween(0.0, 100.0, budget, "budget must be between 0 and 100");
+    this.enabled = true;
+    this.percentile = percentile;
+    this.minDelay = minDelay;
+    this.budget = budget;
+    this.executor = notNull(executor, "executor must not be null");
+  }
+
+  /**
+   * Sends the given request and hedges it if it has not been answered after the hedging delay. The request must be idempotent.
+   *
+   * @param request sends the request to the service, is called once more for the hedged request
+   */
+  public CompletionStage<Response> hedge(final Supplier<CompletionStage<Response>> request) {
+    notNull(request, "request must not be null");
+
+    if (!enabled) {
+      return request.get();
+    }
+
+    requests.increment();
+    HedgedRequest hedgedRequest = new HedgedRequest(request);
+    hedgedRequest.send(false);
+    long hedgingDelay = getDelay();
+    ScheduledFuture<?> timer = executor.schedule(() -> {
+      if (!hedgedRequest.result.isDone() && isWithinBudget()) {
+        hedges.increment();
+        LOG.debug("Hedge request that was not answered after {} ms", hedgingDelay);
+        hedgedRequest.send(true);
+      }
+    }, hedgingDelay, TimeUnit.MILLISECONDS);
+    hedgedRequest.result.whenComplete((response, e) -> timer.cancel(false));
+    return hedgedRequest.result;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the current hedging delay in milliseconds.
+   */
+  public long getDelay() {
+    return Math.max(minDelay, delay);
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getHedges() {
+    return hedges.sum();
+  }
+
+  public long getWins() {
+    return wins.sum();
+  }
+
+  private boolean isWithinBudget() {
+    return hedges.sum() + 1 <= requests.sum() * budget / 100;
+  }
+
+  /**
+   * Records the latency of an answered request and recalculates the hedging delay periodically.
+   */
+  private void record(final long latency) {
+    synchronized (latencies) {
+      latencies[recorded % SAMPLES] = latency;
+      recorded++;
+      if (recorded % RECALCULATION_INTERVAL == 0) {
+        long[] sorted = Arrays.copyOf(latencies, Math.min(recorded, SAMPLES));
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        delay = sorted[Math.max(index, 0)];
+      }
+    }
+  }
+
+  /**
+   * A request and its hedged request. The first response completes the result, the other request is cancelled. If a request fails, the
+   * other request may still succeed.
+   */
+  private final class HedgedRequest {
+
+    private final Supplier<CompletionStage<Response>> request;
+
+    private final Selections selections = new Selections();
+
+    private final CompletableFuture<Response> result = new CompletableFuture<>();
+
+    private final List<CompletableFuture<Response>> attempts = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    HedgedRequest(final Supplier<CompletionStage<Response>> request) {
+      this.request = request;
+    }
+
+    void send(final boolean hedged) {
+      pending.incrementAndGet();
+      long start = System.nanoTime();
+
+      CompletableFuture<Response> attempt;
+      try {
+        attempt = selections.send(request).toCompletableFuture();
+      } catch (RuntimeException e) {
+        attempt = new CompletableFuture<>();
+        attempt.completeExceptionally(e);
+      }
+      attempts.add(attempt);
+
+      CompletableFuture<Response> sent = attempt;
+      attempt.whenComplete((response, e) -> {
+        int remaining = pending.decrementAndGet();
+        if (e != null) {
+          if (remaining == 0) {
+            result.completeExceptionally(e);
+          }
+          return;
+        }
+
+        record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (result.complete(response)) {
+          if (hedged) {
+            wins.increment();
+          }
+          cancelOthers(sent);
+        } else {
+          response.close();
+        }
+      });
+    }
+
+    private void cancelOthers(final CompletableFuture<Response> winner) {
+      for (CompletableFuture<Response> attempt : attempts) {
+        if (attempt != winner) {
+          attempt.cancel(true);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.hedging;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Exposes the hedged requests and the requests won by them of the {@link RequestHedger} as metrics.
+ */
+@ApplicationScoped
+public class RequestHedgerMetrics {
+
+  @Inject
+  private RequestHedger requestHedger;
+
+  @Gauge(name = "gateway.hedging.requests", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of requests that could be hedged")
+  public long getRequests() {
+    return requestHedger.getRequests();
+  }
+
+  @Gauge(name = "gateway.hedging.hedges", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of hedged requests sent because the first request was not answered in time")
+  public long getHedges() {
+    return requestHedger.getHedges();
+  }
+
+  @Gauge(name = "gateway.hedging.wins", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of hedged requests that were answered before the first request")
+  public long getWins() {
+    return requestHedger.getWins();
+  }
+
+  @Gauge(name = "gateway.hedging.hedge-rate", unit = MetricUnits.NONE, absolute = true,
+      description = "Ratio of requests that were hedged")
+  public double getHedgeRate() {
+    long requests = requestHedger.getRequests();
+    return requests == 0 ? 0 : (double) requestHedger.getHedges() / requests;
+  }
+
+  @Gauge(name = "gateway.hedging.win-rate", unit = MetricUnits.NONE, absolute = true,
+      description = "Ratio of hedged requests that were answered before the first request")
+  public double getWinRate() {
+    long hedges = requestHedger.getHedges();
+    return hedges == 0 ? 0 : (double) requestHedger.getWins() / hedges;
+  }
+
+  @Gauge(name = "gateway.hedging.delay", unit = MetricUnits.MILLISECONDS, absolute = true,
+      description = "Time after which a request that is not answered is hedged")
+  public long getDelay() {
+    return requestHedger.getDelay();
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ApplicationErrorDTO;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.metrics.Gauge;
+import org.eclipse.microprofile.metrics.Metadata;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.eclipse.microprofile.metrics.MetricType;
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.Tag;
+import org.eclipse.microprofile.metrics.annotation.RegistryType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Admits requests per route up to an adaptive concurrency limit (see {@link ConcurrencyLimiter}). Requests beyond the limit are rejected
+ * immediately with <code>503 Service Unavailable</code> and a <code>Retry-After</code> header, so an overloaded gateway keeps a low
+ * latency for the requests it admits instead of a high latency for all requests.
+ * <p>
+ * The limit adapts to the round trip time of the requests to the proxied service only (see {@link RoundTrip}), not to the time until an
+ * admitted request is answered, so cache hits and fallbacks don't hide an overloaded service.
+ * <p>
+ * The limits are configured with the config properties <code>gateway.admission.initial-limit</code>,
+ * <code>gateway.admission.min-limit</code>, <code>gateway.admission.max-limit</code>, <code>gateway.admission.rtt-tolerance</code> and
+ * <code>gateway.admission.retry-after</code> (seconds). The maximum limit of a route can be overridden with
+ * <code>gateway.admission.&lt;route&gt;.max-limit</code>. The limit, the in-flight requests and the rejections of each route are exported
+ * as metrics.
+ */
+@ApplicationScoped
+public class AdmissionControl {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AdmissionControl.class);
+
+  @Inject
+  @ConfigProperty(name = "gateway.admission.initial-limit", defaultValue = "20")
+  private int initialLimit;
+
+  @Inject
+  @ConfigProperty(name = "gateway.admission.min-limit", defaultValue = "5")
+  private int minLimit;
+
+  @Inject
+  @ConfigProperty(name = "gateway.admission.max-limit", defaultValue = "200")
+  private int maxLimit;
+
+  @Inject
+  @ConfigProperty(name = "gateway.admission.rtt-tolerance", defaultValue = "1.5")
+  private double rttTolerance;
+
+  @Inject
+  @ConfigProperty(name = "gateway.admission.retry-after", defaultValue = "1")
+  private long retryAfter;
+
+  @Inject
+  private Config config;
+
+  @Inject
+  @RegistryType(type = MetricRegistry.Type.APPLICATION)
+  private MetricRegistry registry;
+
+  private final LongSupplier clock;
+
+  private final ConcurrentMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+  public AdmissionControl() {
+    this.clock = System::nanoTime;
+  }
+
+  AdmissionControl(final int initialLimit, final int minLimit, final int maxLimit, final double rttTolerance, final long retryAfter,
+                   final LongSupplier clock) {
+    this.initialLimit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.rttTolerance = rttTolerance;
+    this.retryAfter = retryAfter;
+    this.clock = notNull(clock, "clock must not be null");
+  }
+
+  /**
+   * Sends the given request if the concurrency limit of the route is not reached, otherwise rejects it.
+   *
+   * @param route   the name of the route, e.g. the resource method
+   * @param request sends the request and measures the round trip time of the requests to the proxied service with the given
+   *                {@link RoundTrip}, the permit is released when the returned stage completes
+   */
+  public CompletionStage<Response> admit(final String route, final Function<RoundTrip, CompletionStage<Response>> request) {
+    notNull(route, "route must not be null");
+    notNull(request, "request must not be null");
+
+    ConcurrencyLimiter limiter = limiters.computeIfAbsent(route, this::createLimiter);
+    if (!limiter.tryAcquire()) {
+      LOG.debug("Rejected request of route {}, limit of {} concurrent requests is reached", route, limiter.getLimit());
+      return CompletableFuture.completedFuture(reject());
+    }
+
+    RoundTrip roundTrip = new RoundTrip(clock);
+    CompletionStage<Response> response;
+    try {
+      response = request.apply(roundTrip);
+    } catch (RuntimeException e) {
+      limiter.drop();
+      throw e;
+    }
+    return response.whenComplete((r, e) -> release(limiter, roundTrip, e != null || isServerError(r)));
+  }
+
+  public int getLimit(final String route) {
+    ConcurrencyLimiter limiter = limiters.get(route);
+    return limiter == null ? initialLimit : limiter.getLimit();
+  }
+
+  public int getInFlight(final String route) {
+    ConcurrencyLimiter limiter = limiters.get(route);
+    return limiter == null ? 0 : limiter.getInFlight();
+  }
+
+  public long getRejections(final String route) {
+    ConcurrencyLimiter limiter = limiters.get(route);
+    return limiter == null ? 0 : limiter.getRejections();
+  }
+
+  /**
+   * Adapts the limit to the round trip time of the request to the service. A request that didn't reach the service only shrinks the
+   * limit if it failed.
+   */
+  private static void release(final ConcurrencyLimiter limiter, final RoundTrip roundTrip, final boolean failed) {
+    if (roundTrip.isMeasured()) {
+      limiter.release(roundTrip.getRtt(), failed || roundTrip.isDropped());
+    } else if (failed) {
+      limiter.drop();
+    } else {
+      limiter.release();
+    }
+  }
+
+  private ConcurrencyLimiter createLimiter(final String route) {
+    int routeMaxLimit = config == null ? maxLimit : config.getOptionalValue("gateway.admission." + route + ".max-limit", Integer.class)
+        .orElse(maxLimit);
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(Math.min(initialLimit, routeMaxLimit), Math.min(minLimit, routeMaxLimit),
+                                                        routeMaxLimit, rttTolerance);
+    if (registry != null) {
+      Tag tag = new Tag("route", route);
+      registry.register(gauge("gateway.admission.limit", "Current concurrency limit"), (Gauge<Integer>) limiter::getLimit, tag);
+      registry.register(gauge("gateway.admission.in-flight", "Number of admitted requests in flight"),
+                        (Gauge<Integer>) limiter::getInFlight, tag);
+      registry.register(gauge("gateway.admission.rejections", "Number of requests rejected because the concurrency limit was reached"),
+                        (Gauge<Long>) limiter::getRejections, tag);
+    }
+    return limiter;
+  }
+
+  private Response reject() {
+    return Response.status(Status.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, retryAfter)
+        .type(MediaType.APPLICATION_JSON_TYPE)
+        .entity(new ApplicationErrorDTO(() -> "OVERLOADED", "Too many concurrent requests, please retry later"))
+        .build();
+  }
+
+  private static Metadata gauge(final String name, final String description) {
+    return Metadata.builder()
+        .withName(name)
+        .withType(MetricType.GAUGE)
+        .withUnit(MetricUnits.NONE)
+        .withDescription(description)
+        .build();
+  }
+
+  private static boolean isServerError(final Response response) {
+    return response != null && Status.Family.familyOf(response.getStatus()) == Status.Family.SERVER_ERROR;
+  }
+}
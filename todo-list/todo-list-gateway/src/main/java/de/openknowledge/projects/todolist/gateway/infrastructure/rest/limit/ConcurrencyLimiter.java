@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrent requests with a limit that adapts to the measured round trip time (gradient algorithm).
+ * <p>
+ * The limit grows while the round trip time of a request is close to the long-term average round trip time, and shrinks when requests
+ * start to queue up, i.e. the round trip time grows beyond the tolerated ratio, or when requests fail.
+ */
+final class ConcurrencyLimiter {
+
+  private static final double SMOOTHING = 0.2;
+
+  private static final int LONG_WINDOW = 600;
+
+  private static final double BACKOFF = 0.9;
+
+  private final int minLimit;
+
+  private final int maxLimit;
+
+  private final double rttTolerance;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final LongAdder rejections = new LongAdder();
+
+  private double limit;
+
+  private double longRtt;
+
+  private volatile int currentLimit;
+
+  ConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit, final double rttTolerance) {
+    isTrue(minLimit > 0, "minLimit must be positive");
+    isTrue(maxLimit >= minLimit, "maxLimit must not be less than minLimit");
+    isTrue(initialLimit >= minLimit && initialLimit <= maxLimit, "initialLimit must be between minLimit and maxLimit");
+    isTrue(rttTolerance >= 1, "rttTolerance must be at least 1");
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.rttTolerance = rttTolerance;
+    this.limit = initialLimit;
+    this.currentLimit = initialLimit;
+  }
+
+  /**
+   * Acquires a permit for a request, unless the limit is reached.
+   */
+  boolean tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= currentLimit) {
+        rejections.increment();
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Releases the permit of a completed request and adapts the limit.
+   *
+   * @param rtt     the round trip time of the request in nanoseconds
+   * @param dropped whether the request failed or timed out
+   */
+  void release(final long rtt, final boolean dropped) {
+    int concurrency = inFlight.getAndDecrement();
+    update(Math.max(rtt, 1), dropped, concurrency);
+  }
+
+  /**
+   * Releases the permit of a failed request and shrinks the limit.
+   */
+  void drop() {
+    int concurrency = inFlight.getAndDecrement();
+    update(1, true, concurrency);
+  }
+
+  /**
+   * Releases the permit of a request without adapting the limit, e.g. because it didn't reach the service.
+   */
+  void release() {
+    inFlight.decrementAndGet();
+  }
+
+  int getLimit() {
+    return currentLimit;
+  }
+
+  int getInFlight() {
+    return inFlight.get();
+  }
+
+  long getRejections() {
+    return rejections.sum();
+  }
+
+  private synchronized void update(final long rtt, final boolean dropped, final int concurrency) {
+    if (dropped) {
+      setLimit(limit * BACKOFF);
+      return;
+    }
+
+    longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+    if (longRtt / rtt > 2) {
+      // the round trip time has recovered, so the long-term average must catch up
+      longRtt *= 0.95;
+    }
+    if (concurrency < limit / 2) {
+      // the limit is not exhausted, so the round trip time doesn't say anything about a higher limit
+      return;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / rtt));
+    double newLimit = limit * gradient + Math.sqrt(limit);
+    setLimit(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+  }
+
+  private void setLimit(final double limit) {
+    this.limit = Math.max(minLimit, Math.min(maxLimit, limit));
+    currentLimit = (int) this.limit;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ApplicationErrorDTO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Limits the rate of requests per client and resource method (see {@link RateLimiter}). A client is identified by its API key
+ * (<code>X-API-Key</code> header) if the key is configured, otherwise by its remote address.
+ * <p>
+ * Requests beyond the rate are rejected with <code>429 Too Many Requests</code> and a <code>Retry-After</code> header. All responses carry
+ * the headers <code>RateLimit-Limit</code>, <code>RateLimit-Remaining</code> and <code>RateLimit-Reset</code> (seconds until the quota is
+ * fully available again).
+ */
+@Provider
+public class RateLimitFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RateLimitFilter.class);
+
+  public static final String API_KEY = "X-API-Key";
+
+  public static final String RATE_LIMIT_LIMIT = "RateLimit-Limit";
+
+  public static final String RATE_LIMIT_REMAINING = "RateLimit-Remaining";
+
+  public static final String RATE_LIMIT_RESET = "RateLimit-Reset";
+
+  private static final String BUCKETS_PROPERTY = RateLimitFilter.class.getName() + ".buckets";
+
+  private static final String REMAINING_PROPERTY = RateLimitFilter.class.getName() + ".remaining";
+
+  @Context
+  private ResourceInfo resourceInfo;
+
+  @Context
+  private HttpServletRequest servletRequest;
+
+  @Inject
+  private RateLimiter rateLimiter;
+
+  @Override
+  public void filter(final ContainerRequestContext requestContext) {
+    if (!rateLimiter.isEnabled() || resourceInfo.getResourceMethod() == null) {
+      return;
+    }
+
+    String apiKey = requestContext.getHeaderString(API_KEY);
+    String client = rateLimiter.isApiKey(apiKey) ? apiKey : servletRequest.getRemoteAddr();
+
+    TokenBuckets buckets = rateLimiter.getBuckets(resourceInfo.getResourceMethod().getName());
+    long remaining = buckets.tryAcquire(client);
+    if (remaining < 0) {
+      LOG.debug("Rejected request of client {}, rate limit of {} is reached", client, resourceInfo.getResourceMethod().getName());
+      long retryAfter = TokenBuckets.toSeconds(-remaining);
+      requestContext.abortWith(Response.status(Response.Status.TOO_MANY_REQUESTS)
+                                   .header(HttpHeaders.RETRY_AFTER, retryAfter)
+                                   .header(RATE_LIMIT_LIMIT, buckets.getLimit())
+                                   .header(RATE_LIMIT_REMAINING, 0)
+                                   .header(RATE_LIMIT_RESET, retryAfter)
+                                   .type(MediaType.APPLICATION_JSON_TYPE)
+                                   .entity(new ApplicationErrorDTO(() -> "RATE_LIMITED", "Too many requests, please retry later"))
+                                   .build());
+      return;
+    }
+
+    requestContext.setProperty(BUCKETS_PROPERTY, buckets);
+    requestContext.setProperty(REMAINING_PROPERTY, remaining);
+  }
+
+  @Override
+  public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
+    TokenBuckets buckets = (TokenBuckets) requestContext.getProperty(BUCKETS_PROPERTY);
+    if (buckets == null) {
+      return;
+    }
+
+    long remaining = (Long) requestContext.getProperty(REMAINING_PROPERTY);
+    MultivaluedMap<String, Object> headers = responseContext.getHeaders();
+    headers.putSingle(RATE_LIMIT_LIMIT, buckets.getLimit());
+    headers.putSingle(RATE_LIMIT_REMAINING, remaining);
+    headers.putSingle(RATE_LIMIT_RESET, buckets.getReset(remaining));
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Limits the rate of requests per client and route with token buckets (see {@link TokenBucket}).
+ * <p>
+ * The rate limiter is configured with the config properties <code>gateway.rate-limit.enabled</code>,
+ * <code>gateway.rate-limit.limit</code> (requests per period), <code>gateway.rate-limit.period</code> (seconds),
+ * <code>gateway.rate-limit.max-clients</code> and <code>gateway.rate-limit.idle-timeout</code> (milliseconds). The rate of a route can be
+ * overridden with <code>gateway.rate-limit.&lt;route&gt;.limit</code> and <code>gateway.rate-limit.&lt;route&gt;.period</code>. The API keys
+ * that identify clients are given as comma separated list by <code>gateway.rate-limit.api-keys</code>. It is
+ * disabled by default, because clients without API key are identified by their remote address (see {@link RateLimitFilter}), which is the
+ * same for all clients behind a proxy or load balancer.
+ */
+@ApplicationScoped
+public class RateLimiter {
+
+  @Inject
+  @ConfigProperty(name = "gateway.rate-limit.enabled", defaultValue = "false")
+  private boolean enabled;
+
+  @Inject
+  @ConfigProperty(name = "gateway.rate-limit.limit", defaultValue = "100")
+  private int limit;
+
+  @Inject
+  @ConfigProperty(name = "gateway.rate-limit.period", defaultValue = "1")
+  private long period;
+
+  @Inject
+  @ConfigProperty(name = "gateway.rate-limit.max-clients", defaultValue = "10000")
+  private int maxClients;
+
+  @Inject
+  @ConfigProperty(name = "gateway.rate-limit.idle-timeout", defaultValue = "60000")
+  private long idleTimeout;
+
+  @Inject
+  @ConfigProperty(name = "gateway.rate-limit.api-keys")
+  private Optional<String> apiKeyList;
+
+  @Inject
+  private Config config;
+
+  private Set<String> apiKeys = Collections.emptySet();
+
+  private final LongSupplier clock;
+
+  private final ConcurrentMap<String, TokenBuckets> routes = new ConcurrentHashMap<>();
+
+  public RateLimiter() {
+    this.clock = System::nanoTime;
+  }
+
+  RateLimiter(final int limit, final long period, final int maxClients, final long idleTimeout, final LongSupplier clock) {
+    this(limit, period, maxClients, idleTimeout, clock, Collections.emptySet());
+  }
+
+  RateLimiter(final int limit, final long period, final int maxClients, final long idleTimeout, final LongSupplier clock,
+              final Set<String> apiKeys) {
+    this.enabled = true;
+    this.limit = limit;
+    this.period = period;
+    this.maxClients = maxClients;
+    this.idleTimeout = idleTimeout;
+    this.clock = notNull(clock, "clock must not be null");
+    this.apiKeys = notNull(apiKeys, "apiKeys must not be null");
+  }
+
+  @PostConstruct
+  void init() {
+    apiKeyList.ifPresent(list -> {
+      Set<String> keys = new HashSet<>(Arrays.asList(list.split(",")));
+      keys.remove("");
+      apiKeys = Collections.unmodifiableSet(keys);
+    });
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns whether the given API key is one of the configured keys. Other keys must not identify a client, otherwise a client could get
+   * a fresh quota with every request by sending a new key.
+   */
+  boolean isApiKey(final String apiKey) {
+    return apiKey != null && apiKeys.contains(apiKey);
+  }
+
+  /**
+   * Returns the token buckets of the given route.
+   *
+   * @param route the name of the route, e.g. the resource method
+   */
+  TokenBuckets getBuckets(final String route) {
+    TokenBuckets buckets = routes.get(route);
+    return buckets != null ? buckets : routes.computeIfAbsent(route, this::createBuckets);
+  }
+
+  private TokenBuckets createBuckets(final String route) {
+    int routeLimit = limit;
+    long routePeriod = period;
+    if (config != null) {
+      routeLimit = config.getOptionalValue("gateway.rate-limit." + route + ".limit", Integer.class).orElse(limit);
+      routePeriod = config.getOptionalValue("gateway.rate-limit." + route + ".period", Long.class).orElse(period);
+    }
+    return new TokenBuckets(routeLimit, routePeriod, maxClients, idleTimeout, clock);
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * The round trip time of an admitted request to the proxied service, which the {@link AdmissionControl} adapts the limit by.
+ * <p>
+ * Only requests that are sent within {@link #measure(Supplier)} are measured, so responses that never reached the service, e.g. cached
+ * responses or fallbacks, and the time a request waits for a bulkhead don't distort the limit. If a request is sent several times, e.g.
+ * when it is retried, the request that completed last is measured.
+ */
+public final class RoundTrip {
+
+  private final LongSupplier clock;
+
+  private volatile long rtt = -1;
+
+  private volatile boolean dropped;
+
+  public RoundTrip() {
+    this(System::nanoTime);
+  }
+
+  RoundTrip(final LongSupplier clock) {
+    this.clock = notNull(clock, "clock must not be null");
+  }
+
+  /**
+   * Sends the given request to the service and measures its round trip time.
+   *
+   * @param request sends the request
+   */
+  public CompletionStage<Response> measure(final Supplier<CompletionStage<Response>> request) {
+    notNull(request, "request must not be null");
+
+    long start = clock.getAsLong();
+    return request.get().whenComplete((response, e) -> {
+      dropped = e != null || response != null && Status.Family.familyOf(response.getStatus()) == Status.Family.SERVER_ERROR;
+      rtt = clock.getAsLong() - start;
+    });
+  }
+
+  boolean isMeasured() {
+    return rtt >= 0;
+  }
+
+  /**
+   * Returns the round trip time in nanoseconds.
+   */
+  long getRtt() {
+    return rtt;
+  }
+
+  boolean isDropped() {
+    return dropped;
+  }
+}
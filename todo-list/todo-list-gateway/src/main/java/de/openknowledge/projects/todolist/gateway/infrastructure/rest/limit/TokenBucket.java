@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, implemented as generic cell rate algorithm: instead of the number of tokens, the time at which the bucket will
+ * be full again (theoretical arrival time) is stored, so taking a token is a single compare-and-set without allocation.
+ */
+final class TokenBucket {
+
+  private final AtomicLong theoreticalArrivalTime;
+
+  private volatile long lastAccess;
+
+  TokenBucket(final long now) {
+    this.theoreticalArrivalTime = new AtomicLong(now);
+    this.lastAccess = now;
+  }
+
+  /**
+   * Takes a token if one is available.
+   *
+   * @param now      the current time in nanoseconds
+   * @param interval the time in nanoseconds in which a token is refilled
+   * @param capacity the maximum number of tokens
+   * @return the number of remaining tokens if a token was taken, otherwise the negated time in nanoseconds until a token is available
+   */
+  long tryAcquire(final long now, final long interval, final long capacity) {
+    lastAccess = now;
+    long burst = interval * capacity;
+    while (true) {
+      long current = theoreticalArrivalTime.get();
+      long next = Math.max(current, now) + interval;
+      long wait = next - now - burst;
+      if (wait > 0) {
+        return -wait;
+      }
+      if (theoreticalArrivalTime.compareAndSet(current, next)) {
+        return (burst - (next - now)) / interval;
+      }
+    }
+  }
+
+  long getLastAccess() {
+    return lastAccess;
+  }
+
+  boolean isIdle(final long now, final long idleTimeout) {
+    return now - lastAccess > idleTimeout;
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * The token buckets of all clients of a route, with the rate of the route.
+ * <p>
+ * The buckets are held in concurrent maps (stripes), so looking up the bucket of a client doesn't lock. The buckets are only evicted when
+ * a bucket is added: once per idle timeout, a stripe evicts the buckets that have been idle for the idle timeout (a bucket that is idle
+ * long enough is full again, so evicting it doesn't change the rate of its client). If a stripe is full nevertheless, it evicts the least
+ * recently used of a few sampled buckets, so adding a bucket costs the same no matter how many buckets are held.
+ */
+final class TokenBuckets {
+
+  private static final int STRIPES = 16;
+
+  private static final int EVICTION_SAMPLES = 8;
+
+  private final int limit;
+
+  private final long interval;
+
+  private final long idleTimeout;
+
+  private final int maxStripeSize;
+
+  private final LongSupplier clock;
+
+  private final Stripe[] stripes;
+
+  /**
+   * @param limit       the number of requests per period
+   * @param period      the period in seconds
+   * @param maxClients  the maximum number of clients whose buckets are held
+   * @param idleTimeout the time in milliseconds after which the bucket of an idle client is evicted
+   */
+  TokenBuckets(final int limit, final long period, final int maxClients, final long idleTimeout, final LongSupplier clock) {
+    isTrue(limit > 0, "limit must be positive");
+    isTrue(period > 0, "period must be positive");
+    isTrue(maxClients > 0, "maxClients must be positive");
+    isTrue(idleTimeout > 0, "idleTimeout must be positive");
+    this.limit = limit;
+    this.interval = TimeUnit.SECONDS.toNanos(period) / limit;
+    this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+    this.maxStripeSize = Math.max(1, maxClients / STRIPES);
+    this.clock = notNull(clock, "clock must not be null");
+
+    long now = clock.getAsLong();
+    this.stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe(now + this.idleTimeout);
+    }
+  }
+
+  /**
+   * Takes a token from the bucket of the given client. Neither locks nor allocates, unless the client has no bucket yet.
+   *
+   * @return the number of remaining tokens if a token was taken, otherwise the negated time in nanoseconds until a token is available
+   */
+  long tryAcquire(final String client) {
+    long now = clock.getAsLong();
+    return stripes[(client.hashCode() & Integer.MAX_VALUE) % STRIPES].getBucket(client, now).tryAcquire(now, interval, limit);
+  }
+
+  int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the time in seconds until the bucket is full again, given the number of remaining tokens.
+   */
+  long getReset(final long remaining) {
+    return toSeconds((limit - remaining) * interval);
+  }
+
+  int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.buckets.size();
+    }
+    return size;
+  }
+
+  static long toSeconds(final long nanos) {
+    return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+  }
+
+  /**
+   * The buckets of the clients whose names fall into the same stripe.
+   */
+  private final class Stripe {
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final AtomicLong nextSweep;
+
+    Stripe(final long nextSweep) {
+      this.nextSweep = new AtomicLong(nextSweep);
+    }
+
+    TokenBucket getBucket(final String client, final long now) {
+      TokenBucket bucket = buckets.get(client);
+      return bucket != null ? bucket : addBucket(client, now);
+    }
+
+    private TokenBucket addBucket(final String client, final long now) {
+      TokenBucket bucket = new TokenBucket(now);
+      TokenBucket existing = buckets.putIfAbsent(client, bucket);
+      if (existing != null) {
+        return existing;
+      }
+
+      long sweep = nextSweep.get();
+      if (now - sweep >= 0 && nextSweep.compareAndSet(sweep, now + idleTimeout)) {
+        buckets.values().removeIf(other -> other.isIdle(now, idleTimeout));
+      }
+      while (buckets.size() > maxStripeSize) {
+        if (!evictLeastRecentlyUsed(client)) {
+          break;
+        }
+      }
+      return bucket;
+    }
+
+    /**
+     * Evicts the least recently used of the first {@link #EVICTION_SAMPLES} buckets, except the bucket of the given client.
+     *
+     * @return <code>false</code> if no bucket could be evicted
+     */
+    private boolean evictLeastRecentlyUsed(final String except) {
+      Map.Entry<String, TokenBucket> eldest = null;
+      int samples = 0;
+      Iterator<Map.Entry<String, TokenBucket>> entries = buckets.entrySet().iterator();
+      while (entries.hasNext() && samples < EVICTION_SAMPLES) {
+        Map.Entry<String, TokenBucket> entry = entries.next();
+        if (entry.getKey().equals(except)) {
+          continue;
+        }
+        samples++;
+        if (eldest == null || entry.getValue().getLastAccess() - eldest.getValue().getLastAccess() < 0) {
+          eldest = entry;
+        }
+      }
+      return eldest != null && buckets.remove(eldest.getKey(), eldest.getValue());
+    }
+  }
+}
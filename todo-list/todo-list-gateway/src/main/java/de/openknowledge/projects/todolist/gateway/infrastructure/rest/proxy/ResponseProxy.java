@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Forwards responses of a proxied service to the client.
+ * <p>
+ * Bodies are passed through as streams with a bounded buffer, so they are neither decoded nor held in memory as a whole. Headers are
+ * forwarded unchanged, except for hop-by-hop headers and the content length.
+ */
+public final class ResponseProxy {
+
+  private static final int STREAM_BUFFER_SIZE = 8192;
+
+  private static final Set<String> NOT_FORWARDED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+  static {
+    NOT_FORWARDED_HEADERS.addAll(Arrays.asList(HttpHeaders.CONTENT_LENGTH, "Connection", "Keep-Alive", "Transfer-Encoding", "Upgrade"));
+  }
+
+  private ResponseProxy() {
+  }
+
+  /**
+   * Copies status and headers of the given response and streams its body. The response is closed when its body has been written, or
+   * immediately if it has none.
+   *
+   * @param flushEachChunk whether to flush every chunk to the client as soon as it is read, e.g. for event streams
+   */
+  public static ResponseBuilder forward(final Response response, final boolean flushEachChunk) {
+    if (!response.hasEntity()) {
+      response.close();
+      return status(response);
+    }
+    return forward(response, response.readEntity(InputStream.class), flushEachChunk);
+  }
+
+  /**
+   * Copies status and headers of the given response and streams the given body, e.g. the partly read body of the response. The response is
+   * closed when the body has been written.
+   */
+  public static ResponseBuilder forward(final Response response, final InputStream body, final boolean flushEachChunk) {
+    StreamingOutput output = outputStream -> {
+      try (InputStream inputStream = body) {
+        copy(inputStream, outputStream, flushEachChunk);
+      } finally {
+        response.close();
+      }
+    };
+    return status(response).entity(output);
+  }
+
+  /**
+   * Returns the headers of the given response that are forwarded to the client.
+   */
+  public static Map<String, List<Object>> headers(final Response response) {
+    Map<String, List<Object>> headers = new LinkedHashMap<>();
+    for (Map.Entry<String, List<Object>> header : response.getHeaders().entrySet()) {
+      if (!NOT_FORWARDED_HEADERS.contains(header.getKey())) {
+        headers.put(header.getKey(), new ArrayList<>(header.getValue()));
+      }
+    }
+    return headers;
+  }
+
+  /**
+   * Reads the given stream up to the given number of bytes.
+   */
+  public static byte[] read(final InputStream inputStream, final int maxLength) throws IOException {
+    byte[] buffer = new byte[Math.min(maxLength, STREAM_BUFFER_SIZE)];
+    int length = 0;
+    int read;
+    while (length < maxLength && (read = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+      length += read;
+      if (length == buffer.length && length < maxLength) {
+        buffer = Arrays.copyOf(buffer, Math.min(maxLength, buffer.length * 2));
+      }
+    }
+    return Arrays.copyOf(buffer, length);
+  }
+
+  private static ResponseBuilder status(final Response response) {
+    ResponseBuilder builder = Response.status(response.getStatus());
+    headers(response).forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+    return builder;
+  }
+
+  private static void copy(final InputStream inputStream, final OutputStream outputStream, final boolean flushEachChunk) throws IOException {
+    byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      outputStream.write(buffer, 0, read);
+      if (flushEachChunk) {
+        outputStream.flush();
+      }
+    }
+  }
+}
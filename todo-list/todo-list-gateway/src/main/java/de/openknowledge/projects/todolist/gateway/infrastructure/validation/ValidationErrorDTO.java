@@ -50,9 +50,9 @@ public class ValidationErrorDTO extends ErrorDTO {
       Set<Class<? extends Payload>> payload = constraintViolation.getConstraintDescriptor().getPayload();
       if (!payload.isEmpty()) {
         Class<? extends Payload> clazz = payload.iterator().next();
-        errorPayload = (ValidationErrorPayload) clazz.newInstance();
+        errorPayload = ValidationErrorPayload.of(clazz);
       }
-    } catch (InstantiationException | IllegalAccessException e) {
+    } catch (IllegalArgumentException | IllegalStateException e) {
       LOG.error(e.getMessage(), e);
     }
 
@@ -15,10 +15,12 @@
  */
 package de.openknowledge.projects.todolist.gateway.infrastructure.validation;
 
+import static org.apache.commons.lang3.Validate.isTrue;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ErrorCode;
 
+import java.lang.reflect.Constructor;
 import java.util.function.Predicate;
 
 import javax.validation.Payload;
@@ -31,12 +33,37 @@ public abstract class ValidationErrorPayload implements ErrorCode, Payload {
   public static final Predicate<Class<? extends Payload>> PREDICATE =
       clazz -> clazz.getSuperclass().isAssignableFrom(ValidationErrorPayload.class);
 
+  private static final ClassValue<ValidationErrorPayload> INSTANCES = new ClassValue<ValidationErrorPayload>() {
+
+    @Override
+    protected ValidationErrorPayload computeValue(final Class<?> payloadClass) {
+      isTrue(ValidationErrorPayload.class.isAssignableFrom(payloadClass), "%s is no ValidationErrorPayload", payloadClass.getName());
+      try {
+        Constructor<?> constructor = payloadClass.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        return (ValidationErrorPayload) constructor.newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Cannot instantiate " + payloadClass.getName(), e);
+      }
+    }
+  };
+
   private String errorCode;
 
   protected ValidationErrorPayload(final String errorCode) {
     this.errorCode = notNull(errorCode, "errorCode must not be null");
   }
 
+  /**
+   * Returns the shared instance of the given payload class.
+   *
+   * @throws IllegalArgumentException if the class is no {@link ValidationErrorPayload}
+   * @throws IllegalStateException    if the class cannot be instantiated
+   */
+  public static ValidationErrorPayload of(final Class<? extends Payload> payloadClass) {
+    return INSTANCES.get(notNull(payloadClass, "payloadClass must not be null"));
+  }
+
   public String getErrorCode() {
     return errorCode;
   }
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.validation.ValidationErrorPayload;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.metadata.ConstraintDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+
+/**
+ * Test class for the constraints of {@link NewTodo} and {@link ModifiedTodo}.
+ * <p>
+ * The constraints are copies of the constraints of the todo-list-service. They are compared with the description of the constraints of
+ * the todo-list-service (see TodoConstraintsTest of the todo-list-service), so a constraint that is changed on one side only fails the
+ * build.
+ */
+public class TodoConstraintsTest {
+
+  private static final Path CONSTRAINTS = Paths.get("..", "todo-list-service", "src", "test", "resources", "constraints",
+                                                    "Todo-constraints.txt");
+
+  private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+  @Test
+  public void constraintsShouldMatchConstraintsOfService() throws IOException {
+    assumeTrue(Files.exists(CONSTRAINTS), "the todo-list-service is not checked out next to the gateway");
+    List<String> expected = Files.readAllLines(CONSTRAINTS, StandardCharsets.UTF_8);
+
+    List<String> constraints = new ArrayList<>();
+    constraints.addAll(describe(NewTodo.class));
+    constraints.addAll(describe(ModifiedTodo.class));
+
+    assertThat(constraints).containsExactlyElementsOf(expected);
+  }
+
+  /**
+   * Describes each constraint of the given class by a line with the class, property, constraint, attributes, groups and error code, e.g.
+   * <code>NewTodo.title NotNull {} [CreateTodoValidationGroup, UpdateTodoValidationGroup] TITLE_IS_NULL</code>.
+   */
+  private List<String> describe(final Class<?> type) {
+    List<String> constraints = new ArrayList<>();
+    for (PropertyDescriptor property : validator.getConstraintsForClass(type).getConstrainedProperties()) {
+      for (ConstraintDescriptor<?> constraint : property.getConstraintDescriptors()) {
+        Map<String, Object> attributes = new TreeMap<>(constraint.getAttributes());
+        attributes.remove("message");
+        attributes.remove("groups");
+        attributes.remove("payload");
+        String groups = constraint.getGroups().stream().map(Class::getSimpleName).sorted().collect(Collectors.toList()).toString();
+        String code = constraint.getPayload().stream()
+            .map(payload -> ValidationErrorPayload.of(payload).getErrorCode())
+            .collect(Collectors.joining(","));
+        constraints.add(String.format("%s.%s %s %s %s %s", type.getSimpleName(), property.getPropertyName(),
+                                      constraint.getAnnotation().annotationType().getSimpleName(), attributes, groups, code));
+      }
+    }
+    return constraints.stream().sorted().collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.cache.ResponseCache;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit.RoundTrip;
+
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Benchmark of the number of requests the gateway has in flight with a slow todo-list-service, run with
+ * <code>mvn -P benchmark test -DskipTests -Dbenchmark=TodoGatewayApplicationServiceBenchmark</code>.
+ * <p>
+ * A batch of concurrent requests is sent through the service on a fixed pool of worker threads, like the worker threads of Liberty. The
+ * todo-list-service is a stub that responds after a delay. Blocking a worker until the response is received (the synchronous proxying)
+ * is compared with releasing it while the request is in flight. The maximum number of requests that were in flight at the same time is
+ * printed after each benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoGatewayApplicationServiceBenchmark {
+
+  @Param("50")
+  private long delay;
+
+  @Param("20")
+  private int workers;
+
+  @Param("200")
+  private int requests;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  private ScheduledExecutorService upstream;
+
+  private ExecutorService workerPool;
+
+  private TodoGatewayApplicationService service;
+
+  @Setup
+  public void setUp() throws IllegalAccessException {
+    upstream = Executors.newSingleThreadScheduledExecutor();
+    workerPool = Executors.newFixedThreadPool(workers);
+
+    TodoListServiceClient client = (TodoListServiceClient) Proxy.newProxyInstance(TodoListServiceClient.class.getClassLoader(),
+                                                                                  new Class<?>[] {TodoListServiceClient.class},
+                                                                                  (proxy, method, args) -> respondDelayed());
+    service = new TodoGatewayApplicationService();
+    FieldUtils.writeField(service, "client", client, true);
+    FieldUtils.writeField(service, "cache", new ResponseCache(), true);
+  }
+
+  @TearDown
+  public void tearDown() {
+    workerPool.shutdownNow();
+    upstream.shutdownNow();
+    System.out.printf("%n%d requests in flight at most%n", maxInFlight.get());
+  }
+
+  @TearDown(Level.Iteration)
+  public void resetInFlight() {
+    inFlight.set(0);
+  }
+
+  @Benchmark
+  public int blocking() {
+    return send(todoId -> CompletableFuture.supplyAsync(() -> deleteTodo(todoId).toCompletableFuture().join(), workerPool));
+  }
+
+  @Benchmark
+  public int nonBlocking() {
+    return send(todoId -> CompletableFuture.supplyAsync(() -> deleteTodo(todoId), workerPool).thenCompose(Function.identity()));
+  }
+
+  private int send(final Function<Long, CompletableFuture<Response>> request) {
+    List<CompletableFuture<Response>> responses = new ArrayList<>(requests);
+    for (long todoId = 0; todoId < requests; todoId++) {
+      responses.add(request.apply(todoId));
+    }
+    int status = 0;
+    for (CompletableFuture<Response> response : responses) {
+      status += response.join().getStatus();
+    }
+    return status;
+  }
+
+  private CompletionStage<Response> deleteTodo(final long todoId) {
+    return service.deleteTodo(todoId, new RoundTrip());
+  }
+
+  private CompletionStage<Response> respondDelayed() {
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    CompletableFuture<Response> response = new CompletableFuture<>();
+    upstream.schedule(() -> {
+      inFlight.decrementAndGet();
+      response.complete(Response.noContent().build());
+    }, delay, TimeUnit.MILLISECONDS);
+    return response;
+  }
+}
@@ -16,6 +16,11 @@
 package de.openknowledge.projects.todolist.gateway.application;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.cache.ResponseCache;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.hedging.RequestHedger;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit.RoundTrip;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,7 +29,26 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.ws.rs.ServerErrorException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * Test class for the service {@link TodoGatewayApplicationService}.
@@ -32,81 +56,270 @@ import javax.ws.rs.core.Response;
 @ExtendWith(MockitoExtension.class)
 public class TodoGatewayApplicationServiceTest {
 
+  private static final TodoListQuery ALL = new TodoListQuery(null, null, null, null, null);
+
   @InjectMocks
   private TodoGatewayApplicationService service;
 
   @Mock
   private TodoListServiceClient client;
 
+  @Mock
+  private ResponseCache cache;
+
+  @Mock
+  private RequestHedger hedger;
+
+  @Mock
+  private TodoMultiGet multiGet;
+
   @Mock
   private Response response;
 
   @Test
   public void createTodo() {
     Mockito.when(response.getStatus()).thenReturn(Response.Status.CREATED.getStatusCode());
+    Mockito.when(response.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+    Mockito.when(response.hasEntity()).thenReturn(true);
+    Mockito.when(response.readEntity(InputStream.class)).thenReturn(stream("{\n"
+                                                                           + "  \"id\": 1000,\n"
+                                                                           + "  \"title\": \"clean fridge\"\n"
+                                                                           + "}"));
 
-    Mockito.when(client.createTodo(Mockito.anyString())).thenReturn(response);
-    Response response = service.createTodo("{\n"
-                                           + "  \"title\": \"clean fridge\",\n"
-                                           + "  \"description\": \"It's a mess\",\n"
-                                           + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                           + "}");
+    Mockito.when(client.createTodo(Mockito.anyString(), Mockito.any(InputStream.class)))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response response = join(service.createTodo(MediaType.APPLICATION_JSON, stream("{\n"
+                                                                                   + "  \"title\": \"clean fridge\",\n"
+                                                                                   + "  \"description\": \"It's a mess\",\n"
+                                                                                   + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                                                                   + "}"), new RoundTrip()));
     assertThat(response.getStatus()).isEqualTo(Response.Status.CREATED.getStatusCode());
+    assertThat(body(response)).isEqualTo("{\n"
+                                         + "  \"id\": 1000,\n"
+                                         + "  \"title\": \"clean fridge\"\n"
+                                         + "}");
 
-    Mockito.verify(client).createTodo(Mockito.anyString());
-    Mockito.verifyNoMoreInteractions(client);
+    Mockito.verify(client).createTodo(Mockito.anyString(), Mockito.any(InputStream.class));
+    Mockito.verify(cache).invalidate();
+    Mockito.verify(this.response).close();
+    Mockito.verifyNoMoreInteractions(client, cache);
   }
 
   @Test
   public void deleteTodo() {
     Mockito.when(response.getStatus()).thenReturn(Response.Status.NO_CONTENT.getStatusCode());
+    Mockito.when(response.getHeaders()).thenReturn(new MultivaluedHashMap<>());
 
-    Mockito.when(client.deleteTodo(Mockito.anyLong())).thenReturn(response);
-    Response response = service.deleteTodo(1L);
+    Mockito.when(client.deleteTodo(Mockito.anyLong())).thenReturn(CompletableFuture.completedFuture(response));
+    Response response = join(service.deleteTodo(1L, new RoundTrip()));
     assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
+    assertThat(response.hasEntity()).isFalse();
 
     Mockito.verify(client).deleteTodo(Mockito.anyLong());
-    Mockito.verifyNoMoreInteractions(client);
+    Mockito.verify(cache).invalidate();
+    Mockito.verify(this.response).close();
+    Mockito.verifyNoMoreInteractions(client, cache);
   }
 
   @Test
   public void getTodo() {
     Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+    Mockito.when(cache.get(Mockito.eq("todos/1 application/json"), Mockito.eq("\"0\""), Mockito.any())).thenAnswer(invocation -> {
+      Function<String, CompletionStage<Response>> upstream = invocation.getArgument(2);
+      return upstream.apply("\"1\"");
+    });
+    Mockito.when(hedger.hedge(Mockito.any())).thenAnswer(invocation -> {
+      Supplier<CompletionStage<Response>> hedged = invocation.getArgument(0);
+      return hedged.get();
+    });
 
-    Mockito.when(client.getTodo(Mockito.anyLong())).thenReturn(response);
-    Response response = service.getTodo(1L);
+    Mockito.when(client.getTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.anyString()))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response response = join(service.getTodo(1L, MediaType.APPLICATION_JSON, "\"0\"", new RoundTrip()));
     assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
 
-    Mockito.verify(client).getTodo(Mockito.anyLong());
+    Mockito.verify(client).getTodo(1L, MediaType.APPLICATION_JSON, "\"1\"");
     Mockito.verifyNoMoreInteractions(client);
   }
 
+  @Test
+  public void getTodosById() {
+    Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+    Mockito.when(multiGet.getTodos(Mockito.anyList(), Mockito.anyString())).thenReturn(CompletableFuture.completedFuture(response));
+
+    Response response = join(service.getTodosById(Arrays.asList(1L, 2L), MediaType.APPLICATION_JSON, new RoundTrip()));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(service.isTodoListServiceAvailable()).isTrue();
+
+    Mockito.verify(multiGet).getTodos(Arrays.asList(1L, 2L), MediaType.APPLICATION_JSON);
+    Mockito.verifyZeroInteractions(client, cache);
+  }
+
   @Test
   public void getTodos() {
     Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+    Mockito.when(cache.get(Mockito.eq("todos */*"), Mockito.isNull(), Mockito.any())).thenAnswer(invocation -> {
+      Function<String, CompletionStage<Response>> upstream = invocation.getArgument(2);
+      return upstream.apply(null);
+    });
+    Mockito.when(hedger.hedge(Mockito.any())).thenAnswer(invocation -> {
+      Supplier<CompletionStage<Response>> hedged = invocation.getArgument(0);
+      return hedged.get();
+    });
 
-    Mockito.when(client.getTodos()).thenReturn(response);
-    Response response = service.getTodos();
+    Mockito.when(client.getTodos(null, null, null, null, null, null, null)).thenReturn(CompletableFuture.completedFuture(response));
+    Response response = join(service.getTodos(ALL, null, null, new RoundTrip()));
     assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
 
-    Mockito.verify(client).getTodos();
+    Mockito.verify(client).getTodos(null, null, null, null, null, null, null);
     Mockito.verifyNoMoreInteractions(client);
   }
 
+  @Test
+  public void getTodosShouldCachePagesPerQueryString() {
+    Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+    Mockito.when(cache.get(Mockito.eq("todos?limit=2&after=MjAxOA&done=false application/json"), Mockito.isNull(), Mockito.any()))
+        .thenAnswer(invocation -> {
+          Function<String, CompletionStage<Response>> upstream = invocation.getArgument(2);
+          return upstream.apply(null);
+        });
+    Mockito.when(hedger.hedge(Mockito.any())).thenAnswer(invocation -> {
+      Supplier<CompletionStage<Response>> hedged = invocation.getArgument(0);
+      return hedged.get();
+    });
+
+    Mockito.when(client.getTodos("2", "MjAxOA", "false", null, null, MediaType.APPLICATION_JSON, null))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response response = join(service.getTodos(new TodoListQuery("2", "MjAxOA", "false", null, null), MediaType.APPLICATION_JSON, null,
+                                              new RoundTrip()));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+
+    Mockito.verify(client).getTodos("2", "MjAxOA", "false", null, null, MediaType.APPLICATION_JSON, null);
+    Mockito.verifyNoMoreInteractions(client);
+  }
+
+  @Test
+  public void getTodosShouldNotWaitForService() {
+    CompletableFuture<Response> request = new CompletableFuture<>();
+    Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+    Mockito.when(cache.get(Mockito.anyString(), Mockito.isNull(), Mockito.any())).thenAnswer(invocation -> {
+      Function<String, CompletionStage<Response>> upstream = invocation.getArgument(2);
+      return upstream.apply(null);
+    });
+    Mockito.when(hedger.hedge(Mockito.any())).thenAnswer(invocation -> {
+      Supplier<CompletionStage<Response>> hedged = invocation.getArgument(0);
+      return hedged.get();
+    });
+
+    Mockito.when(client.getTodos(null, null, null, null, null, MediaType.APPLICATION_JSON, null)).thenReturn(request);
+    CompletableFuture<Response> response = service.getTodos(ALL, MediaType.APPLICATION_JSON, null, new RoundTrip()).toCompletableFuture();
+    assertThat(response).isNotDone();
+
+    request.complete(this.response);
+    assertThat(response.join().getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+  }
+
+  @Test
+  public void getTodosShouldFailOnServerError() {
+    Mockito.when(response.getStatus()).thenReturn(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+    Mockito.when(cache.get(Mockito.anyString(), Mockito.isNull(), Mockito.any())).thenAnswer(invocation -> {
+      Function<String, CompletionStage<Response>> upstream = invocation.getArgument(2);
+      return upstream.apply(null);
+    });
+    Mockito.when(hedger.hedge(Mockito.any())).thenAnswer(invocation -> {
+      Supplier<CompletionStage<Response>> hedged = invocation.getArgument(0);
+      return hedged.get();
+    });
+
+    Mockito.when(client.getTodos(null, null, null, null, null, MediaType.APPLICATION_JSON, null))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    assertThatThrownBy(() -> join(service.getTodos(ALL, MediaType.APPLICATION_JSON, null, new RoundTrip())))
+        .hasCauseInstanceOf(ServerErrorException.class);
+
+    Mockito.verify(response).close();
+  }
+
+  @Test
+  public void getCachedTodosShouldServeLastKnownResponse() {
+    Mockito.when(cache.getLastKnown("todos application/json")).thenReturn(Optional.of(Response.ok("[]").build()));
+
+    Response response = join(service.getCachedTodos(ALL, MediaType.APPLICATION_JSON, null, new RoundTrip()));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(response.getEntity()).isEqualTo("[]");
+    assertThat(service.isTodoListServiceAvailable()).isFalse();
+  }
+
+  @Test
+  public void getCachedTodoShouldReturn503WithoutCachedResponse() {
+    Mockito.when(cache.getLastKnown("todos/1 */*")).thenReturn(Optional.empty());
+
+    Response response = join(service.getCachedTodo(1L, null, null, new RoundTrip()));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+    assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+    assertThat(service.isTodoListServiceAvailable()).isFalse();
+  }
+
+  @Test
+  public void streamChanges() {
+    String events = "id: k7x2m1a0-1\n"
+                    + "event: created\n"
+                    + "data: {\"id\":1000}\n"
+                    + "\n";
+    MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    headers.add(HttpHeaders.CONTENT_TYPE, MediaType.SERVER_SENT_EVENTS);
+    headers.add(HttpHeaders.CONTENT_LENGTH, events.length());
+    Mockito.when(response.getHeaders()).thenReturn(headers);
+    Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+    Mockito.when(response.hasEntity()).thenReturn(true);
+    Mockito.when(response.readEntity(InputStream.class)).thenReturn(stream(events));
+
+    Mockito.when(client.streamChanges(Mockito.anyString())).thenReturn(CompletableFuture.completedFuture(response));
+    Response response = join(service.streamChanges("k7x2m1a0-0"));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(response.getHeaderString(HttpHeaders.CONTENT_TYPE)).isEqualTo(MediaType.SERVER_SENT_EVENTS);
+    assertThat(response.getHeaderString(HttpHeaders.CONTENT_LENGTH)).isNull();
+    assertThat(body(response)).isEqualTo(events);
+
+    Mockito.verify(client).streamChanges(Mockito.anyString());
+    Mockito.verify(this.response).close();
+    Mockito.verifyNoMoreInteractions(client, cache);
+  }
+
   @Test
   public void updateTodo() {
     Mockito.when(response.getStatus()).thenReturn(Response.Status.NO_CONTENT.getStatusCode());
+    Mockito.when(response.getHeaders()).thenReturn(new MultivaluedHashMap<>());
 
-    Mockito.when(client.updateTodo(Mockito.anyLong(), Mockito.anyString())).thenReturn(response);
-    Response response = service.updateTodo(1L, "{\n"
-                                               + "  \"title\": \"clean fridge\",\n"
-                                               + "  \"description\": \"It's a mess\",\n"
-                                               + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                               + "  \"done\": true\n"
-                                               + "}");
+    Mockito.when(client.updateTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.any(InputStream.class)))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response response = join(service.updateTodo(1L, MediaType.APPLICATION_JSON, stream("{\n"
+                                                                                       + "  \"title\": \"clean fridge\",\n"
+                                                                                       + "  \"description\": \"It's a mess\",\n"
+                                                                                       + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                                                                       + "  \"done\": true\n"
+                                                                                       + "}"), new RoundTrip()));
     assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
 
-    Mockito.verify(client).updateTodo(Mockito.anyLong(), Mockito.anyString());
-    Mockito.verifyNoMoreInteractions(client);
+    Mockito.verify(client).updateTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.any(InputStream.class));
+    Mockito.verify(cache).invalidate();
+    Mockito.verifyNoMoreInteractions(client, cache);
+  }
+
+  private static InputStream stream(final String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String body(final Response response) {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try {
+      ((StreamingOutput) response.getEntity()).write(outputStream);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static Response join(final CompletionStage<Response> response) {
+    return response.toCompletableFuture().join();
   }
-}
\ No newline at end of file
+}
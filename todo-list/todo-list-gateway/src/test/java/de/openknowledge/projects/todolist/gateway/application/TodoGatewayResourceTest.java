@@ -16,8 +16,11 @@
 package de.openknowledge.projects.todolist.gateway.application;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit.AdmissionControl;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit.RoundTrip;
 
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -25,8 +28,21 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import javax.ws.rs.core.MultivaluedHashMap;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
 
 /**
  * Test class for the resource {@link TodoGatewayResource}.
@@ -41,126 +57,240 @@ public class TodoGatewayResourceTest {
   private TodoGatewayApplicationService service;
 
   @Mock
-  private Response response;
+  private AdmissionControl admissionControl;
 
-  @BeforeEach
-  void setUpResponse() {
-    Mockito.when(response.hasEntity()).thenReturn(true);
-    Mockito.when(response.getHeaders()).thenReturn(new MultivaluedHashMap<>());
-  }
+  @Mock
+  private TodoPayloadValidator validator;
+
+  @Mock
+  private UriInfo uriInfo;
 
   @Test
   public void createTodo() {
-    Mockito.when(response.getStatus()).thenReturn(Response.Status.CREATED.getStatusCode());
-    Mockito.when(response.getEntity()).thenReturn("{\n"
-                                                  + "  \"id\": 1000,\n"
-                                                  + "  \"title\": \"clean fridge\",\n"
-                                                  + "  \"description\": \"It's a mess\",\n"
-                                                  + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                                  + "  \"done\": false\n"
-                                                  + "}");
-
-    Mockito.when(service.createTodo(Mockito.anyString())).thenReturn(response);
-    Response response = resource.createTodo("{\n"
-                                            + "  \"title\": \"clean fridge\",\n"
-                                            + "  \"description\": \"It's a mess\",\n"
-                                            + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                            + "}");
-    assertThat(response.getStatus()).isEqualTo(Response.Status.CREATED.getStatusCode());
-    assertThat(response.getEntity()).isEqualTo("{\n"
-                                               + "  \"id\": 1000,\n"
-                                               + "  \"title\": \"clean fridge\",\n"
-                                               + "  \"description\": \"It's a mess\",\n"
-                                               + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                               + "  \"done\": false\n"
-                                               + "}");
-
-    Mockito.verify(service).createTodo(Mockito.anyString());
+    validate();
+    admit("createTodo");
+
+    Response response = Response.status(Response.Status.CREATED).entity("{\n"
+                                                                        + "  \"id\": 1000,\n"
+                                                                        + "  \"title\": \"clean fridge\",\n"
+                                                                        + "  \"description\": \"It's a mess\",\n"
+                                                                        + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                                                        + "  \"done\": false\n"
+                                                                        + "}").build();
+
+    Mockito.when(service.createTodo(Mockito.anyString(), Mockito.any(InputStream.class), Mockito.any()))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response result = join(resource.createTodo(MediaType.APPLICATION_JSON, stream("{\n"
+                                                                                  + "  \"title\": \"clean fridge\",\n"
+                                                                                  + "  \"description\": \"It's a mess\",\n"
+                                                                                  + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                                                                  + "}")));
+    assertThat(result.getStatus()).isEqualTo(Response.Status.CREATED.getStatusCode());
+    assertThat(result.getEntity()).isEqualTo("{\n"
+                                             + "  \"id\": 1000,\n"
+                                             + "  \"title\": \"clean fridge\",\n"
+                                             + "  \"description\": \"It's a mess\",\n"
+                                             + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                             + "  \"done\": false\n"
+                                             + "}");
+
+    Mockito.verify(service).createTodo(Mockito.anyString(), Mockito.any(InputStream.class), Mockito.any(RoundTrip.class));
     Mockito.verifyNoMoreInteractions(service);
   }
 
   @Test
   public void deleteTodo() {
-    Mockito.when(response.getStatus()).thenReturn(Response.Status.NO_CONTENT.getStatusCode());
-    Mockito.when(response.getEntity()).thenReturn("");
+    admit("deleteTodo");
+
+    Response response = Response.status(Response.Status.NO_CONTENT).entity("").build();
 
-    Mockito.when(service.deleteTodo(Mockito.anyLong())).thenReturn(response);
-    Response response = resource.deleteTodo(1L);
-    assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
-    assertThat(response.getEntity()).isEqualTo("");
+    Mockito.when(service.deleteTodo(Mockito.anyLong(), Mockito.any())).thenReturn(CompletableFuture.completedFuture(response));
+    Response result = join(resource.deleteTodo(1L));
+    assertThat(result.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
+    assertThat(result.getEntity()).isEqualTo("");
 
-    Mockito.verify(service).deleteTodo(Mockito.anyLong());
+    Mockito.verify(service).deleteTodo(Mockito.anyLong(), Mockito.any(RoundTrip.class));
     Mockito.verifyNoMoreInteractions(service);
   }
 
   @Test
   public void getTodo() {
-    Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
-    Mockito.when(response.getEntity()).thenReturn("{\n"
-                                                  + "  \"id\": 1000,\n"
-                                                  + "  \"title\": \"clean fridge\",\n"
-                                                  + "  \"description\": \"It's a mess\",\n"
-                                                  + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                                  + "  \"done\": false\n"
-                                                  + "}");
-
-    Mockito.when(service.getTodo(Mockito.anyLong())).thenReturn(response);
-    Response response = resource.getTodo(1L);
-    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
-    assertThat(response.getEntity()).isEqualTo("{\n"
-                                               + "  \"id\": 1000,\n"
-                                               + "  \"title\": \"clean fridge\",\n"
-                                               + "  \"description\": \"It's a mess\",\n"
-                                               + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                               + "  \"done\": false\n"
-                                               + "}");
-
-    Mockito.verify(service).getTodo(Mockito.anyLong());
+    admit("getTodo");
+
+    Response response = Response.status(Response.Status.OK).entity("{\n"
+                                                                   + "  \"id\": 1000,\n"
+                                                                   + "  \"title\": \"clean fridge\",\n"
+                                                                   + "  \"description\": \"It's a mess\",\n"
+                                                                   + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                                                   + "  \"done\": false\n"
+                                                                   + "}").build();
+
+    Mockito.when(service.getTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.isNull(), Mockito.any()))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response result = join(resource.getTodo(1L, MediaType.APPLICATION_JSON, null));
+    assertThat(result.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(result.getEntity()).isEqualTo("{\n"
+                                             + "  \"id\": 1000,\n"
+                                             + "  \"title\": \"clean fridge\",\n"
+                                             + "  \"description\": \"It's a mess\",\n"
+                                             + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                             + "  \"done\": false\n"
+                                             + "}");
+
+    Mockito.verify(service).getTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.isNull(), Mockito.any(RoundTrip.class));
     Mockito.verifyNoMoreInteractions(service);
   }
 
   @Test
   public void getTodos() {
-    Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
-    Mockito.when(response.getEntity()).thenReturn("[{\n"
-                                                  + "  \"id\": 1000,\n"
-                                                  + "  \"title\": \"clean fridge\",\n"
-                                                  + "  \"description\": \"It's a mess\",\n"
-                                                  + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                                  + "  \"done\": false\n"
-                                                  + "}]");
-
-    Mockito.when(service.getTodos()).thenReturn(response);
-    Response response = resource.getTodos();
-    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
-    assertThat(response.getEntity()).isEqualTo("[{\n"
-                                               + "  \"id\": 1000,\n"
-                                               + "  \"title\": \"clean fridge\",\n"
-                                               + "  \"description\": \"It's a mess\",\n"
-                                               + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                               + "  \"done\": false\n"
-                                               + "}]");
-
-    Mockito.verify(service).getTodos();
+    admit("getTodos");
+
+    Response response = Response.status(Response.Status.OK).entity("[{\n"
+                                                                   + "  \"id\": 1000,\n"
+                                                                   + "  \"title\": \"clean fridge\",\n"
+                                                                   + "  \"description\": \"It's a mess\",\n"
+                                                                   + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                                                   + "  \"done\": false\n"
+                                                                   + "}]").build();
+
+    Mockito.when(uriInfo.getRequestUriBuilder()).thenReturn(UriBuilder.fromUri("http://localhost:8080/todo-list-gateway/api/todos"));
+    Mockito.when(service.getTodos(Mockito.any(TodoListQuery.class), Mockito.anyString(), Mockito.isNull(), Mockito.any()))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response result = join(resource.getTodos(MediaType.APPLICATION_JSON, null, null, null, null, null, null, null));
+    assertThat(result.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(result.getEntity()).isEqualTo("[{\n"
+                                             + "  \"id\": 1000,\n"
+                                             + "  \"title\": \"clean fridge\",\n"
+                                             + "  \"description\": \"It's a mess\",\n"
+                                             + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                             + "  \"done\": false\n"
+                                             + "}]");
+
+    Mockito.verify(service).getTodos(Mockito.eq(new TodoListQuery(null, null, null, null, null)), Mockito.eq(MediaType.APPLICATION_JSON),
+                                     Mockito.isNull(), Mockito.any(RoundTrip.class));
+    Mockito.verifyNoMoreInteractions(service);
+  }
+
+  @Test
+  public void getTodosShouldPageThroughGateway() {
+    admit("getTodos");
+
+    Response firstPage = Response.status(Response.Status.OK)
+        .entity("[{\"id\": 1000}, {\"id\": 1001}]")
+        .header(HttpHeaders.LINK, "<http://todo-list-service:9080/api/todos?limit=2&done=false&after=MjAxOA>; rel=\"next\"")
+        .build();
+    Response lastPage = Response.status(Response.Status.OK).entity("[{\"id\": 1002}]").build();
+
+    Mockito.when(uriInfo.getRequestUriBuilder())
+        .thenReturn(UriBuilder.fromUri("http://localhost:8080/todo-list-gateway/api/todos?limit=2&done=false"))
+        .thenReturn(UriBuilder.fromUri("http://localhost:8080/todo-list-gateway/api/todos?limit=2&done=false&after=MjAxOA"));
+    Mockito.when(service.getTodos(Mockito.eq(new TodoListQuery("2", null, "false", null, null)), Mockito.eq(MediaType.APPLICATION_JSON),
+                                  Mockito.isNull(), Mockito.any()))
+        .thenReturn(CompletableFuture.completedFuture(firstPage));
+    Mockito.when(service.getTodos(Mockito.eq(new TodoListQuery("2", "MjAxOA", "false", null, null)), Mockito.eq(MediaType.APPLICATION_JSON),
+                                  Mockito.isNull(), Mockito.any()))
+        .thenReturn(CompletableFuture.completedFuture(lastPage));
+
+    Response result = join(resource.getTodos(MediaType.APPLICATION_JSON, null, null, "2", null, "false", null, null));
+    assertThat(result.getEntity()).isEqualTo("[{\"id\": 1000}, {\"id\": 1001}]");
+    assertThat(result.getHeaders().get(HttpHeaders.LINK)).hasSize(1);
+    assertThat(result.getLink("next").getUri())
+        .isEqualTo(URI.create("http://localhost:8080/todo-list-gateway/api/todos?limit=2&done=false&after=MjAxOA"));
+
+    String after = result.getLink("next").getUri().getQuery().replaceAll(".*after=", "");
+    result = join(resource.getTodos(MediaType.APPLICATION_JSON, null, null, "2", after, "false", null, null));
+    assertThat(result.getEntity()).isEqualTo("[{\"id\": 1002}]");
+    assertThat(result.getLink("next")).isNull();
+  }
+
+  @Test
+  public void getTodosById() {
+    admit("getTodosById");
+
+    Response response = Response.status(Response.Status.OK).entity("[]").build();
+
+    Mockito.when(service.getTodosById(Mockito.anyList(), Mockito.anyString(), Mockito.any()))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response result = join(resource.getTodos(MediaType.APPLICATION_JSON, null, "3, 1,3", null, null, null, null, null));
+    assertThat(result.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+
+    Mockito.verify(service).getTodosById(Mockito.eq(Arrays.asList(3L, 1L, 3L)), Mockito.eq(MediaType.APPLICATION_JSON),
+                                         Mockito.any(RoundTrip.class));
+    Mockito.verifyNoMoreInteractions(service);
+  }
+
+  @Test
+  public void getTodosByIdShouldFailForInvalidIds() {
+    assertThatExceptionOfType(BadRequestException.class)
+        .isThrownBy(() -> resource.getTodos(MediaType.APPLICATION_JSON, null, "1,a", null, null, null, null, null));
+    assertThatExceptionOfType(BadRequestException.class)
+        .isThrownBy(() -> resource.getTodos(MediaType.APPLICATION_JSON, null, "", null, null, null, null, null));
+
+    String[] ids = new String[TodoGatewayResource.MAX_IDS + 1];
+    Arrays.fill(ids, "1");
+    assertThatExceptionOfType(BadRequestException.class)
+        .isThrownBy(() -> resource.getTodos(MediaType.APPLICATION_JSON, null, String.join(",", ids), null, null, null, null, null));
+
+    Mockito.verifyZeroInteractions(service, admissionControl);
+  }
+
+  @Test
+  public void streamChanges() {
+    Response response = Response.status(Response.Status.OK).entity("id: k7x2m1a0-1\n").build();
+
+    Mockito.when(service.streamChanges(Mockito.anyString())).thenReturn(CompletableFuture.completedFuture(response));
+    Response result = join(resource.streamChanges("k7x2m1a0-0"));
+    assertThat(result.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(result.getHeaderString(HttpHeaders.CACHE_CONTROL)).isEqualTo("no-cache");
+    assertThat(result.getEntity()).isEqualTo("id: k7x2m1a0-1\n");
+
+    Mockito.verify(service).streamChanges(Mockito.anyString());
     Mockito.verifyNoMoreInteractions(service);
   }
 
   @Test
   public void updateTodo() {
-    Mockito.when(response.getStatus()).thenReturn(Response.Status.NO_CONTENT.getStatusCode());
-    Mockito.when(response.getEntity()).thenReturn("");
-
-    Mockito.when(service.updateTodo(Mockito.anyLong(), Mockito.anyString())).thenReturn(response);
-    Response response = resource.updateTodo(1L, "{\n"
-                                                + "  \"title\": \"clean fridge\",\n"
-                                                + "  \"description\": \"It's a mess\",\n"
-                                                + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
-                                                + "  \"done\": true\n"
-                                                + "}");
-    assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
-    assertThat(response.getEntity()).isEqualTo("");
-
-    Mockito.verify(service).updateTodo(Mockito.anyLong(), Mockito.anyString());
+    validate();
+    admit("updateTodo");
+
+    Response response = Response.status(Response.Status.NO_CONTENT).entity("").build();
+
+    Mockito.when(service.updateTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.any(InputStream.class), Mockito.any()))
+        .thenReturn(CompletableFuture.completedFuture(response));
+    Response result = join(resource.updateTodo(1L, MediaType.APPLICATION_JSON, stream("{\n"
+                                                                                      + "  \"title\": \"clean fridge\",\n"
+                                                                                      + "  \"description\": \"It's a mess\",\n"
+                                                                                      + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                                                                      + "  \"done\": true\n"
+                                                                                      + "}")));
+    assertThat(result.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
+    assertThat(result.getEntity()).isEqualTo("");
+
+    Mockito.verify(service).updateTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.any(InputStream.class),
+                                       Mockito.any(RoundTrip.class));
     Mockito.verifyNoMoreInteractions(service);
   }
-}
\ No newline at end of file
+
+  private void validate() {
+    Mockito.when(validator.validate(Mockito.anyString(), Mockito.any(InputStream.class), Mockito.any(), Mockito.any(), Mockito.any()))
+        .thenAnswer(invocation -> {
+          Function<InputStream, CompletionStage<Response>> request = invocation.getArgument(4);
+          return request.apply(invocation.getArgument(1));
+        });
+  }
+
+  private void admit(final String route) {
+    Mockito.when(admissionControl.admit(Mockito.eq(route), Mockito.any())).thenAnswer(invocation -> {
+      Function<RoundTrip, CompletionStage<Response>> request = invocation.getArgument(1);
+      return request.apply(new RoundTrip());
+    });
+  }
+
+  private static InputStream stream(final String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Response join(final CompletionStage<Response> response) {
+    return response.toCompletableFuture().join();
+  }
+}
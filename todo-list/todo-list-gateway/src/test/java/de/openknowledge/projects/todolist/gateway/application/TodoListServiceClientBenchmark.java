@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+/**
+ * Benchmark of sending requests to the todo-list-service with a client per request and with one shared client, run with
+ * <code>mvn -P benchmark test -DskipTests -Dbenchmark=TodoListServiceClientBenchmark</code>.
+ * <p>
+ * The service is a local HTTP server that answers with a small JSON document. The latency is sampled, so the percentiles (e.g. p0.99) are
+ * reported, and the number of connections the server accepted is printed after each benchmark. The shared client is shared by all
+ * requests of a benchmark thread, because the standalone CXF client on the test classpath isn't thread-safe when requests are built.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TodoListServiceClientBenchmark {
+
+  private static final byte[] TODO = "{\"id\":1,\"title\":\"clean fridge\",\"dueDate\":\"2018-01-01T12:34:56Z\",\"done\":false}"
+      .getBytes(StandardCharsets.UTF_8);
+
+  private final Set<InetSocketAddress> connections = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong requests = new AtomicLong();
+
+  private HttpServer server;
+
+  private ExecutorService executor;
+
+  private String uri;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 100);
+    server.createContext("/todo-list-service/api/todos/1", exchange -> {
+      connections.add(exchange.getRemoteAddress());
+      requests.incrementAndGet();
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, TODO.length);
+      try (OutputStream body = exchange.getResponseBody()) {
+        body.write(TODO);
+      }
+    });
+    executor = Executors.newFixedThreadPool(16);
+    server.setExecutor(executor);
+    server.start();
+
+    uri = "http://localhost:" + server.getAddress().getPort() + "/todo-list-service/api/todos/1";
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.printf("%n%d requests over %d connections%n", requests.get(), connections.size());
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Creates a client for each request, as the request scoped producer did.
+   */
+  @Benchmark
+  public String clientPerRequest() {
+    Client client = newClient();
+    try {
+      return get(client.target(uri));
+    } finally {
+      client.close();
+    }
+  }
+
+  /**
+   * Sends all requests with the same client, as the application scoped producer does.
+   */
+  @Benchmark
+  public String sharedClient(final SharedClient client) {
+    return get(client.target);
+  }
+
+  private static Client newClient() {
+    return ClientBuilder.newBuilder().connectTimeout(3000, TimeUnit.MILLISECONDS).readTimeout(3000, TimeUnit.MILLISECONDS).build();
+  }
+
+  private static String get(final WebTarget target) {
+    Response response = target.request().get();
+    try {
+      return response.readEntity(String.class);
+    } finally {
+      response.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class SharedClient {
+
+    private Client client;
+
+    private WebTarget target;
+
+    @Setup
+    public void setUp(final TodoListServiceClientBenchmark benchmark) {
+      client = newClient();
+      target = client.target(benchmark.uri);
+    }
+
+    @TearDown
+    public void tearDown() {
+      client.close();
+    }
+  }
+}
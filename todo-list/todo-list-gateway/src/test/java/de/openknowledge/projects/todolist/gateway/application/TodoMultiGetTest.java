@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.ws.rs.ServerErrorException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.Response;
+
+/**
+ * Test class for the multi-get {@link TodoMultiGet}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TodoMultiGetTest {
+
+  @Mock
+  private TodoListServiceClient client;
+
+  private TodoMultiGet multiGet;
+
+  @BeforeEach
+  public void setUp() {
+    multiGet = new TodoMultiGet(client, 2);
+  }
+
+  @Test
+  public void getTodosShouldForwardResponseOfBatchRequest() {
+    Response batch = response(Response.Status.OK, "[]");
+    Mockito.when(batch.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+    Mockito.when(batch.hasEntity()).thenReturn(true);
+    Mockito.when(client.getTodosById(Mockito.anyList(), Mockito.anyString())).thenReturn(CompletableFuture.completedFuture(batch));
+
+    Response response = join(multiGet.getTodos(Arrays.asList(1L, 2L), MediaType.APPLICATION_JSON));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+
+    Mockito.verify(client).getTodosById(Arrays.asList(1L, 2L), MediaType.APPLICATION_JSON);
+    Mockito.verifyNoMoreInteractions(client);
+  }
+
+  @Test
+  public void getTodosShouldReadTodosOneByOneInRequestOrderIfBatchRequestIsNotFound() {
+    Response notFound = Mockito.mock(Response.class);
+    Mockito.when(notFound.getStatus()).thenReturn(Response.Status.NOT_FOUND.getStatusCode());
+    Response cleanFridge = response(Response.Status.OK, "{\"id\": 1, \"title\": \"clean fridge\"}");
+    Response washCar = response(Response.Status.OK, "{\"id\": 3, \"title\": \"wash car\"}");
+    Mockito.when(client.getTodosById(Mockito.anyList(), Mockito.anyString())).thenReturn(CompletableFuture.completedFuture(notFound));
+    Mockito.when(client.getTodo(Mockito.eq(1L), Mockito.anyString(), Mockito.isNull()))
+        .thenReturn(CompletableFuture.completedFuture(cleanFridge));
+    Mockito.when(client.getTodo(Mockito.eq(2L), Mockito.anyString(), Mockito.isNull()))
+        .thenReturn(CompletableFuture.completedFuture(notFound));
+    Mockito.when(client.getTodo(Mockito.eq(3L), Mockito.anyString(), Mockito.isNull()))
+        .thenReturn(CompletableFuture.completedFuture(washCar));
+
+    JsonArray results = entity(join(multiGet.getTodos(Arrays.asList(3L, 2L, 1L, 3L), MediaType.APPLICATION_JSON)));
+
+    assertThat(results).hasSize(4);
+    assertThat(results.getValuesAs(JsonObject.class)).extracting(result -> result.getInt("index")).containsExactly(0, 1, 2, 3);
+    assertThat(results.getValuesAs(JsonObject.class)).extracting(result -> result.getJsonNumber("id").longValue())
+        .containsExactly(3L, 2L, 1L, 3L);
+    assertThat(results.getValuesAs(JsonObject.class)).extracting(result -> result.getInt("status")).containsExactly(200, 404, 200, 200);
+    assertThat(results.getJsonObject(0).getJsonObject("todo").getString("title")).isEqualTo("wash car");
+    assertThat(results.getJsonObject(1).containsKey("todo")).isFalse();
+    assertThat(results.getJsonObject(2).getJsonObject("todo").getString("title")).isEqualTo("clean fridge");
+
+    Mockito.verify(client).getTodo(3L, MediaType.APPLICATION_JSON, null);
+    Mockito.verify(client).getTodo(2L, MediaType.APPLICATION_JSON, null);
+    Mockito.verify(client).getTodo(1L, MediaType.APPLICATION_JSON, null);
+  }
+
+  @Test
+  public void getTodosShouldReadErrorsOfSingleRequests() {
+    Response notFound = Mockito.mock(Response.class);
+    Mockito.when(notFound.getStatus()).thenReturn(Response.Status.NOT_FOUND.getStatusCode());
+    Response badRequest = response(Response.Status.BAD_REQUEST, "{\"errors\": [{\"code\": \"UNKNOWN\", "
+                                                                + "\"message\": \"must be greater than or equal to 1\"}]}");
+    Mockito.when(badRequest.hasEntity()).thenReturn(true);
+    Mockito.when(client.getTodosById(Mockito.anyList(), Mockito.anyString())).thenReturn(CompletableFuture.completedFuture(notFound));
+    Mockito.when(client.getTodo(Mockito.eq(0L), Mockito.anyString(), Mockito.isNull()))
+        .thenReturn(CompletableFuture.completedFuture(badRequest));
+    Mockito.when(client.getTodo(Mockito.eq(2L), Mockito.anyString(), Mockito.isNull()))
+        .thenReturn(CompletableFuture.completedFuture(notFound));
+
+    JsonArray results = entity(join(multiGet.getTodos(Arrays.asList(0L, 2L), MediaType.APPLICATION_JSON)));
+
+    assertThat(results.getValuesAs(JsonObject.class)).extracting(result -> result.getInt("status")).containsExactly(400, 404);
+    assertThat(results.getJsonObject(0).getJsonArray("errors").getValuesAs(JsonObject.class))
+        .extracting(error -> error.getString("code"))
+        .containsExactly("UNKNOWN");
+    assertThat(results.getJsonObject(1).getJsonArray("errors")).isEmpty();
+    Mockito.verify(badRequest).close();
+  }
+
+  @Test
+  public void getTodosShouldLimitConcurrentSingleRequests() {
+    Response notFound = Mockito.mock(Response.class);
+    Mockito.when(notFound.getStatus()).thenReturn(Response.Status.METHOD_NOT_ALLOWED.getStatusCode());
+    Mockito.when(client.getTodosById(Mockito.anyList(), Mockito.anyString())).thenReturn(CompletableFuture.completedFuture(notFound));
+
+    List<CompletableFuture<Response>> requests = new ArrayList<>();
+    Mockito.when(client.getTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.isNull())).thenAnswer(invocation -> {
+      CompletableFuture<Response> request = new CompletableFuture<>();
+      requests.add(request);
+      return request;
+    });
+
+    CompletableFuture<Response> result = multiGet.getTodos(Arrays.asList(1L, 2L, 3L, 4L), MediaType.APPLICATION_JSON).toCompletableFuture();
+    assertThat(requests).hasSize(2);
+
+    requests.get(0).complete(response(Response.Status.OK, "{\"id\": 1}"));
+    assertThat(requests).hasSize(3);
+
+    requests.get(1).complete(response(Response.Status.OK, "{\"id\": 2}"));
+    requests.get(2).complete(response(Response.Status.OK, "{\"id\": 3}"));
+    assertThat(requests).hasSize(4);
+    assertThat(result).isNotDone();
+
+    requests.get(3).complete(response(Response.Status.OK, "{\"id\": 4}"));
+    assertThat(entity(result.join())).hasSize(4);
+  }
+
+  @Test
+  public void getTodosShouldFailIfSingleRequestFails() {
+    Response notFound = Mockito.mock(Response.class);
+    Mockito.when(notFound.getStatus()).thenReturn(Response.Status.NOT_FOUND.getStatusCode());
+    Mockito.when(client.getTodosById(Mockito.anyList(), Mockito.anyString())).thenReturn(CompletableFuture.completedFuture(notFound));
+
+    Response serverError = Mockito.mock(Response.class);
+    Mockito.when(serverError.getStatus()).thenReturn(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+    Mockito.when(client.getTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.isNull()))
+        .thenReturn(CompletableFuture.completedFuture(serverError));
+
+    CompletableFuture<Response> result = multiGet.getTodos(Arrays.asList(1L, 2L), MediaType.APPLICATION_JSON).toCompletableFuture();
+
+    assertThat(result).isCompletedExceptionally();
+    assertThat(catchCause(result)).isInstanceOf(ServerErrorException.class);
+    Mockito.verify(serverError).close();
+  }
+
+  @Test
+  public void getTodosShouldTryBatchRequestAgainAfterInstanceCantReadMultipleTodos() {
+    Response notFound = Mockito.mock(Response.class);
+    Mockito.when(notFound.getStatus()).thenReturn(Response.Status.NOT_FOUND.getStatusCode());
+    Response batch = response(Response.Status.OK, "[]");
+    Mockito.when(batch.getHeaders()).thenReturn(new MultivaluedHashMap<>());
+    Mockito.when(batch.hasEntity()).thenReturn(true);
+    Response todo = response(Response.Status.OK, "{}");
+    Mockito.when(client.getTodosById(Mockito.anyList(), Mockito.anyString()))
+        .thenReturn(CompletableFuture.completedFuture(notFound), CompletableFuture.completedFuture(batch));
+    Mockito.when(client.getTodo(Mockito.anyLong(), Mockito.anyString(), Mockito.isNull()))
+        .thenReturn(CompletableFuture.completedFuture(todo));
+
+    assertThat(entity(join(multiGet.getTodos(Arrays.asList(1L), MediaType.APPLICATION_JSON)))).hasSize(1);
+    assertThat(join(multiGet.getTodos(Arrays.asList(1L), MediaType.APPLICATION_JSON)).getEntity()).isNotInstanceOf(String.class);
+
+    Mockito.verify(client, Mockito.times(2)).getTodosById(Arrays.asList(1L), MediaType.APPLICATION_JSON);
+    Mockito.verify(client, Mockito.times(1)).getTodo(1L, MediaType.APPLICATION_JSON, null);
+  }
+
+  private static Response response(final Response.Status status, final String body) {
+    Response response = Mockito.mock(Response.class);
+    Mockito.when(response.getStatus()).thenReturn(status.getStatusCode());
+    Mockito.lenient().when(response.readEntity(InputStream.class))
+        .thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    return response;
+  }
+
+  private static JsonArray entity(final Response response) {
+    try (JsonReader reader = Json.createReader(new StringReader((String) response.getEntity()))) {
+      return reader.readArray();
+    }
+  }
+
+  private static Throwable catchCause(final CompletableFuture<Response> result) {
+    try {
+      result.join();
+      return null;
+    } catch (CompletionException e) {
+      return e.getCause();
+    }
+  }
+
+  private static Response join(final CompletionStage<Response> response) {
+    return response.toCompletableFuture().join();
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ApplicationErrorsDTO;
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ErrorDTO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import javax.validation.Validation;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Test class for the validator {@link TodoPayloadValidator}.
+ */
+public class TodoPayloadValidatorTest {
+
+  private TodoPayloadValidator validator;
+
+  private AtomicReference<String> forwarded;
+
+  private Function<InputStream, CompletionStage<Response>> request;
+
+  @BeforeEach
+  public void setUp() {
+    validator = new TodoPayloadValidator(1024, Validation.buildDefaultValidatorFactory().getValidator());
+    forwarded = new AtomicReference<>();
+    request = payload -> {
+      forwarded.set(read(payload));
+      return CompletableFuture.completedFuture(Response.status(Response.Status.CREATED).build());
+    };
+  }
+
+  @Test
+  public void validateShouldPassValidNewTodo() {
+    String payload = "{\n"
+                     + "  \"title\": \"clean fridge\",\n"
+                     + "  \"description\": \"It's a mess\",\n"
+                     + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                     + "}";
+
+    Response response = validateNewTodo(MediaType.APPLICATION_JSON, payload);
+
+    assertThat(response.getStatus()).isEqualTo(Response.Status.CREATED.getStatusCode());
+    assertThat(forwarded.get()).isEqualTo(payload);
+  }
+
+  @Test
+  public void validateShouldRejectNewTodoWithoutTitleAndDueDate() {
+    Response response = validateNewTodo(MediaType.APPLICATION_JSON, "{\"description\": \"It's a mess\"}");
+
+    assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+    assertThat(((ApplicationErrorsDTO) response.getEntity()).getErrors())
+        .extracting(ErrorDTO::getCode)
+        .containsExactlyInAnyOrder("TITLE_IS_NULL", "DUE_DATE_IS_NULL");
+    assertThat(forwarded.get()).isNull();
+  }
+
+  @Test
+  public void validateShouldRejectModifiedTodoWithoutDone() {
+    Response response = validator.validate(MediaType.APPLICATION_JSON, stream("{\n"
+                                                                              + "  \"title\": \"clean fridge\",\n"
+                                                                              + "  \"dueDate\": \"2018-01-01T12:34:56Z\"\n"
+                                                                              + "}"),
+                                           ModifiedTodo::new, UpdateTodoValidationGroup.class, request)
+        .toCompletableFuture().join();
+
+    assertThat(response.getStatus()).isEqualTo(Response.Status.BAD_REQUEST.getStatusCode());
+    assertThat(((ApplicationErrorsDTO) response.getEntity()).getErrors()).extracting(ErrorDTO::getCode).containsExactly("DONE_IS_NULL");
+    assertThat(forwarded.get()).isNull();
+  }
+
+  @Test
+  public void validateShouldPassPayloadsThatCantBeRead() {
+    Response response = validateNewTodo(MediaType.APPLICATION_JSON, "{\"title\": \"clean fridge\", ");
+
+    assertThat(response.getStatus()).isEqualTo(Response.Status.CREATED.getStatusCode());
+    assertThat(forwarded.get()).isEqualTo("{\"title\": \"clean fridge\", ");
+
+    validateNewTodo(MediaType.APPLICATION_JSON, "{\"title\": 42}");
+    assertThat(forwarded.get()).isEqualTo("{\"title\": 42}");
+
+    validateNewTodo(MediaType.APPLICATION_JSON, "[]");
+    assertThat(forwarded.get()).isEqualTo("[]");
+
+    validateNewTodo(MediaType.APPLICATION_JSON, "{\"title\": \"clean fridge\", \"dueDate\": \"01.01.2018\"}");
+    assertThat(forwarded.get()).isEqualTo("{\"title\": \"clean fridge\", \"dueDate\": \"01.01.2018\"}");
+  }
+
+  @Test
+  public void validateShouldPassPayloadsThatAreNotValidated() {
+    validateNewTodo(MediaType.APPLICATION_XML, "<newTodo/>");
+    assertThat(forwarded.get()).isEqualTo("<newTodo/>");
+
+    StringBuilder description = new StringBuilder();
+    for (int i = 0; i < 2048; i++) {
+      description.append('x');
+    }
+    String payload = "{\"description\": \"" + description + "\"}";
+    validateNewTodo(MediaType.APPLICATION_JSON, payload);
+    assertThat(forwarded.get()).isEqualTo(payload);
+  }
+
+  private Response validateNewTodo(final String contentType, final String payload) {
+    return validator.validate(contentType, stream(payload), NewTodo::new, CreateTodoValidationGroup.class, request)
+        .toCompletableFuture().join();
+  }
+
+  private static InputStream stream(final String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(final InputStream payload) {
+    try {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[256];
+      int read;
+      while ((read = payload.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
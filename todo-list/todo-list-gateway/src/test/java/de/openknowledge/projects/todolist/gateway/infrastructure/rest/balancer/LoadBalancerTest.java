@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Test class for the {@link LoadBalancer}, with local stub instances of a proxied service.
+ */
+public class LoadBalancerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private final List<StubInstance> instances = new ArrayList<>();
+
+  @AfterEach
+  public void tearDown() {
+    instances.forEach(StubInstance::stop);
+  }
+
+  @Test
+  public void callShouldBalanceAcrossAllInstances() {
+    LoadBalancer<StubClient> balancer = balancer(start(), start(), start());
+
+    for (int i = 0; i < 300; i++) {
+      assertThat(status(balancer.call(StubClient::get))).isEqualTo(200);
+    }
+
+    assertThat(instances).allMatch(instance -> instance.requests.get() > 50);
+  }
+
+  @Test
+  public void callShouldPreferInstanceWithFewerOutstandingRequests() {
+    AtomicInteger slowRequests = new AtomicInteger();
+    StubClient slow = () -> {
+      slowRequests.incrementAndGet();
+      return new CompletableFuture<>();
+    };
+    StubClient fast = () -> CompletableFuture.completedFuture(Response.ok().build());
+    LoadBalancer<StubClient> balancer = new LoadBalancer<>(Arrays.asList(upstream("slow", slow), upstream("fast", fast)), 5, 2000, 30000,
+                                                           1000, clock::get);
+
+    for (int i = 0; i < 10; i++) {
+      balancer.call(StubClient::get);
+    }
+
+    assertThat(slowRequests.get()).isLessThanOrEqualTo(1);
+  }
+
+  @Test
+  public void callShouldEjectInstanceAfterConsecutiveFailures() {
+    StubInstance failing = start();
+    failing.status = 500;
+    LoadBalancer<StubClient> balancer = balancer(failing, start());
+
+    for (int i = 0; i < 100; i++) {
+      balancer.call(StubClient::get);
+    }
+
+    assertThat(failing.requests.get()).isEqualTo(5);
+    assertThat(balancer.getUpstreams().get(0).isEjected(clock.get())).isTrue();
+    assertThat(balancer.getUpstreams().get(0).getFailures()).isEqualTo(5);
+
+    failing.status = 200;
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(30000));
+    for (int i = 0; i < 100; i++) {
+      balancer.call(StubClient::get);
+    }
+
+    assertThat(failing.requests.get()).isGreaterThan(5);
+  }
+
+  @Test
+  public void callShouldEjectSlowInstance() {
+    AtomicInteger slowRequests = new AtomicInteger();
+    StubClient slow = () -> {
+      slowRequests.incrementAndGet();
+      clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(3000));
+      return CompletableFuture.completedFuture(Response.ok().build());
+    };
+    StubClient fast = () -> CompletableFuture.completedFuture(Response.ok().build());
+    LoadBalancer<StubClient> balancer = new LoadBalancer<>(Arrays.asList(upstream("slow", slow), upstream("fast", fast)), 5, 2000, 30000,
+                                                           1000, clock::get);
+
+    for (int i = 0; i < 100; i++) {
+      balancer.call(StubClient::get);
+    }
+
+    assertThat(slowRequests.get()).isEqualTo(Upstream.MIN_LATENCY_SAMPLES);
+    assertThat(balancer.getUpstreams().get(0).isEjected(clock.get())).isTrue();
+  }
+
+  @Test
+  public void callShouldNotEjectInstanceAfterSingleSlowRequest() {
+    AtomicInteger requests = new AtomicInteger();
+    StubClient slowAtStart = () -> {
+      if (requests.incrementAndGet() == 1) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(3000));
+      }
+      return CompletableFuture.completedFuture(Response.ok().build());
+    };
+    LoadBalancer<StubClient> balancer = new LoadBalancer<>(Collections.singletonList(upstream("stub", slowAtStart)), 5, 2000, 30000,
+                                                           1000, clock::get);
+
+    for (int i = 0; i < 10; i++) {
+      balancer.call(StubClient::get);
+    }
+
+    assertThat(requests.get()).isEqualTo(10);
+    assertThat(balancer.getUpstreams().get(0).isEjected(clock.get())).isFalse();
+    assertThat(balancer.getUpstreams().get(0).getLatency()).isLessThan(2000);
+  }
+
+  @Test
+  public void probeShouldExcludeInstanceThatIsNotReady() {
+    StubInstance notReady = start();
+    notReady.healthStatus = 503;
+    LoadBalancer<StubClient> balancer = balancer(notReady, start());
+
+    balancer.probe();
+    for (int i = 0; i < 50; i++) {
+      balancer.call(StubClient::get);
+    }
+
+    assertThat(notReady.requests.get()).isZero();
+    assertThat(balancer.getUpstreams().get(0).isHealthy()).isFalse();
+
+    notReady.healthStatus = 200;
+    balancer.probe();
+    for (int i = 0; i < 50; i++) {
+      balancer.call(StubClient::get);
+    }
+
+    assertThat(notReady.requests.get()).isPositive();
+  }
+
+  @Test
+  public void callShouldUseAllInstancesIfNoneIsAvailable() {
+    StubInstance first = start();
+    StubInstance second = start();
+    first.healthStatus = 503;
+    second.healthStatus = 503;
+    LoadBalancer<StubClient> balancer = balancer(first, second);
+
+    balancer.probe();
+
+    assertThat(status(balancer.call(StubClient::get))).isEqualTo(200);
+  }
+
+  @Test
+  public void callShouldCancelRequestIfCallIsCancelled() {
+    CompletableFuture<Response> request = new CompletableFuture<>();
+    LoadBalancer<StubClient> balancer = new LoadBalancer<>(Collections.singletonList(upstream("stub", () -> request)), 5, 2000, 30000, 1000,
+                                                           clock::get);
+
+    balancer.call(StubClient::get).toCompletableFuture().cancel(true);
+
+    assertThat(request).isCancelled();
+    assertThat(balancer.getUpstreams().get(0).getOutstanding()).isZero();
+  }
+
+  @Test
+  public void callShouldNotRecordCancelledRequest() {
+    CompletableFuture<Response> request = new CompletableFuture<>();
+    StubClient fast = () -> CompletableFuture.completedFuture(Response.ok().build());
+    LoadBalancer<StubClient> balancer = new LoadBalancer<>(Arrays.asList(upstream("stub", () -> request), upstream("fast", fast)), 1, 2000,
+                                                           30000, 1000, clock::get);
+    Upstream<StubClient> upstream = balancer.getUpstreams().get(0);
+    Selections selections = new Selections();
+    selections.add(balancer.getUpstreams().get(1));
+
+    CompletableFuture<Response> response = selections.send(() -> balancer.call(StubClient::get)).toCompletableFuture();
+    assertThat(upstream.getOutstanding()).isEqualTo(1);
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+    response.cancel(true);
+
+    assertThat(upstream.getOutstanding()).isZero();
+    assertThat(upstream.getFailures()).isZero();
+    assertThat(upstream.getLatency()).isZero();
+    assertThat(upstream.isEjected(clock.get())).isFalse();
+  }
+
+  @Test
+  public void callShouldExcludeInstancesSelectedForPreviousAttempts() {
+    List<String> selected = new ArrayList<>();
+    LoadBalancer<StubClient> balancer = new LoadBalancer<>(Arrays.asList(upstream("one", recording("one", selected)),
+                                                                         upstream("two", recording("two", selected))),
+                                                           5, 2000, 30000, 1000, clock::get);
+
+    for (int i = 0; i < 20; i++) {
+      selected.clear();
+      Selections selections = new Selections();
+      selections.send(() -> balancer.call(StubClient::get));
+      selections.send(() -> balancer.call(StubClient::get));
+      selections.send(() -> balancer.call(StubClient::get));
+
+      assertThat(selected).hasSize(3);
+      assertThat(selected.get(1)).isNotEqualTo(selected.get(0));
+    }
+  }
+
+  @Test
+  public void asClientShouldSendRequestsToInstances() {
+    LoadBalancer<StubClient> balancer = balancer(start(), start());
+
+    StubClient client = balancer.asClient(StubClient.class);
+    for (int i = 0; i < 10; i++) {
+      assertThat(status(client.get())).isEqualTo(200);
+    }
+
+    assertThat(instances.get(0).requests.get() + instances.get(1).requests.get()).isEqualTo(10);
+    assertThat(balancer.getUpstreams()).allMatch(upstream -> upstream.getOutstanding() == 0);
+  }
+
+  private LoadBalancer<StubClient> balancer(final StubInstance... instances) {
+    List<Upstream<StubClient>> upstreams = new ArrayList<>();
+    for (StubInstance instance : instances) {
+      upstreams.add(new Upstream<>(instance.toString(), instance.uri("/health/ready"), new HttpStubClient(instance.uri("/api/todos"))));
+    }
+    return new LoadBalancer<>(upstreams, 5, 2000, 30000, 1000, clock::get);
+  }
+
+  private StubInstance start() {
+    StubInstance instance = new StubInstance();
+    instances.add(instance);
+    return instance;
+  }
+
+  private static Upstream<StubClient> upstream(final String name, final StubClient client) {
+    return new Upstream<>(name, URI.create("http://localhost/health/ready"), client);
+  }
+
+  private static StubClient recording(final String name, final List<String> selected) {
+    return () -> {
+      selected.add(name);
+      return CompletableFuture.completedFuture(Response.ok().build());
+    };
+  }
+
+  private static int status(final CompletionStage<Response> response) {
+    return response.toCompletableFuture().join().getStatus();
+  }
+
+  public interface StubClient {
+
+    CompletionStage<Response> get();
+  }
+
+  private static final class HttpStubClient implements StubClient {
+
+    private final URI uri;
+
+    HttpStubClient(final URI uri) {
+      this.uri = uri;
+    }
+
+    @Override
+    public CompletionStage<Response> get() {
+      try {
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return CompletableFuture.completedFuture(Response.status(status).build());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  private static final class StubInstance {
+
+    private final HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile int status = 200;
+
+    private volatile int healthStatus = 200;
+
+    StubInstance() {
+      try {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      server.createContext("/health/ready", exchange -> {
+        exchange.sendResponseHeaders(healthStatus, -1);
+        exchange.close();
+      });
+      server.createContext("/api/todos", exchange -> {
+        requests.incrementAndGet();
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+      });
+      server.start();
+    }
+
+    URI uri(final String path) {
+      return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    void stop() {
+      server.stop(0);
+    }
+
+    @Override
+    public String toString() {
+      return "localhost:" + server.getAddress().getPort();
+    }
+  }
+}
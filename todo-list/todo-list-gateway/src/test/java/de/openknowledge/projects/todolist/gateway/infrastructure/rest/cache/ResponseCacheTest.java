@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Test class for the {@link ResponseCache}.
+ */
+public class ResponseCacheTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private final List<String> requestedEntityTags = new ArrayList<>();
+
+  private final ResponseCache cache = new ResponseCache(10, 1000, 5000, 16, clock::get);
+
+  @Test
+  public void getShouldReturnCachedResponse() {
+    Function<String, CompletionStage<Response>> upstream = upstream(ok("\"1\"", "[1]"));
+
+    assertThat(body(cache.get("todos", upstream))).isEqualTo("[1]");
+    assertThat(body(cache.get("todos", upstream))).isEqualTo("[1]");
+
+    assertThat(requestedEntityTags).hasSize(1);
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getMisses()).isEqualTo(1);
+  }
+
+  @Test
+  public void getShouldForwardHeaders() {
+    Response response = ok("\"1\"", "[1]");
+    response.getHeaders().add(HttpHeaders.CONTENT_ENCODING, "identity");
+    response.getHeaders().add(HttpHeaders.CONTENT_LENGTH, 3);
+
+    cache.get("todos", upstream(response));
+    Response cached = cache.get("todos", upstream()).toCompletableFuture().join();
+
+    assertThat(cached.getHeaderString(HttpHeaders.ETAG)).isEqualTo("\"1\"");
+    assertThat(cached.getHeaderString(HttpHeaders.CONTENT_ENCODING)).isEqualTo("identity");
+    assertThat(cached.getHeaderString(HttpHeaders.CONTENT_LENGTH)).isNull();
+  }
+
+  @Test
+  public void getShouldReturnNotModifiedIfEntityTagMatches() {
+    cache.get("todos", upstream(ok("\"1\"", "[1]")));
+
+    Response notModified = cache.get("todos", "\"0\", W/\"1\"", upstream()).toCompletableFuture().join();
+    assertThat(notModified.getStatus()).isEqualTo(Response.Status.NOT_MODIFIED.getStatusCode());
+    assertThat(notModified.hasEntity()).isFalse();
+    assertThat(notModified.getHeaderString(HttpHeaders.ETAG)).isEqualTo("\"1\"");
+
+    assertThat(body(cache.get("todos", "\"2\"", upstream()))).isEqualTo("[1]");
+    assertThat(requestedEntityTags).containsExactly((String) null);
+  }
+
+  @Test
+  public void getShouldReturnNotModifiedIfEntityTagOfFetchedResponseMatches() {
+    Response notModified = cache.get("todos", "\"1\"", upstream(ok("\"1\"", "[1]"))).toCompletableFuture().join();
+
+    assertThat(notModified.getStatus()).isEqualTo(Response.Status.NOT_MODIFIED.getStatusCode());
+    assertThat(requestedEntityTags).containsExactly((String) null);
+    assertThat(body(cache.get("todos", upstream()))).isEqualTo("[1]");
+  }
+
+  @Test
+  public void getShouldServeStaleResponseWhileRevalidating() {
+    cache.get("todos", upstream(ok("\"1\"", "[1]")));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(2000));
+
+    CompletableFuture<Response> revalidation = new CompletableFuture<>();
+    Function<String, CompletionStage<Response>> upstream = pending(revalidation);
+    assertThat(body(cache.get("todos", upstream))).isEqualTo("[1]");
+    assertThat(body(cache.get("todos", upstream))).isEqualTo("[1]");
+
+    revalidation.complete(ok("\"2\"", "[1,2]"));
+
+    assertThat(requestedEntityTags).containsExactly(null, "\"1\"");
+    assertThat(body(cache.get("todos", upstream()))).isEqualTo("[1,2]");
+  }
+
+  @Test
+  public void getShouldRevalidateExpiredResponseWithEntityTag() {
+    cache.get("todos", upstream(ok("\"1\"", "[1]")));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(6000));
+
+    assertThat(body(cache.get("todos", upstream(notModified())))).isEqualTo("[1]");
+
+    assertThat(requestedEntityTags).containsExactly(null, "\"1\"");
+    assertThat(cache.getRevalidations()).isEqualTo(1);
+    assertThat(body(cache.get("todos", upstream()))).isEqualTo("[1]");
+  }
+
+  @Test
+  public void getShouldStreamLargeResponseWithoutCaching() {
+    String body = "[1,2,3,4,5,6,7,8,9,10]";
+
+    assertThat(body(cache.get("todos", upstream(ok("\"1\"", body))))).isEqualTo(body);
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void getShouldCloseLargeResponseOfBackgroundRevalidation() {
+    cache.get("todos", upstream(ok("\"1\"", "[1]")));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(2000));
+
+    Response large = ok("\"2\"", "[1,2,3,4,5,6,7,8,9,10]");
+    assertThat(body(cache.get("todos", upstream(large)))).isEqualTo("[1]");
+
+    Mockito.verify(large).close();
+    assertThat(cache.size()).isZero();
+  }
+
+  @Test
+  public void getShouldShareInFlightRequest() {
+    CompletableFuture<Response> request = new CompletableFuture<>();
+    Function<String, CompletionStage<Response>> upstream = pending(request);
+
+    List<CompletableFuture<Response>> responses = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      responses.add(cache.get("todos", upstream).toCompletableFuture());
+    }
+    assertThat(responses).allMatch(response -> !response.isDone());
+
+    request.complete(ok("\"1\"", "[1]"));
+
+    assertThat(responses).allMatch(response -> body(response).equals("[1]"));
+    assertThat(requestedEntityTags).hasSize(1);
+    assertThat(cache.getCollapsed()).isEqualTo(7);
+  }
+
+  @Test
+  public void getShouldShareFailureOfInFlightRequest() {
+    CompletableFuture<Response> request = new CompletableFuture<>();
+    Function<String, CompletionStage<Response>> upstream = pending(request);
+
+    CompletableFuture<Response> first = cache.get("todos", upstream).toCompletableFuture();
+    CompletableFuture<Response> second = cache.get("todos", upstream).toCompletableFuture();
+
+    request.completeExceptionally(new IllegalStateException("service unavailable"));
+
+    assertThatThrownBy(first::join).hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(requestedEntityTags).hasSize(1);
+  }
+
+  @Test
+  public void getLastKnownShouldReturnExpiredResponse() {
+    cache.get("todos", upstream(ok("\"1\"", "[1]")));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(60000));
+
+    Optional<Response> lastKnown = cache.getLastKnown("todos");
+    assertThat(lastKnown).isPresent();
+    assertThat(body(CompletableFuture.completedFuture(lastKnown.get()))).isEqualTo("[1]");
+    assertThat(cache.getLastKnown("todos/1")).isEmpty();
+    assertThat(cache.getFallbacks()).isEqualTo(1);
+  }
+
+  @Test
+  public void invalidateShouldRemoveCachedResponses() {
+    cache.get("todos", upstream(ok("\"1\"", "[1]")));
+
+    cache.invalidate();
+
+    assertThat(cache.size()).isZero();
+    assertThat(body(cache.get("todos", upstream(ok("\"2\"", "[1,2]"))))).isEqualTo("[1,2]");
+  }
+
+  private Function<String, CompletionStage<Response>> upstream(final Response... responses) {
+    Iterator<Response> iterator = Arrays.asList(responses).iterator();
+    return entityTag -> {
+      requestedEntityTags.add(entityTag);
+      return CompletableFuture.completedFuture(iterator.next());
+    };
+  }
+
+  private Function<String, CompletionStage<Response>> pending(final CompletableFuture<Response> response) {
+    return entityTag -> {
+      requestedEntityTags.add(entityTag);
+      return response;
+    };
+  }
+
+  private static Response ok(final String entityTag, final String body) {
+    MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    headers.add(HttpHeaders.ETAG, entityTag);
+    Response response = Mockito.mock(Response.class, Mockito.withSettings().lenient());
+    Mockito.when(response.getStatus()).thenReturn(Response.Status.OK.getStatusCode());
+    Mockito.when(response.getStatusInfo()).thenReturn(Response.Status.OK);
+    Mockito.when(response.getHeaders()).thenReturn(headers);
+    Mockito.when(response.hasEntity()).thenReturn(true);
+    Mockito.when(response.readEntity(InputStream.class)).thenReturn(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    return response;
+  }
+
+  private static Response notModified() {
+    Response response = Mockito.mock(Response.class, Mockito.withSettings().lenient());
+    Mockito.when(response.getStatus()).thenReturn(Response.Status.NOT_MODIFIED.getStatusCode());
+    return response;
+  }
+
+  private static String body(final CompletionStage<Response> response) {
+    Object entity = response.toCompletableFuture().join().getEntity();
+    if (entity instanceof byte[]) {
+      return new String((byte[]) entity, StandardCharsets.UTF_8);
+    }
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try {
+      ((StreamingOutput) entity).write(outputStream);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -21,10 +21,12 @@ import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.Ap
 import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ApplicationErrorsDTO;
 import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ErrorDTO;
 
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.concurrent.CompletionException;
 
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.ForbiddenException;
@@ -33,6 +35,7 @@ import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.NotFoundException;
 import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 /**
@@ -163,4 +166,18 @@ public class DefaultExceptionMapperTest {
     assertThat(error.getUuid()).isNotNull();
     assertThat(error.getTimestamp()).isNotNull();
   }
+
+  @Test
+  public void toResponseShouldReturn503ForCircuitBreakerOpenException() {
+    Response response = exceptionMapper.toResponse(new CompletionException(new CircuitBreakerOpenException("circuit is open")));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+    assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("5");
+    assertThat(response.hasEntity()).isTrue();
+
+    ApplicationErrorDTO error = (ApplicationErrorDTO) response.getEntity();
+    assertThat(error.getCode()).isEqualTo("SERVICE_UNAVAILABLE");
+    assertThat(error.getMessage()).isEqualTo("The service is temporarily not available");
+    assertThat(error.getUuid()).isNotNull();
+    assertThat(error.getTimestamp()).isNotNull();
+  }
 }
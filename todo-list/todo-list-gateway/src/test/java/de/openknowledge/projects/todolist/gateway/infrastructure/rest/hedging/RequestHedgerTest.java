@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.hedging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer.LoadBalancer;
+import de.openknowledge.projects.todolist.gateway.infrastructure.rest.balancer.Upstream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.Response;
+
+/**
+ * Test class for the {@link RequestHedger}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class RequestHedgerTest {
+
+  @Mock
+  private ScheduledExecutorService executor;
+
+  @Mock
+  private ScheduledFuture<?> timer;
+
+  private final List<Runnable> timers = new ArrayList<>();
+
+  private final List<CompletableFuture<Response>> requests = new ArrayList<>();
+
+  @BeforeEach
+  public void setUp() {
+    Mockito.when(executor.schedule(Mockito.any(Runnable.class), Mockito.eq(20L), Mockito.eq(TimeUnit.MILLISECONDS)))
+        .thenAnswer(invocation -> {
+          timers.add(invocation.getArgument(0));
+          return timer;
+        });
+  }
+
+  @Test
+  public void hedgeShouldNotHedgeAnsweredRequest() {
+    RequestHedger hedger = new RequestHedger(95, 20, 100, executor);
+
+    CompletionStage<Response> response = hedger.hedge(request());
+    requests.get(0).complete(Response.ok().build());
+    timers.get(0).run();
+
+    assertThat(response.toCompletableFuture().join().getStatus()).isEqualTo(200);
+    assertThat(requests).hasSize(1);
+    assertThat(hedger.getHedges()).isZero();
+    Mockito.verify(timer).cancel(false);
+  }
+
+  @Test
+  public void hedgeShouldSendHedgedRequestIfRequestIsNotAnsweredInTime() {
+    RequestHedger hedger = new RequestHedger(95, 20, 100, executor);
+
+    CompletableFuture<Response> response = hedger.hedge(request()).toCompletableFuture();
+    timers.get(0).run();
+
+    assertThat(requests).hasSize(2);
+    assertThat(response).isNotDone();
+
+    requests.get(1).complete(Response.ok("hedged").build());
+
+    assertThat(response.join().getEntity()).isEqualTo("hedged");
+    assertThat(requests.get(0)).isCancelled();
+    assertThat(hedger.getHedges()).isEqualTo(1);
+    assertThat(hedger.getWins()).isEqualTo(1);
+  }
+
+  @Test
+  public void hedgeShouldCancelHedgedRequestIfRequestIsAnsweredFirst() {
+    RequestHedger hedger = new RequestHedger(95, 20, 100, executor);
+
+    CompletableFuture<Response> response = hedger.hedge(request()).toCompletableFuture();
+    timers.get(0).run();
+    requests.get(0).complete(Response.ok("first").build());
+
+    assertThat(response.join().getEntity()).isEqualTo("first");
+    assertThat(requests.get(1)).isCancelled();
+    assertThat(hedger.getHedges()).isEqualTo(1);
+    assertThat(hedger.getWins()).isZero();
+  }
+
+  @Test
+  public void hedgeShouldWaitForHedgedRequestIfRequestFails() {
+    RequestHedger hedger = new RequestHedger(95, 20, 100, executor);
+
+    CompletableFuture<Response> response = hedger.hedge(request()).toCompletableFuture();
+    timers.get(0).run();
+    requests.get(0).completeExceptionally(new IllegalStateException("connection reset"));
+
+    assertThat(response).isNotDone();
+
+    requests.get(1).complete(Response.ok("hedged").build());
+
+    assertThat(response.join().getEntity()).isEqualTo("hedged");
+  }
+
+  @Test
+  public void hedgeShouldNotExceedBudget() {
+    RequestHedger hedger = new RequestHedger(95, 20, 10, executor);
+
+    for (int i = 0; i < 20; i++) {
+      hedger.hedge(request());
+    }
+    timers.forEach(Runnable::run);
+
+    assertThat(hedger.getRequests()).isEqualTo(20);
+    assertThat(hedger.getHedges()).isEqualTo(2);
+    assertThat(requests).hasSize(22);
+  }
+
+  @Test
+  public void hedgeShouldSendHedgedRequestToAnotherInstance() {
+    RequestHedger hedger = new RequestHedger(95, 20, 100, executor);
+    List<String> instances = new ArrayList<>();
+    Upstream<Supplier<CompletionStage<Response>>> idle = upstream("idle", instances);
+    Upstream<Supplier<CompletionStage<Response>>> busy = upstream("busy", instances);
+    LoadBalancer<Supplier<CompletionStage<Response>>> busyBalancer = new LoadBalancer<>(Arrays.asList(busy), 5, 2000, 30000, 1000);
+    for (int i = 0; i < 5; i++) {
+      busyBalancer.call(Supplier::get);
+    }
+    instances.clear();
+    LoadBalancer<Supplier<CompletionStage<Response>>> balancer = new LoadBalancer<>(Arrays.asList(idle, busy), 5, 2000, 30000, 1000);
+
+    hedger.hedge(() -> balancer.call(Supplier::get));
+    timers.get(0).run();
+
+    assertThat(instances).containsExactly("idle", "busy");
+  }
+
+  private Supplier<CompletionStage<Response>> request() {
+    return () -> {
+      CompletableFuture<Response> request = new CompletableFuture<>();
+      requests.add(request);
+      return request;
+    };
+  }
+
+  private Upstream<Supplier<CompletionStage<Response>>> upstream(final String name, final List<String> instances) {
+    return new Upstream<>(name, URI.create("http://" + name + "/health/ready"), () -> {
+      instances.add(name);
+      return new CompletableFuture<>();
+    });
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ApplicationErrorDTO;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+/**
+ * Test class for the {@link AdmissionControl}, with a local stub of the proxied service that answers requests on demand.
+ */
+public class AdmissionControlTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private final List<CompletableFuture<Response>> requests = new ArrayList<>();
+
+  private final AdmissionControl admissionControl = new AdmissionControl(10, 5, 50, 1.5, 1, clock::get);
+
+  @Test
+  public void admitShouldRejectRequestsBeyondLimit() {
+    List<Response> rejected = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      CompletableFuture<Response> response = admissionControl.admit("getTodos", stub()).toCompletableFuture();
+      if (response.isDone()) {
+        rejected.add(response.join());
+      }
+    }
+
+    assertThat(requests).hasSize(10);
+    assertThat(rejected).hasSize(40).allSatisfy(response -> {
+      assertThat(response.getStatus()).isEqualTo(Response.Status.SERVICE_UNAVAILABLE.getStatusCode());
+      assertThat(response.getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+      assertThat(((ApplicationErrorDTO) response.getEntity()).getCode()).isEqualTo("OVERLOADED");
+    });
+    assertThat(admissionControl.getInFlight("getTodos")).isEqualTo(10);
+    assertThat(admissionControl.getRejections("getTodos")).isEqualTo(40);
+
+    complete(Response.ok().build());
+
+    assertThat(admissionControl.getInFlight("getTodos")).isZero();
+    assertThat(admissionControl.admit("getTodos", stub()).toCompletableFuture()).isNotDone();
+  }
+
+  @Test
+  public void admitShouldLimitRoutesSeparately() {
+    for (int i = 0; i < 10; i++) {
+      admissionControl.admit("getTodos", stub());
+    }
+
+    assertThat(admissionControl.admit("getTodos", stub()).toCompletableFuture()).isDone();
+    assertThat(admissionControl.admit("createTodo", stub()).toCompletableFuture()).isNotDone();
+  }
+
+  @Test
+  public void admitShouldIncreaseLimitWhileRoundTripTimeIsStable() {
+    load(20, 10);
+
+    assertThat(admissionControl.getLimit("getTodos")).isEqualTo(50);
+  }
+
+  @Test
+  public void admitShouldDecreaseLimitIfRoundTripTimeGrows() {
+    load(20, 10);
+    load(20, 100);
+
+    assertThat(admissionControl.getLimit("getTodos")).isLessThan(25);
+  }
+
+  @Test
+  public void admitShouldDecreaseLimitIfRequestsFail() {
+    for (int i = 0; i < 20; i++) {
+      admissionControl.admit("getTodos", stub());
+      requests.get(i).completeExceptionally(new IllegalStateException("timeout"));
+    }
+
+    assertThat(admissionControl.getLimit("getTodos")).isEqualTo(5);
+  }
+
+  @Test
+  public void admitShouldIgnoreRoundTripTimeOfCachedResponses() {
+    load(20, 10);
+
+    for (int round = 0; round < 20; round++) {
+      int limit = admissionControl.getLimit("getTodos");
+      for (int i = 0; i < limit; i++) {
+        if (i % 2 == 0) {
+          admissionControl.admit("getTodos", roundTrip -> CompletableFuture.completedFuture(Response.ok().build()));
+        } else {
+          admissionControl.admit("getTodos", stub());
+        }
+      }
+      clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+      complete(Response.ok().build());
+    }
+
+    assertThat(admissionControl.getLimit("getTodos")).isEqualTo(50);
+    assertThat(admissionControl.getInFlight("getTodos")).isZero();
+  }
+
+  @Test
+  public void admitShouldIgnoreTimeUntilRequestIsSentToService() {
+    load(20, 10);
+
+    for (int round = 0; round < 20; round++) {
+      int limit = admissionControl.getLimit("getTodos");
+      CompletableFuture<Void> queued = new CompletableFuture<>();
+      for (int i = 0; i < limit; i++) {
+        admissionControl.admit("getTodos", roundTrip -> queued.thenCompose(ignored -> stub().apply(roundTrip)));
+      }
+      clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+      queued.complete(null);
+      clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+      complete(Response.ok().build());
+    }
+
+    assertThat(admissionControl.getLimit("getTodos")).isEqualTo(50);
+  }
+
+  /**
+   * Sends as many concurrent requests as the limit allows, which are answered after the given round trip time.
+   */
+  private void load(final int rounds, final long rtt) {
+    for (int round = 0; round < rounds; round++) {
+      int limit = admissionControl.getLimit("getTodos");
+      for (int i = 0; i < limit; i++) {
+        admissionControl.admit("getTodos", stub());
+      }
+      clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(rtt));
+      complete(Response.ok().build());
+    }
+  }
+
+  private void complete(final Response response) {
+    requests.forEach(request -> request.complete(response));
+    requests.clear();
+  }
+
+  private Function<RoundTrip, CompletionStage<Response>> stub() {
+    return roundTrip -> roundTrip.measure(() -> {
+      CompletableFuture<Response> request = new CompletableFuture<>();
+      requests.add(request);
+      return request;
+    });
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.openknowledge.projects.todolist.gateway.application.TodoGatewayResource;
+import de.openknowledge.projects.todolist.gateway.infrastructure.domain.error.ApplicationErrorDTO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+
+/**
+ * Test class for the {@link RateLimitFilter}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class RateLimitFilterTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @InjectMocks
+  private RateLimitFilter filter;
+
+  @Mock
+  private ResourceInfo resourceInfo;
+
+  @Mock
+  private HttpServletRequest servletRequest;
+
+  @Spy
+  private RateLimiter rateLimiter = new RateLimiter(2, 1, 1000, 60000, clock::get, Collections.singleton("key"));
+
+  @Mock
+  private ContainerRequestContext requestContext;
+
+  @Mock
+  private ContainerResponseContext responseContext;
+
+  @BeforeEach
+  public void setUp() throws NoSuchMethodException {
+    Method createTodo = TodoGatewayResource.class.getMethod("createTodo", String.class, InputStream.class);
+    Mockito.when(resourceInfo.getResourceMethod()).thenReturn(createTodo);
+  }
+
+  @Test
+  public void filterShouldIdentifyClientByApiKey() {
+    Mockito.when(requestContext.getHeaderString(RateLimitFilter.API_KEY)).thenReturn("key");
+
+    filter.filter(requestContext);
+    filter.filter(requestContext);
+    filter.filter(requestContext);
+
+    ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+    Mockito.verify(requestContext).abortWith(response.capture());
+    assertThat(response.getValue().getStatus()).isEqualTo(Response.Status.TOO_MANY_REQUESTS.getStatusCode());
+    assertThat(response.getValue().getHeaderString(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    assertThat(response.getValue().getHeaderString(RateLimitFilter.RATE_LIMIT_LIMIT)).isEqualTo("2");
+    assertThat(response.getValue().getHeaderString(RateLimitFilter.RATE_LIMIT_REMAINING)).isEqualTo("0");
+    assertThat(((ApplicationErrorDTO) response.getValue().getEntity()).getCode()).isEqualTo("RATE_LIMITED");
+    Mockito.verifyZeroInteractions(servletRequest);
+  }
+
+  @Test
+  public void filterShouldIdentifyClientByRemoteAddressWithoutApiKey() {
+    Mockito.when(servletRequest.getRemoteAddr()).thenReturn("127.0.0.1");
+
+    filter.filter(requestContext);
+
+    assertThat(rateLimiter.getBuckets("createTodo").tryAcquire("127.0.0.1")).isZero();
+  }
+
+  @Test
+  public void filterShouldIdentifyClientByRemoteAddressWithUnknownApiKey() {
+    Mockito.when(requestContext.getHeaderString(RateLimitFilter.API_KEY)).thenReturn("unknown");
+    Mockito.when(servletRequest.getRemoteAddr()).thenReturn("127.0.0.1");
+
+    filter.filter(requestContext);
+
+    assertThat(rateLimiter.getBuckets("createTodo").tryAcquire("127.0.0.1")).isZero();
+    assertThat(rateLimiter.getBuckets("createTodo").tryAcquire("unknown")).isEqualTo(1);
+  }
+
+  @Test
+  public void filterShouldAddRateLimitHeaders() {
+    Mockito.when(requestContext.getHeaderString(RateLimitFilter.API_KEY)).thenReturn("key");
+    filter.filter(requestContext);
+
+    ArgumentCaptor<Object> buckets = ArgumentCaptor.forClass(Object.class);
+    ArgumentCaptor<Object> remaining = ArgumentCaptor.forClass(Object.class);
+    Mockito.verify(requestContext, Mockito.times(2)).setProperty(Mockito.anyString(), Mockito.any());
+    Mockito.verify(requestContext).setProperty(Mockito.endsWith(".buckets"), buckets.capture());
+    Mockito.verify(requestContext).setProperty(Mockito.endsWith(".remaining"), remaining.capture());
+
+    MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+    Mockito.when(requestContext.getProperty(Mockito.endsWith(".buckets"))).thenReturn(buckets.getValue());
+    Mockito.when(requestContext.getProperty(Mockito.endsWith(".remaining"))).thenReturn(remaining.getValue());
+    Mockito.when(responseContext.getHeaders()).thenReturn(headers);
+
+    filter.filter(requestContext, responseContext);
+
+    assertThat(headers.getFirst(RateLimitFilter.RATE_LIMIT_LIMIT)).isEqualTo(2);
+    assertThat(headers.getFirst(RateLimitFilter.RATE_LIMIT_REMAINING)).isEqualTo(1L);
+    assertThat(headers.getFirst(RateLimitFilter.RATE_LIMIT_RESET)).isEqualTo(1L);
+  }
+}
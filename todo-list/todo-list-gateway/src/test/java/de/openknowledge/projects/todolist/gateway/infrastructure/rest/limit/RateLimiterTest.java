@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test class for the {@link RateLimiter}.
+ */
+public class RateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private final RateLimiter rateLimiter = new RateLimiter(10, 1, 1000, 60000, clock::get);
+
+  @Test
+  public void tryAcquireShouldRejectRequestsBeyondLimit() {
+    TokenBuckets buckets = rateLimiter.getBuckets("createTodo");
+
+    for (int i = 9; i >= 0; i--) {
+      assertThat(buckets.tryAcquire("client")).isEqualTo(i);
+    }
+
+    long wait = -buckets.tryAcquire("client");
+    assertThat(wait).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+    assertThat(TokenBuckets.toSeconds(wait)).isEqualTo(1);
+    assertThat(buckets.getReset(0)).isEqualTo(1);
+  }
+
+  @Test
+  public void tryAcquireShouldRefillTokens() {
+    TokenBuckets buckets = rateLimiter.getBuckets("createTodo");
+    for (int i = 0; i < 10; i++) {
+      buckets.tryAcquire("client");
+    }
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(300));
+
+    assertThat(buckets.tryAcquire("client")).isEqualTo(2);
+    assertThat(buckets.tryAcquire("client")).isEqualTo(1);
+    assertThat(buckets.tryAcquire("client")).isEqualTo(0);
+    assertThat(buckets.tryAcquire("client")).isNegative();
+  }
+
+  @Test
+  public void tryAcquireShouldLimitClientsAndRoutesSeparately() {
+    for (int i = 0; i < 10; i++) {
+      rateLimiter.getBuckets("createTodo").tryAcquire("client");
+    }
+
+    assertThat(rateLimiter.getBuckets("createTodo").tryAcquire("client")).isNegative();
+    assertThat(rateLimiter.getBuckets("createTodo").tryAcquire("other client")).isEqualTo(9);
+    assertThat(rateLimiter.getBuckets("getTodos").tryAcquire("client")).isEqualTo(9);
+  }
+
+  @Test
+  public void tryAcquireShouldEvictIdleBuckets() {
+    TokenBuckets buckets = rateLimiter.getBuckets("createTodo");
+    // "Aa" and "BB" have the same hash code, so their buckets are held in the same stripe
+    buckets.tryAcquire("Aa");
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(60001));
+    buckets.tryAcquire("BB");
+
+    assertThat(buckets.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void tryAcquireShouldEvictLeastRecentlyUsedBucketIfFull() {
+    TokenBuckets buckets = new RateLimiter(10, 1, 16, 60000, clock::get).getBuckets("createTodo");
+
+    buckets.tryAcquire("Aa");
+    buckets.tryAcquire("BB");
+
+    assertThat(buckets.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void tryAcquireShouldKeepRecentlyUsedBuckets() {
+    TokenBuckets buckets = new RateLimiter(10, 1, 32, 60000, clock::get).getBuckets("createTodo");
+
+    // "Aa", "BB" and "C#" have the same hash code, so their buckets are held in the same stripe
+    buckets.tryAcquire("Aa");
+    clock.addAndGet(1);
+    buckets.tryAcquire("BB");
+    clock.addAndGet(1);
+    buckets.tryAcquire("Aa");
+    clock.addAndGet(1);
+    buckets.tryAcquire("C#");
+
+    assertThat(buckets.size()).isEqualTo(2);
+    assertThat(buckets.tryAcquire("Aa")).isEqualTo(7);
+  }
+
+  @Test
+  public void tryAcquireShouldNotExceedLimitUnderContention() throws Exception {
+    TokenBuckets buckets = new RateLimiter(1000, 1, 1000, 60000, clock::get).getBuckets("createTodo");
+    AtomicInteger acquired = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+
+    List<CompletableFuture<Void>> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      threads.add(CompletableFuture.runAsync(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        for (int j = 0; j < 500; j++) {
+          if (buckets.tryAcquire("client") >= 0) {
+            acquired.incrementAndGet();
+          }
+        }
+      }));
+    }
+    start.countDown();
+    CompletableFuture.allOf(threads.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+    assertThat(acquired.get()).isEqualTo(1000);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.gateway.infrastructure.rest.limit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark of {@link TokenBuckets#tryAcquire(String)} under contention, run with <code>mvn -P benchmark test -DskipTests
+ * -Dbenchmark=TokenBucketsBenchmark</code>. Add <code>-prof gc</code> to the benchmark pattern to check that the hot path doesn't
+ * allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class TokenBucketsBenchmark {
+
+  private static final AtomicInteger CLIENTS = new AtomicInteger();
+
+  private TokenBuckets buckets;
+
+  @Setup
+  public void setUp() {
+    buckets = new TokenBuckets(1_000_000_000, 1, 10000, 60000, System::nanoTime);
+  }
+
+  /**
+   * All threads take tokens from the bucket of the same client.
+   */
+  @Benchmark
+  public long sameClient() {
+    return buckets.tryAcquire("client");
+  }
+
+  /**
+   * Every thread takes tokens from the bucket of its own client.
+   */
+  @Benchmark
+  public long ownClient(final Client client) {
+    return buckets.tryAcquire(client.name);
+  }
+
+  @State(Scope.Thread)
+  public static class Client {
+
+    private String name;
+
+    @Setup
+    public void setUp() {
+      name = "client-" + CLIENTS.incrementAndGet();
+    }
+  }
+}
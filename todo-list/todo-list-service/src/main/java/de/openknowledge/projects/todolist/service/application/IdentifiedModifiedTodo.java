@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.application;
+
+import de.openknowledge.projects.todolist.service.domain.TodoValidationErrorCodes;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import javax.validation.constraints.NotNull;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A DTO that represents a modified {@link de.openknowledge.projects.todolist.service.domain.Todo} within a batch update.
+ */
+@Schema
+@XmlRootElement
+@XmlAccessorType(XmlAccessType.FIELD)
+public class IdentifiedModifiedTodo extends ModifiedTodo {
+
+  @Schema(example = "1000", required = true)
+  @XmlElement
+  @NotNull(groups = UpdateTodoValidationGroup.class, payload = TodoValidationErrorCodes.IdIsNull.class)
+  private Long id;
+
+  public IdentifiedModifiedTodo() {
+    super();
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public void setId(final Long id) {
+    this.id = id;
+  }
+
+  @Override
+  protected Object[] values() {
+    return new Object[]{id, getTitle(), getDescription(), getDueDate(), getDone()};
+  }
+
+  @Override
+  public String toString() {
+    return "IdentifiedModifiedTodo{" +
+           "id=" + id +
+           ", title='" + getTitle() + '\'' +
+           ", description='" + getDescription() + '\'' +
+           ", dueDate='" + getDueDate() + '\'' +
+           ", done=" + getDone() +
+           '}';
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.application;
+
+import de.openknowledge.projects.todolist.service.domain.Todo;
+import de.openknowledge.projects.todolist.service.domain.TodoRepository;
+import de.openknowledge.projects.todolist.service.infrastructure.domain.error.ApplicationErrorDTO;
+import de.openknowledge.projects.todolist.service.infrastructure.domain.error.ApplicationErrorsDTO;
+import de.openknowledge.projects.todolist.service.infrastructure.validation.ValidationErrorDTO;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Timed;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.media.Content;
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.eclipse.microprofile.openapi.annotations.parameters.RequestBody;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponse;
+import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * A resource that creates, updates and deletes multiple {@link Todo} entities within one transaction, and finds multiple {@link Todo}
+ * entities with one query.
+ */
+@Path("todos/batch")
+@Consumes({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+@Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML})
+@Timed(name = "todos.batch", unit = MetricUnits.MILLISECONDS, description = "Metrics of the TodoBatchResource", absolute = true)
+public class TodoBatchResource {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TodoBatchResource.class);
+
+  static final int MAX_BATCH_SIZE = 1000;
+
+  @Inject
+  private TodoRepository repository;
+
+  @Inject
+  private Validator validator;
+
+  @POST
+  @Transactional
+  @Operation(description = "Create multiple todos")
+  @APIResponses({
+      @APIResponse(responseCode = "200", description = "Results of the single creations",
+          content = @Content(schema = @Schema(implementation = TodoBatchResultDTO.class))),
+      @APIResponse(responseCode = "400", description = "Invalid batch size",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorsDTO.class))),
+      @APIResponse(responseCode = "500", description = "Internal server error",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
+  })
+  public Response createTodos(
+      @RequestBody(description = "new todos", required = true, content = @Content(schema = @Schema(implementation = NewTodo.class)))
+      final List<NewTodo> newTodos) {
+    LOG.info("Create {} todos", newTodos != null ? newTodos.size() : 0);
+    validateBatchSize(newTodos);
+
+    List<TodoBatchResultDTO> results = new ArrayList<>(newTodos.size());
+    for (int index = 0; index < newTodos.size(); index++) {
+      NewTodo newTodo = newTodos.get(index);
+
+      List<ValidationErrorDTO> errors = validate(newTodo, CreateTodoValidationGroup.class);
+      if (!errors.isEmpty()) {
+        results.add(new TodoBatchResultDTO(index, null, Status.BAD_REQUEST, errors));
+        continue;
+      }
+
+      Todo todo = Todo.newBuilder()
+          .withTitle(newTodo.getTitle())
+          .withDescription(newTodo.getDescription())
+          .withDueDate(newTodo.getDueDate())
+          .setDone(newTodo.getDone())
+          .build();
+
+      repository.create(todo);
+
+      results.add(new TodoBatchResultDTO(index, todo.getId(), Status.CREATED));
+    }
+
+    LOG.info("Todos created {}", results);
+
+    return toResponse(results);
+  }
+
+  @DELETE
+  @Transactional
+  @Operation(description = "Delete multiple todos")
+  @APIResponses({
+      @APIResponse(responseCode = "200", description = "Results of the single deletions",
+          content = @Content(schema = @Schema(implementation = TodoBatchResultDTO.class))),
+      @APIResponse(responseCode = "400", description = "Invalid batch size",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorsDTO.class))),
+      @APIResponse(responseCode = "500", description = "Internal server error",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
+  })
+  public Response deleteTodos(@Parameter(description = "todo identifiers") @QueryParam("id") final List<Long> todoIds) {
+    LOG.info("Delete todos with ids {}", todoIds);
+    validateBatchSize(todoIds);
+
+    Map<Long, Todo> foundTodos = findAllById(todoIds);
+
+    List<TodoBatchResultDTO> results = new ArrayList<>(todoIds.size());
+    for (int index = 0; index < todoIds.size(); index++) {
+      Long todoId = todoIds.get(index);
+
+      Todo todo = foundTodos.remove(todoId);
+      if (todo == null) {
+        LOG.warn("Todo with id {} not found", todoId);
+        results.add(new TodoBatchResultDTO(index, todoId, Status.NOT_FOUND));
+        continue;
+      }
+
+      repository.delete(todo);
+
+      results.add(new TodoBatchResultDTO(index, todoId, Status.NO_CONTENT));
+    }
+
+    LOG.info("Todos deleted {}", results);
+
+    return toResponse(results);
+  }
+
+  @GET
+  @Operation(description = "Find multiple todos")
+  @APIResponses({
+      @APIResponse(responseCode = "200", description = "Results of the single lookups in the order of the identifiers, identifiers out of "
+                                                       + "range are marked with status 400",
+          content = @Content(schema = @Schema(implementation = TodoBatchResultDTO.class))),
+      @APIResponse(responseCode = "400", description = "Invalid batch size",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorsDTO.class))),
+      @APIResponse(responseCode = "500", description = "Internal server error",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
+  })
+  public Response getTodos(@Parameter(description = "todo identifiers") @QueryParam("id") final List<Long> todoIds) {
+    LOG.info("Find todos with ids {}", todoIds);
+    validateBatchSize(todoIds);
+
+    Map<Long, Todo> foundTodos = findAllById(todoIds);
+
+    List<TodoBatchResultDTO> results = new ArrayList<>(todoIds.size());
+    for (int index = 0; index < todoIds.size(); index++) {
+      Long todoId = todoIds.get(index);
+
+      List<ValidationErrorDTO> errors = validateId(todoId);
+      if (!errors.isEmpty()) {
+        results.add(new TodoBatchResultDTO(index, todoId, Status.BAD_REQUEST, errors));
+        continue;
+      }
+
+      Todo todo = foundTodos.get(todoId);
+      if (todo == null) {
+        LOG.debug("Todo with id {} not found", todoId);
+        results.add(new TodoBatchResultDTO(index, todoId, Status.NOT_FOUND));
+        continue;
+      }
+
+      results.add(new TodoBatchResultDTO(index, todoId, new TodoFullDTO(todo)));
+    }
+
+    LOG.info("{} of {} todos found", foundTodos.size(), todoIds.size());
+
+    return toResponse(results);
+  }
+
+  @PUT
+  @Transactional
+  @Operation(description = "Update multiple todos")
+  @APIResponses({
+      @APIResponse(responseCode = "200", description = "Results of the single updates",
+          content = @Content(schema = @Schema(implementation = TodoBatchResultDTO.class))),
+      @APIResponse(responseCode = "400", description = "Invalid batch size",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorsDTO.class))),
+      @APIResponse(responseCode = "500", description = "Internal server error",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
+  })
+  public Response updateTodos(
+      @RequestBody(description = "modified todos", required = true, content = @Content(schema = @Schema(implementation = IdentifiedModifiedTodo.class)))
+      final List<IdentifiedModifiedTodo> modifiedTodos) {
+    LOG.info("Update {} todos", modifiedTodos != null ? modifiedTodos.size() : 0);
+    validateBatchSize(modifiedTodos);
+
+    Map<Long, Todo> foundTodos = findAllById(modifiedTodos.stream()
+                                                 .filter(Objects::nonNull)
+                                                 .map(IdentifiedModifiedTodo::getId)
+                                                 .collect(Collectors.toList()));
+
+    List<TodoBatchResultDTO> results = new ArrayList<>(modifiedTodos.size());
+    for (int index = 0; index < modifiedTodos.size(); index++) {
+      IdentifiedModifiedTodo modifiedTodo = modifiedTodos.get(index);
+
+      List<ValidationErrorDTO> errors = validate(modifiedTodo, UpdateTodoValidationGroup.class);
+      if (!errors.isEmpty()) {
+        results.add(new TodoBatchResultDTO(index, modifiedTodo.getId(), Status.BAD_REQUEST, errors));
+        continue;
+      }
+
+      Todo todo = foundTodos.get(modifiedTodo.getId());
+      if (todo == null) {
+        LOG.warn("Todo with id {} not found", modifiedTodo.getId());
+        results.add(new TodoBatchResultDTO(index, modifiedTodo.getId(), Status.NOT_FOUND));
+        continue;
+      }
+
+      todo.updateTodo(modifiedTodo.getTitle(), modifiedTodo.getDescription(), modifiedTodo.getDueDate(), modifiedTodo.getDone());
+
+      repository.update(todo);
+
+      results.add(new TodoBatchResultDTO(index, todo.getId(), Status.NO_CONTENT));
+    }
+
+    LOG.info("Todos updated {}", results);
+
+    return toResponse(results);
+  }
+
+  private Map<Long, Todo> findAllById(final Collection<Long> todoIds) {
+    Set<Long> ids = todoIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+    return repository.findAllById(ids)
+        .stream()
+        .collect(Collectors.toMap(Todo::getId, Function.identity()));
+  }
+
+  private <T> List<ValidationErrorDTO> validate(final T todo, final Class<?> group) {
+    if (todo == null) {
+      throw new BadRequestException("batch must not contain null values");
+    }
+
+    Set<ConstraintViolation<T>> violations = validator.validate(todo, group);
+    return violations.stream()
+        .map(ValidationErrorDTO::new)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Validates an identifier with the constraints of the identifier of a single lookup (see {@link TodoResource#getTodo(Long)}).
+   */
+  private List<ValidationErrorDTO> validateId(final Long todoId) {
+    return validator.validateValue(TodoIdentifier.class, "id", todoId)
+        .stream()
+        .map(ValidationErrorDTO::new)
+        .collect(Collectors.toList());
+  }
+
+  private static void validateBatchSize(final Collection<?> batch) {
+    if (batch == null || batch.isEmpty() || batch.size() > MAX_BATCH_SIZE) {
+      throw new BadRequestException(String.format("batch must contain between 1 and %d items", MAX_BATCH_SIZE));
+    }
+  }
+
+  private static Response toResponse(final List<TodoBatchResultDTO> results) {
+    return Response.status(Status.OK)
+        .entity(new GenericEntity<List<TodoBatchResultDTO>>(results) {
+        }).build();
+  }
+
+  /**
+   * The identifier of a todo with the constraints of a path parameter.
+   */
+  private static final class TodoIdentifier {
+
+    @Min(1)
+    @Max(10000)
+    private Long id;
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.application;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.service.infrastructure.domain.error.ErrorDTO;
+import de.openknowledge.projects.todolist.service.infrastructure.domain.value.AbstractValueObject;
+
+import org.eclipse.microprofile.openapi.annotations.media.Schema;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.ws.rs.core.Response.Status;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+/**
+ * A DTO that represents the result of a single item of a batch request.
+ */
+@Schema
+@XmlRootElement
+public class TodoBatchResultDTO extends AbstractValueObject {
+
+  @Schema(example = "0", description = "position of the item in the batch request")
+  @XmlElement
+  private int index;
+
+  @Schema(example = "1000")
+  @XmlElement
+  private Long id;
+
+  @Schema(example = "201", description = "HTTP status the item would have had as single request")
+  @XmlElement
+  private int status;
+
+  @XmlElement
+  private List<ErrorDTO> errors;
+
+  @XmlElement
+  private TodoFullDTO todo;
+
+  public TodoBatchResultDTO() {
+    super();
+  }
+
+  public TodoBatchResultDTO(final int index, final Long id, final Status status) {
+    this(index, id, status, Collections.emptyList());
+  }
+
+  public TodoBatchResultDTO(final int index, final Long id, final TodoFullDTO todo) {
+    this(index, id, Status.OK);
+    this.todo = notNull(todo, "todo must not be null");
+  }
+
+  public TodoBatchResultDTO(final int index, final Long id, final Status status, final Collection<? extends ErrorDTO> errors) {
+    this();
+    this.index = index;
+    this.id = id;
+    this.status = notNull(status, "status must not be null").getStatusCode();
+    this.errors = new ArrayList<>(notNull(errors, "errors must not be null"));
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public List<ErrorDTO> getErrors() {
+    return errors;
+  }
+
+  public TodoFullDTO getTodo() {
+    return todo;
+  }
+
+  @Override
+  protected Object[] values() {
+    return new Object[]{index, id, status, errors, todo};
+  }
+
+  @Override
+  public String toString() {
+    return "TodoBatchResultDTO{" +
+           "index=" + index +
+           ", id=" + id +
+           ", status=" + status +
+           ", errors=" + errors +
+           ", todo=" + todo +
+           '}';
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.application;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.service.infrastructure.persistence.DatabaseNotification;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.json.JsonBuilderFactory;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
+
+/**
+ * Publishes committed changes of todos as server-sent events.
+ * <p>
+ * The table <code>tab_todo</code> sends a notification on the channel {@link #CHANNEL} for every changed row (see 1-schema.sql), e.g.
+ * <code>42,updated,1001</code>. It consists of a number of the global sequence <code>sq_todo_change</code>, which is used as event id, the
+ * kind of change and the id of the todo. PostgreSQL delivers the notifications to all service instances in the order the transactions were
+ * committed, so every instance publishes the same changes in the same order, no matter which instance made them.
+ * <p>
+ * The feed keeps the latest changes in a ring buffer of size <code>todos.changes.buffer-size</code>. A client that reconnects to any
+ * instance with a <code>Last-Event-ID</code> gets the changes after that event replayed from the buffer. If the event is no longer
+ * buffered, e.g. because the instance was restarted, or notifications may have been missed, the client gets a <code>reset</code> event and
+ * has to reload the todos. Idle connections are kept alive by a comment every <code>todos.changes.heartbeat-interval</code> milliseconds.
+ */
+@ApplicationScoped
+public class TodoChangeFeed {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TodoChangeFeed.class);
+
+  static final String CHANNEL = "todo_feed";
+
+  static final String CREATED_EVENT = "created";
+
+  static final String UPDATED_EVENT = "updated";
+
+  static final String DELETED_EVENT = "deleted";
+
+  static final String RESET_EVENT = "reset";
+
+  private static final Pattern PAYLOAD = Pattern.compile("(\\d{1,18}),(" + CREATED_EVENT + '|' + UPDATED_EVENT + '|' + DELETED_EVENT
+                                                         + "),(\\d{1,18})");
+
+  private static final String HEARTBEAT_COMMENT = "heartbeat";
+
+  private final JsonBuilderFactory factory = Json.createBuilderFactory(Collections.emptyMap());
+
+  private final Deque<Change> buffer = new ArrayDeque<>();
+
+  @Inject
+  @ConfigProperty(name = "todos.changes.buffer-size", defaultValue = "1000")
+  private int bufferSize;
+
+  @Inject
+  @ConfigProperty(name = "todos.changes.heartbeat-interval", defaultValue = "2000")
+  private long heartbeatInterval;
+
+  @Resource
+  private ManagedScheduledExecutorService scheduler;
+
+  private Sse sse;
+
+  private SseBroadcaster broadcaster;
+
+  private ScheduledFuture<?> heartbeat;
+
+  public TodoChangeFeed() {
+    super();
+  }
+
+  TodoChangeFeed(final int bufferSize) {
+    this();
+    isTrue(bufferSize > 0, "bufferSize must be greater than 0");
+    this.bufferSize = bufferSize;
+  }
+
+  void onNotification(@Observes final DatabaseNotification notification) {
+    if (!CHANNEL.equals(notification.getChannel())) {
+      return;
+    }
+
+    String payload = notification.getPayload().orElse(null);
+    if (payload == null) {
+      LOG.info("Notifications may have been missed, reset clients");
+      reset();
+      return;
+    }
+
+    Matcher matcher = PAYLOAD.matcher(payload);
+    if (!matcher.matches()) {
+      LOG.warn("Invalid notification payload '{}', reset clients", payload);
+      reset();
+      return;
+    }
+    publish(new Change(Long.parseLong(matcher.group(1)), matcher.group(2), Long.valueOf(matcher.group(3))));
+  }
+
+  /**
+   * Registers the given sink for all following changes. If the client sent a <code>Last-Event-ID</code>, the changes after that event
+   * are sent first, or a <code>reset</code> event if they are no longer available.
+   */
+  public synchronized void register(final Sse sse, final SseEventSink sink, final String lastEventId) {
+    notNull(sse, "sse must not be null");
+    notNull(sink, "sink must not be null");
+
+    if (broadcaster == null) {
+      this.sse = sse;
+      broadcaster = sse.newBroadcaster();
+      broadcaster.onError((failedSink, e) -> LOG.debug("Failed to send change event", e));
+      startHeartbeat();
+    }
+
+    if (lastEventId != null) {
+      Optional<List<Change>> missed = changesAfter(lastEventId);
+      if (missed.isPresent()) {
+        LOG.debug("Replay {} changes after event {}", missed.get().size(), lastEventId);
+        missed.get().forEach(change -> sink.send(toEvent(change)));
+      } else {
+        LOG.info("Changes after event {} are not available, reset client", lastEventId);
+        sink.send(toResetEvent());
+      }
+    }
+
+    broadcaster.register(sink);
+  }
+
+  @PreDestroy
+  synchronized void close() {
+    if (heartbeat != null) {
+      heartbeat.cancel(false);
+    }
+    if (broadcaster != null) {
+      broadcaster.close();
+    }
+  }
+
+  /**
+   * Returns the id of the latest change, i.e. the id a client has seen when it is up to date, or <code>null</code> if no change is
+   * buffered.
+   */
+  synchronized String lastEventId() {
+    return buffer.isEmpty() ? null : Long.toString(buffer.getLast().getSequence());
+  }
+
+  /**
+   * Returns the buffered changes after the change with the given id, or nothing if that change is no longer buffered.
+   * <p>
+   * The sequence numbers are drawn before the transactions are committed, so they are unique but not necessarily ascending. The changes
+   * are therefore replayed in the order they were received, not by their number.
+   */
+  synchronized Optional<List<Change>> changesAfter(final String lastEventId) {
+    Iterator<Change> changes = buffer.descendingIterator();
+    List<Change> missed = new ArrayList<>();
+    while (changes.hasNext()) {
+      Change change = changes.next();
+      if (Long.toString(change.getSequence()).equals(lastEventId)) {
+        Collections.reverse(missed);
+        return Optional.of(missed);
+      }
+      missed.add(change);
+    }
+    return Optional.empty();
+  }
+
+  private synchronized void publish(final Change change) {
+    buffer.addLast(change);
+    while (buffer.size() > bufferSize) {
+      buffer.removeFirst();
+    }
+
+    if (broadcaster != null) {
+      broadcaster.broadcast(toEvent(change));
+    }
+  }
+
+  /**
+   * Drops all buffered changes and tells the connected clients to reload the todos, because changes may have been missed.
+   */
+  private synchronized void reset() {
+    buffer.clear();
+    if (broadcaster != null) {
+      broadcaster.broadcast(toResetEvent());
+    }
+  }
+
+  private void startHeartbeat() {
+    if (scheduler == null) {
+      return;
+    }
+    OutboundSseEvent comment = sse.newEventBuilder().comment(HEARTBEAT_COMMENT).build();
+    heartbeat = scheduler.scheduleWithFixedDelay(() -> broadcaster.broadcast(comment), heartbeatInterval, heartbeatInterval,
+                                                 TimeUnit.MILLISECONDS);
+  }
+
+  private OutboundSseEvent toEvent(final Change change) {
+    return sse.newEventBuilder()
+        .id(Long.toString(change.getSequence()))
+        .name(change.getName())
+        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+        .data(factory.createObjectBuilder().add("id", change.getTodoId()).build().toString())
+        .build();
+  }
+
+  private OutboundSseEvent toResetEvent() {
+    return sse.newEventBuilder()
+        .id(lastEventId())
+        .name(RESET_EVENT)
+        .mediaType(MediaType.APPLICATION_JSON_TYPE)
+        .data(factory.createObjectBuilder().build().toString())
+        .build();
+  }
+
+  /**
+   * A buffered change.
+   */
+  static class Change {
+
+    private final long sequence;
+
+    private final String name;
+
+    private final Long todoId;
+
+    Change(final long sequence, final String name, final Long todoId) {
+      this.sequence = sequence;
+      this.name = name;
+      this.todoId = todoId;
+    }
+
+    long getSequence() {
+      return sequence;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    Long getTodoId() {
+      return todoId;
+    }
+
+    @Override
+    public String toString() {
+      return "Change{" +
+             "sequence=" + sequence +
+             ", name='" + name + '\'' +
+             ", todoId=" + todoId +
+             '}';
+    }
+  }
+}
@@ -66,6 +66,18 @@ public class TodoListDTO extends AbstractValueObject {
     this.done = todo.getDone();
   }
 
+  /**
+   * Creates the DTO directly from a query result, see {@link de.openknowledge.projects.todolist.service.domain.TodoRepository#findAll(Class,
+   * de.openknowledge.projects.todolist.service.domain.TodoFilter, de.openknowledge.projects.todolist.service.domain.TodoCursor, int)}.
+   */
+  public TodoListDTO(final Long id, final String title, final OffsetDateTime dueDate, final Boolean done) {
+    this();
+    this.id = notNull(id, "id must not be null");
+    this.title = notNull(title, "title must not be null");
+    this.dueDate = notNull(dueDate, "dueDate must not be null");
+    this.done = notNull(done, "done must not be null");
+  }
+
   public Long getId() {
     return id;
   }
@@ -16,6 +16,9 @@
 package de.openknowledge.projects.todolist.service.application;
 
 import de.openknowledge.projects.todolist.service.domain.Todo;
+import de.openknowledge.projects.todolist.service.domain.TodoCursor;
+import de.openknowledge.projects.todolist.service.domain.TodoFilter;
+import de.openknowledge.projects.todolist.service.domain.TodoListVersion;
 import de.openknowledge.projects.todolist.service.domain.TodoRepository;
 import de.openknowledge.projects.todolist.service.infrastructure.domain.error.ApplicationErrorDTO;
 import de.openknowledge.projects.todolist.service.infrastructure.domain.error.ApplicationErrorsDTO;
@@ -32,28 +35,54 @@ import org.eclipse.microprofile.openapi.annotations.responses.APIResponses;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.inject.Inject;
+import javax.json.bind.Jsonb;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
 import javax.validation.groups.ConvertGroup;
+import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.Providers;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
 /**
  * A resource that provides access to the {@link Todo} entity.
@@ -66,9 +95,35 @@ public class TodoResource {
 
   private static final Logger LOG = LoggerFactory.getLogger(TodoResource.class);
 
+  static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+  private static final String DEFAULT_PAGE_SIZE = "100";
+
+  private static final long MAX_PAGE_SIZE = 1000;
+
+  private static final int STREAM_FETCH_SIZE = 500;
+
+  private static final String ANY_ENTITY_TAG = "*";
+
+  private static final Pattern VERSION_ENTITY_TAG = Pattern.compile("\"(\\d{1,18})\"");
+
+  private static final Long UNMATCHABLE_VERSION = -1L;
+
   @Inject
   private TodoRepository repository;
 
+  @Inject
+  private TodoChangeFeed changeFeed;
+
+  @Context
+  private UriInfo uriInfo;
+
+  @Context
+  private Request request;
+
+  @Context
+  private Providers providers;
+
   @POST
   @Transactional
   @Operation(description = "Create a new todo")
@@ -104,24 +159,23 @@ public class TodoResource {
   @DELETE
   @Path("/{id}")
   @Transactional
-  @Operation(description = "Delete a todo")
+  @Operation(description = "Delete a todo. If the 'If-Match' header is given, the todo is only deleted if its version matches.")
   @APIResponses({
       @APIResponse(responseCode = "204", description = "Todo deleted"),
       @APIResponse(responseCode = "404", description = "Todo with given id does not exist"),
+      @APIResponse(responseCode = "412", description = "Todo has been modified in the meantime"),
       @APIResponse(responseCode = "500", description = "Internal server error",
           content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
   })
-  public Response deleteTodo(@Parameter(description = "todo identifier") @PathParam("id") @Min(1) @Max(10000) final Long todoId) {
-    LOG.info("Delete todo with id {}", todoId);
+  public Response deleteTodo(@Parameter(description = "todo identifier") @PathParam("id") @Min(1) @Max(10000) final Long todoId,
+                             @Parameter(description = "entity tag of the expected todo version") @HeaderParam(HttpHeaders.IF_MATCH) final String ifMatch) {
+    LOG.info("Delete todo with id {} (If-Match {})", todoId, ifMatch);
 
-    Optional<Todo> foundTodo = repository.find(todoId);
-    if (!foundTodo.isPresent()) {
-      LOG.warn("Todo with id {} not found", todoId);
-      return Response.status(Status.NOT_FOUND).build();
+    Long version = expectedVersion(ifMatch);
+    if (!repository.delete(todoId, version)) {
+      return writeFailed(todoId, version);
     }
 
-    repository.delete(foundTodo.get());
-
     LOG.info("Todo deleted");
 
     return Response.status(Status.NO_CONTENT).build();
@@ -129,9 +183,10 @@ public class TodoResource {
 
   @GET
   @Path("/{id}")
-  @Operation(description = "Find todo by id")
+  @Operation(description = "Find todo by id. Supports conditional requests with 'If-None-Match' and 'If-Modified-Since'.")
   @APIResponses({
       @APIResponse(responseCode = "200", description = "Successful retrieval of requested todo"),
+      @APIResponse(responseCode = "304", description = "Todo not modified"),
       @APIResponse(responseCode = "404", description = "Todo with given id does not exist"),
       @APIResponse(responseCode = "500", description = "Internal server error",
           content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
@@ -145,70 +200,240 @@ public class TodoResource {
       return Response.status(Status.NOT_FOUND).build();
     }
 
+    EntityTag entityTag = new EntityTag(String.valueOf(foundTodo.get().getVersion()));
+    Date lastModified = Date.from(foundTodo.get().getModifiedAt().toInstant().truncatedTo(ChronoUnit.SECONDS));
+
+    ResponseBuilder notModified = request.evaluatePreconditions(lastModified, entityTag);
+    if (notModified != null) {
+      LOG.info("Todo with id {} not modified", todoId);
+      return notModified.tag(entityTag).lastModified(lastModified).build();
+    }
+
     TodoFullDTO todo = new TodoFullDTO(foundTodo.get());
 
     LOG.info("Found todo {}", todo);
 
-    return Response.status(Status.OK).entity(todo).build();
+    return Response.status(Status.OK).entity(todo).tag(entityTag).lastModified(lastModified).build();
   }
 
   @GET
-  @Operation(description = "Find all todos")
+  @Operation(description = "Find todos, ordered by due date and id. Further pages are linked in the 'Link' header with relation 'next'. "
+                            + "Supports conditional requests with 'If-None-Match'.")
   @APIResponses({
       @APIResponse(responseCode = "200", description = "Successful retrieval of todos",
           content = @Content(schema = @Schema(implementation = TodoListDTO.class))),
+      @APIResponse(responseCode = "304", description = "Todos not modified"),
+      @APIResponse(responseCode = "400", description = "Invalid query parameters",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorsDTO.class))),
       @APIResponse(responseCode = "500", description = "Internal server error",
           content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
   })
-  public Response getTodos() {
-    LOG.info("Find all todos");
+  public Response getTodos(@Parameter(description = "maximum number of todos") @QueryParam("limit") @DefaultValue(DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) final int limit,
+                           @Parameter(description = "cursor of the previous page") @QueryParam("after") final String after,
+                           @Parameter(description = "todo state") @QueryParam("done") final Boolean done,
+                           @Parameter(description = "due date (inclusive)") @QueryParam("dueFrom") final OffsetDateTime dueFrom,
+                           @Parameter(description = "due date (exclusive)") @QueryParam("dueTo") final OffsetDateTime dueTo) {
+    LOG.info("Find {} todos (after={}, done={}, dueFrom={}, dueTo={})", limit, after, done, dueFrom, dueTo);
+
+    TodoFilter filter;
+    TodoCursor cursor;
+    try {
+      filter = new TodoFilter(done, dueFrom, dueTo);
+      cursor = after != null ? TodoCursor.decode(after) : null;
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage(), e);
+    }
 
-    List<TodoListDTO> todos = repository.findAll()
-        .stream()
-        .map(TodoListDTO::new)
-        .collect(Collectors.toList());
+    TodoListVersion version = repository.findVersion(filter, cursor);
+    EntityTag entityTag = new EntityTag(version.encode());
+
+    ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+    if (notModified != null) {
+      LOG.info("Todos not modified");
+      return notModified.tag(entityTag).build();
+    }
+
+    List<TodoListDTO> todos = repository.findAll(TodoListDTO.class, filter, cursor, limit + 1);
+    boolean hasNext = todos.size() > limit;
+    if (hasNext) {
+      todos = todos.subList(0, limit);
+    }
 
     LOG.info("Found {} todos", todos.size());
 
     if (todos.isEmpty()) {
-      return Response.status(Status.NO_CONTENT).build();
+      return Response.status(Status.NO_CONTENT).tag(entityTag).build();
     }
 
-    return Response.status(Status.OK)
+    ResponseBuilder response = Response.status(Status.OK)
         .entity(new GenericEntity<List<TodoListDTO>>(todos) {
-        }).build();
+        })
+        .tag(entityTag);
+
+    if (hasNext) {
+      TodoListDTO last = todos.get(todos.size() - 1);
+      String next = new TodoCursor(last.getDueDate(), last.getId()).encode();
+      response.link(uriInfo.getRequestUriBuilder().replaceQueryParam("after", next).build(), "next");
+    }
+
+    return response.build();
+  }
+
+  @GET
+  @Produces(APPLICATION_NDJSON + ";qs=0.5")
+  @Operation(description = "Stream all todos as newline delimited JSON, ordered by due date and id")
+  @APIResponses({
+      @APIResponse(responseCode = "200", description = "Successful retrieval of todos",
+          content = @Content(mediaType = APPLICATION_NDJSON, schema = @Schema(implementation = TodoListDTO.class))),
+      @APIResponse(responseCode = "400", description = "Invalid query parameters",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorsDTO.class))),
+      @APIResponse(responseCode = "500", description = "Internal server error",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
+  })
+  public Response streamTodos(@Parameter(description = "todo state") @QueryParam("done") final Boolean done,
+                              @Parameter(description = "due date (inclusive)") @QueryParam("dueFrom") final OffsetDateTime dueFrom,
+                              @Parameter(description = "due date (exclusive)") @QueryParam("dueTo") final OffsetDateTime dueTo) {
+    LOG.info("Stream todos (done={}, dueFrom={}, dueTo={})", done, dueFrom, dueTo);
+
+    TodoFilter filter;
+    try {
+      filter = new TodoFilter(done, dueFrom, dueTo);
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(e.getMessage(), e);
+    }
+
+    Jsonb jsonb = providers.getContextResolver(Jsonb.class, MediaType.APPLICATION_JSON_TYPE).getContext(TodoListDTO.class);
+    StreamingOutput output = outputStream -> {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+      try {
+        long count = repository.scrollAll(TodoListDTO.class, filter, STREAM_FETCH_SIZE, new NdjsonTodoWriter(writer, jsonb));
+        LOG.info("Streamed {} todos", count);
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+      writer.flush();
+    };
+
+    return Response.status(Status.OK).type(APPLICATION_NDJSON).entity(output).build();
+  }
+
+  @GET
+  @Path("/changes")
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  @Operation(description = "Stream the ids of created, updated and deleted todos as server-sent events")
+  @APIResponses({
+      @APIResponse(responseCode = "200", description = "Stream of changes",
+          content = @Content(mediaType = MediaType.SERVER_SENT_EVENTS)),
+      @APIResponse(responseCode = "500", description = "Internal server error",
+          content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
+  })
+  public void streamChanges(@Parameter(description = "id of the last received event")
+                            @HeaderParam(HttpHeaders.LAST_EVENT_ID_HEADER) final String lastEventId,
+                            @Context final SseEventSink sink,
+                            @Context final Sse sse) {
+    LOG.info("Stream changes after event {}", lastEventId);
+    changeFeed.register(sse, sink, lastEventId);
   }
 
   @PUT
   @Path("/{id}")
   @Transactional
-  @Operation(description = "Update a todo")
+  @Operation(description = "Update a todo. If the 'If-Match' header is given, the todo is only updated if its version matches.")
   @APIResponses({
       @APIResponse(responseCode = "204", description = "Todo updated"),
       @APIResponse(responseCode = "400", description = "Invalid request data",
           content = @Content(schema = @Schema(implementation = ApplicationErrorsDTO.class))),
       @APIResponse(responseCode = "404", description = "Todo with given id does not exist"),
+      @APIResponse(responseCode = "412", description = "Todo has been modified in the meantime"),
       @APIResponse(responseCode = "500", description = "Internal server error",
           content = @Content(schema = @Schema(implementation = ApplicationErrorDTO.class)))
   })
   public Response updateTodo(@Parameter(description = "todo identifier") @PathParam("id") @Min(1) @Max(10000) final Long todoId,
+                             @Parameter(description = "entity tag of the expected todo version") @HeaderParam(HttpHeaders.IF_MATCH) final String ifMatch,
                              @RequestBody(description = "modified todo", required = true, content = @Content(schema = @Schema(implementation = ModifiedTodo.class)))
                              @Valid @ConvertGroup(to = UpdateTodoValidationGroup.class) final ModifiedTodo modifiedTodo) {
-    LOG.info("Update todo with id {} ({})", todoId, modifiedTodo);
+    LOG.info("Update todo with id {} (If-Match {}, {})", todoId, ifMatch, modifiedTodo);
 
-    Optional<Todo> foundTodo = repository.find(todoId);
-    if (!foundTodo.isPresent()) {
-      LOG.warn("Todo with id {} not found", todoId);
-      return Response.status(Status.NOT_FOUND).build();
+    Todo changes = Todo.newBuilder()
+        .withTitle(modifiedTodo.getTitle())
+        .withDescription(modifiedTodo.getDescription())
+        .withDueDate(modifiedTodo.getDueDate())
+        .setDone(modifiedTodo.getDone())
+        .build();
+
+    Long version = expectedVersion(ifMatch);
+    if (!repository.update(todoId, version, changes)) {
+      return writeFailed(todoId, version);
+    }
+
+    LOG.info("Todo updated");
+
+    ResponseBuilder response = Response.status(Status.NO_CONTENT);
+    if (version != null) {
+      response.tag(new EntityTag(String.valueOf(version + 1)));
     }
+    return response.build();
+  }
 
-    Todo todo = foundTodo.get();
-    todo.updateTodo(modifiedTodo.getTitle(), modifiedTodo.getDescription(), modifiedTodo.getDueDate(), modifiedTodo.getDone());
+  /**
+   * Extracts the expected todo version from the given 'If-Match' header.
+   *
+   * @return the expected version, <code>null</code> if the header is missing or matches any version, or {@link #UNMATCHABLE_VERSION} if
+   * the header contains no single strong entity tag that was issued by this resource
+   */
+  private static Long expectedVersion(final String ifMatch) {
+    if (ifMatch == null || ANY_ENTITY_TAG.equals(ifMatch.trim())) {
+      return null;
+    }
 
-    repository.update(todo);
+    Matcher matcher = VERSION_ENTITY_TAG.matcher(ifMatch.trim());
+    return matcher.matches() ? Long.valueOf(matcher.group(1)) : UNMATCHABLE_VERSION;
+  }
 
-    LOG.info("Todo updated");
+  /**
+   * Determines the response of an update or delete that affected no todo. Only if a version was expected, the todo might exist with
+   * another version and an additional lookup is required.
+   */
+  private Response writeFailed(final Long todoId, final Long version) {
+    if (version != null && repository.find(todoId).isPresent()) {
+      LOG.warn("Todo with id {} does not have version {}", todoId, version);
+      return Response.status(Status.PRECONDITION_FAILED).build();
+    }
 
-    return Response.status(Status.NO_CONTENT).build();
+    LOG.warn("Todo with id {} not found", todoId);
+    return Response.status(Status.NOT_FOUND).build();
+  }
+
+  /**
+   * Writes todos as newline delimited JSON with the {@link Jsonb} instance that JSON responses are written with (see
+   * {@link de.openknowledge.projects.todolist.service.infrastructure.rest.json.JsonbContextResolver}), so each line equals the JSON
+   * representation of the todo. The first todo is flushed immediately, all following todos when the buffer is full.
+   */
+  private static class NdjsonTodoWriter implements Consumer<TodoListDTO> {
+
+    private final Writer writer;
+
+    private final Jsonb jsonb;
+
+    private boolean flushed;
+
+    NdjsonTodoWriter(final Writer writer, final Jsonb jsonb) {
+      this.writer = writer;
+      this.jsonb = jsonb;
+    }
+
+    @Override
+    public void accept(final TodoListDTO todo) {
+      try {
+        writer.write(jsonb.toJson(todo));
+        writer.write('\n');
+        if (!flushed) {
+          writer.flush();
+          flushed = true;
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
   }
 }
@@ -21,13 +21,19 @@ import de.openknowledge.projects.todolist.service.infrastructure.domain.builder.
 import de.openknowledge.projects.todolist.service.infrastructure.domain.entity.AbstractEntity;
 
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
@@ -35,11 +41,13 @@ import javax.validation.constraints.Size;
  * An entity that represents a to-do.
  */
 @Entity
+@Cacheable
 @Table(name = "tab_todo")
 public class Todo extends AbstractEntity<Long> {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todo_id")
+  @SequenceGenerator(name = "todo_id", sequenceName = "tab_todo_tod_id_seq", allocationSize = 50)
   @Column(name = "tod_id", nullable = false)
   private Long id;
 
@@ -60,6 +68,13 @@ public class Todo extends AbstractEntity<Long> {
   @Column(name = "tod_done", nullable = false)
   private Boolean done;
 
+  @Version
+  @Column(name = "tod_version", nullable = false)
+  private Long version;
+
+  @Column(name = "tod_modified_at", nullable = false)
+  private OffsetDateTime modifiedAt;
+
   protected Todo() {
     super();
   }
@@ -88,6 +103,26 @@ public class Todo extends AbstractEntity<Long> {
     return done;
   }
 
+  /**
+   * @return the optimistic lock version, incremented on every update, or <code>null</code> if the todo has not been persisted yet
+   */
+  public Long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return the time of the last modification, or <code>null</code> if the todo has not been persisted yet
+   */
+  public OffsetDateTime getModifiedAt() {
+    return modifiedAt;
+  }
+
+  @PrePersist
+  @PreUpdate
+  void touch() {
+    this.modifiedAt = OffsetDateTime.now(ZoneOffset.UTC);
+  }
+
   public void updateTodo(final String title, final String description, final OffsetDateTime dueDate, final Boolean done) {
     this.title = notNull(title, "title must not be null");
     this.description = description;
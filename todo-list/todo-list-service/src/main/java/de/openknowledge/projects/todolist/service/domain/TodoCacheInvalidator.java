@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.domain;
+
+import de.openknowledge.projects.todolist.service.infrastructure.persistence.DatabaseNotification;
+import de.openknowledge.projects.todolist.service.infrastructure.persistence.QueryResultCache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+/**
+ * Keeps the caches of all service instances coherent. The table <code>tab_todo</code> sends a notification on the channel
+ * {@link #CHANNEL} for every change (see 1-schema.sql): the id of an updated or deleted todo, or an empty payload for created todos.
+ * Cached query results are dropped for every notification, a cached todo only if it has been updated or deleted.
+ */
+@ApplicationScoped
+public class TodoCacheInvalidator {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TodoCacheInvalidator.class);
+
+  static final String CHANNEL = "todo_changed";
+
+  @PersistenceUnit(unitName = "default")
+  private EntityManagerFactory entityManagerFactory;
+
+  @Inject
+  private QueryResultCache queryResultCache;
+
+  void onNotification(@Observes final DatabaseNotification notification) {
+    if (!CHANNEL.equals(notification.getChannel())) {
+      return;
+    }
+
+    queryResultCache.invalidate(Todo.class);
+
+    Cache cache = entityManagerFactory.getCache();
+    String payload = notification.getPayload().orElse(null);
+    if (payload == null) {
+      LOG.info("Notifications may have been missed, evict all todos");
+      cache.evict(Todo.class);
+    } else if (!payload.isEmpty()) {
+      try {
+        cache.evict(Todo.class, Long.valueOf(payload));
+      } catch (NumberFormatException e) {
+        LOG.warn("Invalid notification payload '{}', evict all todos", payload);
+        cache.evict(Todo.class);
+      }
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.domain;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.service.infrastructure.domain.value.AbstractValueObject;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * A value object that marks a position in the list of {@link Todo}s ordered by due date and id. Used for keyset pagination.
+ */
+public class TodoCursor extends AbstractValueObject {
+
+  private static final String SEPARATOR = "|";
+
+  private final OffsetDateTime dueDate;
+
+  private final Long id;
+
+  public TodoCursor(final OffsetDateTime dueDate, final Long id) {
+    super();
+    this.dueDate = notNull(dueDate, "dueDate must not be null");
+    this.id = notNull(id, "id must not be null");
+  }
+
+  public static TodoCursor of(final Todo todo) {
+    notNull(todo, "todo must not be null");
+    return new TodoCursor(todo.getDueDate(), todo.getId());
+  }
+
+  /**
+   * Decodes a cursor that was created with {@link #encode()}.
+   *
+   * @throws IllegalArgumentException if the given value is not a valid cursor
+   */
+  public static TodoCursor decode(final String value) {
+    notNull(value, "value must not be null");
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+      int separator = decoded.lastIndexOf(SEPARATOR);
+      if (separator < 0) {
+        throw new IllegalArgumentException("cursor is malformed");
+      }
+      OffsetDateTime dueDate = OffsetDateTime.parse(decoded.substring(0, separator), DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+      Long id = Long.valueOf(decoded.substring(separator + 1));
+      return new TodoCursor(dueDate, id);
+    } catch (DateTimeParseException | NumberFormatException e) {
+      throw new IllegalArgumentException("cursor is malformed", e);
+    }
+  }
+
+  public String encode() {
+    String value = DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(dueDate) + SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public OffsetDateTime getDueDate() {
+    return dueDate;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  @Override
+  protected Object[] values() {
+    return new Object[]{dueDate, id};
+  }
+
+  @Override
+  public String toString() {
+    return "TodoCursor{" +
+           "dueDate=" + dueDate +
+           ", id=" + id +
+           '}';
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.domain;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import de.openknowledge.projects.todolist.service.infrastructure.domain.value.AbstractValueObject;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * A value object that restricts the {@link Todo}s returned by the {@link TodoRepository}. Every criterion is optional.
+ */
+public class TodoFilter extends AbstractValueObject {
+
+  private static final TodoFilter NONE = new TodoFilter(null, null, null);
+
+  private final Boolean done;
+
+  private final OffsetDateTime dueFrom;
+
+  private final OffsetDateTime dueTo;
+
+  /**
+   * @param done    only todos with the given state, or all if <code>null</code>
+   * @param dueFrom only todos that are due at or after the given date (inclusive), or unrestricted if <code>null</code>
+   * @param dueTo   only todos that are due before the given date (exclusive), or unrestricted if <code>null</code>
+   */
+  public TodoFilter(final Boolean done, final OffsetDateTime dueFrom, final OffsetDateTime dueTo) {
+    super();
+    isTrue(dueFrom == null || dueTo == null || dueFrom.isBefore(dueTo), "dueFrom must be before dueTo");
+    this.done = done;
+    this.dueFrom = dueFrom;
+    this.dueTo = dueTo;
+  }
+
+  public static TodoFilter none() {
+    return NONE;
+  }
+
+  public Optional<Boolean> getDone() {
+    return Optional.ofNullable(done);
+  }
+
+  public Optional<OffsetDateTime> getDueFrom() {
+    return Optional.ofNullable(dueFrom);
+  }
+
+  public Optional<OffsetDateTime> getDueTo() {
+    return Optional.ofNullable(dueTo);
+  }
+
+  @Override
+  protected Object[] values() {
+    return new Object[]{done, dueFrom, dueTo};
+  }
+
+  @Override
+  public String toString() {
+    return "TodoFilter{" +
+           "done=" + done +
+           ", dueFrom=" + dueFrom +
+           ", dueTo=" + dueTo +
+           '}';
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.domain;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.service.infrastructure.domain.value.AbstractValueObject;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * A value object that describes the state of a list of {@link Todo}s by the number of todos, the sum of their versions and the time of
+ * the latest modification. Any creation, update or deletion of a todo in the list changes at least one of these values.
+ */
+public class TodoListVersion extends AbstractValueObject {
+
+  private final Long count;
+
+  private final Long versionSum;
+
+  private final OffsetDateTime lastModified;
+
+  public TodoListVersion(final Long count, final Long versionSum, final OffsetDateTime lastModified) {
+    super();
+    this.count = notNull(count, "count must not be null");
+    this.versionSum = notNull(versionSum, "versionSum must not be null");
+    this.lastModified = lastModified;
+  }
+
+  public Long getCount() {
+    return count;
+  }
+
+  public Long getVersionSum() {
+    return versionSum;
+  }
+
+  public Optional<OffsetDateTime> getLastModified() {
+    return Optional.ofNullable(lastModified);
+  }
+
+  /**
+   * @return a compact representation of this version, suitable as an entity tag
+   */
+  public String encode() {
+    long modified = lastModified != null ? lastModified.toInstant().toEpochMilli() : 0;
+    return Long.toString(count, Character.MAX_RADIX) + '.'
+           + Long.toString(versionSum, Character.MAX_RADIX) + '.'
+           + Long.toString(modified, Character.MAX_RADIX);
+  }
+
+  @Override
+  protected Object[] values() {
+    return new Object[]{count, versionSum, lastModified};
+  }
+
+  @Override
+  public String toString() {
+    return "TodoListVersion{" +
+           "count=" + count +
+           ", versionSum=" + versionSum +
+           ", lastModified=" + lastModified +
+           '}';
+  }
+}
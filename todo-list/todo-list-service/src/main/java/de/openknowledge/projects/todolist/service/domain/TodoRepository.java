@@ -18,20 +18,42 @@ package de.openknowledge.projects.todolist.service.domain;
 import static org.apache.commons.lang3.Validate.notNull;
 
 import de.openknowledge.projects.todolist.service.infrastructure.domain.repository.Repository;
+import de.openknowledge.projects.todolist.service.infrastructure.persistence.QueryResultCache;
 
+import org.eclipse.persistence.config.HintValues;
+import org.eclipse.persistence.config.QueryHints;
+import org.eclipse.persistence.config.ResultSetConcurrency;
+import org.eclipse.persistence.config.ResultSetType;
+import org.eclipse.persistence.queries.ScrollableCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
 import javax.transaction.Transactional;
 
 /**
@@ -45,6 +67,9 @@ public class TodoRepository implements Serializable {
   @PersistenceContext
   private EntityManager entityManager;
 
+  @Inject
+  private QueryResultCache queryResultCache;
+
   public TodoRepository() {
     super();
   }
@@ -58,6 +83,7 @@ public class TodoRepository implements Serializable {
   public Todo create(final Todo todo) {
     LOG.debug("Create todo");
     entityManager.persist(todo);
+    invalidateQueryResults();
     return todo;
   }
 
@@ -66,6 +92,30 @@ public class TodoRepository implements Serializable {
     LOG.debug("Delete todo with id {}", todo);
     Todo reference = entityManager.getReference(Todo.class, todo.getId());
     entityManager.remove(reference);
+    invalidateQueryResults();
+  }
+
+  /**
+   * Deletes the todo with the given id with a single statement, without loading it first.
+   *
+   * @param id      the todo identifier
+   * @param version the expected version, or <code>null</code> to delete the todo regardless of its version
+   * @return <code>true</code> if the todo was deleted, <code>false</code> if it does not exist or has another version
+   */
+  @Transactional
+  public boolean delete(final Long id, final Long version) {
+    LOG.debug("Delete todo with id {} and version {}", id, version);
+
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaDelete<Todo> cd = cb.createCriteriaDelete(Todo.class);
+
+    Root<Todo> root = cd.from(Todo.class);
+
+    cd.where(identifiedBy(cb, root, id, version));
+
+    boolean deleted = entityManager.createQuery(cd).executeUpdate() > 0;
+    invalidateQueryResults();
+    return deleted;
   }
 
   public Optional<Todo> find(final Long id)  {
@@ -73,6 +123,34 @@ public class TodoRepository implements Serializable {
     return Optional.ofNullable(entityManager.find(Todo.class, id));
   }
 
+  /**
+   * Loads the todos with the given ids in one query. Unknown ids are ignored.
+   */
+  public List<Todo> findAllById(final Collection<Long> ids) {
+    LOG.debug("Locating todos with ids {}", ids);
+
+    notNull(ids, "ids must not be null");
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Todo> cq = cb.createQuery(Todo.class);
+
+    Root<Todo> root = cq.from(Todo.class);
+
+    cq.select(root).where(root.get("id").in(ids));
+
+    List<Todo> results = entityManager.createQuery(cq).getResultList();
+
+    LOG.debug("Located {} todos", results.size());
+
+    return results;
+  }
+
+  /**
+   * Loads all todos without any limit. Use {@link #findAll(TodoFilter, TodoCursor, int)} for client facing queries.
+   */
   public List<Todo> findAll() {
     LOG.debug("Searching for todos");
 
@@ -91,9 +169,214 @@ public class TodoRepository implements Serializable {
     return results;
   }
 
+  /**
+   * Loads a page of todos ordered by due date and id (keyset pagination).
+   *
+   * @param filter the filter criteria
+   * @param after  the position after which the page starts, or <code>null</code> for the first page
+   * @param limit  the maximum number of todos
+   */
+  public List<Todo> findAll(final TodoFilter filter, final TodoCursor after, final int limit) {
+    LOG.debug("Searching for {} todos with {} after {}", limit, filter, after);
+
+    TypedQuery<Todo> query = entityManager.createQuery(createQuery(Todo.class, (cb, root) -> root, filter, after)).setMaxResults(limit);
+    List<Todo> results = query.getResultList();
+
+    LOG.debug("Located {} todos", results.size());
+
+    return results;
+  }
+
+  /**
+   * Loads a page of todo summaries ordered by due date and id (keyset pagination). Only id, title, due date and done state are selected and
+   * passed to the constructor of the given projection class, no entities are materialized. The result is cached until the next change.
+   *
+   * @param projection a class with a public constructor <code>(Long id, String title, OffsetDateTime dueDate, Boolean done)</code>
+   * @param filter     the filter criteria
+   * @param after      the position after which the page starts, or <code>null</code> for the first page
+   * @param limit      the maximum number of todos
+   */
+  public <P> List<P> findAll(final Class<P> projection, final TodoFilter filter, final TodoCursor after, final int limit) {
+    LOG.debug("Searching for {} {} with {} after {}", limit, projection.getSimpleName(), filter, after);
+
+    List<P> results = cached(Arrays.asList("findAll", projection, filter, after, limit), () -> Collections.unmodifiableList(
+        entityManager.createQuery(createQuery(projection, summary(projection), filter, after)).setMaxResults(limit).getResultList()));
+
+    LOG.debug("Located {} todos", results.size());
+
+    return results;
+  }
+
+  /**
+   * Determines the version of all todos that match the given filter and follow the given position with a single aggregate query. The
+   * version changes whenever one of these todos is created, updated or deleted, so it can be used to detect changes without loading them.
+   * The result is cached until the next change.
+   *
+   * @param filter the filter criteria
+   * @param after  the position after which the todos start, or <code>null</code> for all todos
+   */
+  public TodoListVersion findVersion(final TodoFilter filter, final TodoCursor after) {
+    LOG.debug("Determining version of todos with {} after {}", filter, after);
+
+    TodoListVersion result = cached(Arrays.asList("findVersion", filter, after), () -> {
+      CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+      CriteriaQuery<TodoListVersion> cq = cb.createQuery(TodoListVersion.class);
+
+      Root<Todo> root = cq.from(Todo.class);
+      Path<Long> version = root.get("version");
+      Path<OffsetDateTime> modifiedAt = root.get("modifiedAt");
+
+      cq.select(cb.construct(TodoListVersion.class, cb.count(root), cb.coalesce(cb.sum(version), 0L), cb.greatest(modifiedAt)))
+          .where(predicates(cb, root, filter, after));
+
+      return entityManager.createQuery(cq).getSingleResult();
+    });
+
+    LOG.debug("Determined {}", result);
+
+    return result;
+  }
+
+  /**
+   * Reads the summaries of all todos that match the given filter, ordered by due date and id, through a forward-only database cursor and
+   * passes them one by one to the given consumer. Memory consumption does not depend on the number of todos.
+   *
+   * @param projection a class with a public constructor <code>(Long id, String title, OffsetDateTime dueDate, Boolean done)</code>
+   * @param filter     the filter criteria
+   * @param fetchSize  the number of rows fetched per database round trip
+   * @param consumer   the consumer of the todo summaries
+   * @return the number of todos
+   */
+  @Transactional
+  public <P> long scrollAll(final Class<P> projection, final TodoFilter filter, final int fetchSize, final Consumer<? super P> consumer) {
+    LOG.debug("Scrolling through {} with {}", projection.getSimpleName(), filter);
+
+    notNull(consumer, "consumer must not be null");
+
+    Query query = entityManager.createQuery(createQuery(projection, summary(projection), filter, null))
+        .setHint(QueryHints.SCROLLABLE_CURSOR, HintValues.TRUE)
+        .setHint(QueryHints.RESULT_SET_TYPE, ResultSetType.ForwardOnly)
+        .setHint(QueryHints.RESULT_SET_CONCURRENCY, ResultSetConcurrency.ReadOnly)
+        .setHint(QueryHints.JDBC_FETCH_SIZE, fetchSize);
+
+    long count = 0;
+    ScrollableCursor cursor = (ScrollableCursor) query.getSingleResult();
+    try {
+      while (cursor.hasNext()) {
+        consumer.accept(projection.cast(cursor.next()));
+        count++;
+      }
+    } finally {
+      cursor.close();
+    }
+
+    LOG.debug("Scrolled through {} todos", count);
+
+    return count;
+  }
+
+  private static <P> BiFunction<CriteriaBuilder, Root<Todo>, Selection<? extends P>> summary(final Class<P> projection) {
+    notNull(projection, "projection must not be null");
+    return (cb, root) -> cb.construct(projection, root.get("id"), root.get("title"), root.get("dueDate"), root.get("done"));
+  }
+
+  private <R> CriteriaQuery<R> createQuery(final Class<R> resultClass,
+                                           final BiFunction<CriteriaBuilder, Root<Todo>, Selection<? extends R>> selection,
+                                           final TodoFilter filter,
+                                           final TodoCursor after) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<R> cq = cb.createQuery(resultClass);
+
+    Root<Todo> root = cq.from(Todo.class);
+
+    return cq.select(selection.apply(cb, root))
+        .where(predicates(cb, root, filter, after))
+        .orderBy(cb.asc(root.get("dueDate")), cb.asc(root.get("id")));
+  }
+
+  private static Predicate[] predicates(final CriteriaBuilder cb, final Root<Todo> root, final TodoFilter filter, final TodoCursor after) {
+    notNull(filter, "filter must not be null");
+
+    Path<OffsetDateTime> dueDate = root.get("dueDate");
+    Path<Long> id = root.get("id");
+
+    List<Predicate> predicates = new ArrayList<>();
+    filter.getDone().ifPresent(done -> predicates.add(cb.equal(root.get("done"), done)));
+    filter.getDueFrom().ifPresent(dueFrom -> predicates.add(cb.greaterThanOrEqualTo(dueDate, dueFrom)));
+    filter.getDueTo().ifPresent(dueTo -> predicates.add(cb.lessThan(dueDate, dueTo)));
+    if (after != null) {
+      predicates.add(cb.or(cb.greaterThan(dueDate, after.getDueDate()),
+                           cb.and(cb.equal(dueDate, after.getDueDate()), cb.greaterThan(id, after.getId()))));
+    }
+
+    return predicates.toArray(new Predicate[0]);
+  }
+
   @Transactional
   public Todo update(final Todo todo) {
     LOG.debug("Update todo with id {}", todo.getId());
-    return entityManager.merge(todo);
+    Todo merged = entityManager.merge(todo);
+    invalidateQueryResults();
+    return merged;
+  }
+
+  /**
+   * Updates the todo with the given id with a single statement, without loading it first. The version of the todo is incremented.
+   *
+   * @param id      the todo identifier
+   * @param version the expected version, or <code>null</code> to update the todo regardless of its version
+   * @param changes a transient todo that holds the new title, description, due date and done state
+   * @return <code>true</code> if the todo was updated, <code>false</code> if it does not exist or has another version
+   */
+  @Transactional
+  public boolean update(final Long id, final Long version, final Todo changes) {
+    LOG.debug("Update todo with id {} and version {}", id, version);
+
+    notNull(changes, "changes must not be null");
+
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaUpdate<Todo> cu = cb.createCriteriaUpdate(Todo.class);
+
+    Root<Todo> root = cu.from(Todo.class);
+    Path<Long> currentVersion = root.get("version");
+
+    cu.set(root.<String>get("title"), changes.getTitle())
+        .set(root.<String>get("description"), changes.getDescription() != null
+                                               ? cb.literal(changes.getDescription())
+                                               : cb.nullLiteral(String.class))
+        .set(root.<OffsetDateTime>get("dueDate"), changes.getDueDate())
+        .set(root.<Boolean>get("done"), changes.getDone())
+        .set(root.<OffsetDateTime>get("modifiedAt"), OffsetDateTime.now(ZoneOffset.UTC))
+        .set(currentVersion, cb.sum(currentVersion, 1L))
+        .where(identifiedBy(cb, root, id, version));
+
+    boolean updated = entityManager.createQuery(cu).executeUpdate() > 0;
+    invalidateQueryResults();
+    return updated;
+  }
+
+  private <R> R cached(final Object query, final Supplier<R> loader) {
+    return queryResultCache != null ? queryResultCache.get(Todo.class, query, loader) : loader.get();
+  }
+
+  /**
+   * Drops the cached query results of this instance right away. All instances, including this one, drop them again as soon as the change
+   * is committed (see {@link TodoCacheInvalidator}).
+   */
+  private void invalidateQueryResults() {
+    if (queryResultCache != null) {
+      queryResultCache.invalidate(Todo.class);
+    }
+  }
+
+  private static Predicate[] identifiedBy(final CriteriaBuilder cb, final Root<Todo> root, final Long id, final Long version) {
+    notNull(id, "id must not be null");
+
+    Predicate byId = cb.equal(root.get("id"), id);
+    if (version == null) {
+      return new Predicate[]{byId};
+    }
+
+    return new Predicate[]{byId, cb.equal(root.get("version"), version)};
   }
 }
@@ -7,6 +7,13 @@ import de.openknowledge.projects.todolist.service.infrastructure.validation.Vali
  */
 public final class TodoValidationErrorCodes {
 
+  public static class IdIsNull extends ValidationErrorPayload {
+
+    public IdIsNull() {
+      super("ID_IS_NULL");
+    }
+  }
+
   public static class TitleIsNull extends ValidationErrorPayload {
 
     public TitleIsNull() {
@@ -17,12 +17,11 @@ package de.openknowledge.projects.todolist.service.infrastructure.domain.builder
 
 import static org.apache.commons.lang3.Validate.isTrue;
 
+import de.openknowledge.projects.todolist.service.infrastructure.validation.ValidatorProvider;
+
 import java.util.Set;
 
 import javax.validation.ConstraintViolation;
-import javax.validation.Validation;
-import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
 
 /**
  * A base class for builders, that handles creation an building of objects and supports deep subclassing hierarchies. Subclasses may access
@@ -125,9 +124,7 @@ public abstract class AbstractBuilder<E> implements Builder<E> {
    * @throws IllegalArgumentException Thrown to indicate that validation fails.
    */
   protected void validate() {
-    ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-    Validator validator = factory.getValidator();
-    Set<ConstraintViolation<E>> constraintViolations = validator.validate(instance);
+    Set<ConstraintViolation<E>> constraintViolations = ValidatorProvider.getValidator().validate(instance);
 
     String violations = ConstraintViolationFormat.format(constraintViolations);
     isTrue(constraintViolations.isEmpty(), "BeanValidation failed, reasons: [%s]", violations);
@@ -14,19 +14,21 @@ package de.openknowledge.projects.todolist.service.infrastructure.domain.builder
 
 import static org.apache.commons.lang3.Validate.notNull;
 
+import de.openknowledge.projects.todolist.service.infrastructure.domain.generic.TypeArgumentResolver;
+import de.openknowledge.projects.todolist.service.infrastructure.validation.ValidatorProvider;
+
 import org.apache.commons.lang3.ClassUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
@@ -39,6 +41,15 @@ public final class ObjectBuilder<T> implements Builder<T> {
 
   private static final Logger LOG = LoggerFactory.getLogger(ObjectBuilder.class);
 
+  private static final ClassValue<ConcurrentMap<List<Class<?>>, ResolvedConstructor<?>>> CONSTRUCTORS
+      = new ClassValue<ConcurrentMap<List<Class<?>>, ResolvedConstructor<?>>>() {
+
+    @Override
+    protected ConcurrentMap<List<Class<?>>, ResolvedConstructor<?>> computeValue(final Class<?> type) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
   private final Class<T> type;
 
   private final List<Object> parameters = new ArrayList<>();
@@ -60,28 +71,7 @@ public final class ObjectBuilder<T> implements Builder<T> {
 
   public static <V> ObjectBuilder<V> fromGenericType(final Class<?> subclass, final Class<?> superclass, final int
       parameterIndex) {
-    Class<?> directSubclass = subclass;
-    while (directSubclass.getSuperclass() != superclass) {
-      directSubclass = directSubclass.getSuperclass();
-    }
-    Type genericSuperclass = directSubclass.getGenericSuperclass();
-    if (!(genericSuperclass instanceof ParameterizedType)) {
-      throw new IllegalStateException("Generic type argument missing for superclass " + superclass
-          .getSimpleName());
-    }
-    ParameterizedType parameterizedSuperclass = (ParameterizedType) genericSuperclass;
-    Type valueType = parameterizedSuperclass.getActualTypeArguments()[parameterIndex];
-    if (valueType instanceof TypeVariable) {
-      TypeVariable<?> variable = (TypeVariable<?>) valueType;
-      TypeVariable<?>[] typeParameters = directSubclass.getTypeParameters();
-      for (int i = 0; i < typeParameters.length; i++) {
-        if (typeParameters[i].getName().equals(variable.getName())) {
-          return fromGenericType(subclass, directSubclass, i);
-        }
-      }
-      throw new IllegalStateException(variable + " cannot be resolved");
-    }
-    return new ObjectBuilder((Class<V>) valueType);
+    return new ObjectBuilder<>(TypeArgumentResolver.<V>resolve(subclass, superclass, parameterIndex));
   }
 
   public static <V> ObjectBuilder<V> forType(final Class<V> type) {
@@ -109,20 +99,20 @@ public final class ObjectBuilder<T> implements Builder<T> {
     return this;
   }
 
+  /**
+   * Validates the constructor parameters with the shared validator of the {@link ValidatorProvider}.
+   */
+  public ObjectBuilder<T> validated() {
+    return validatedBy(ValidatorProvider.getValidator());
+  }
+
   public T build() {
     try {
       Object[] arguments = parameters.toArray();
-      Constructor<T> constructor = resolveConstructor(arguments);
-      if (constructor == null) {
-        constructor = resolveConstructorWithParameterConversion(arguments);
-        if (constructor == null) {
-          throw new IllegalStateException("No suitable constructor found for parameters " + Arrays.toString(arguments));
-        }
-        arguments = convertArguments(constructor, arguments);
-      }
-      constructor.setAccessible(true);
-      validate(constructor, arguments);
-      return constructor.newInstance(arguments);
+      ResolvedConstructor<T> resolvedConstructor = resolveConstructor(arguments);
+      arguments = resolvedConstructor.convertArguments(arguments);
+      validate(resolvedConstructor.constructor, arguments);
+      return resolvedConstructor.constructor.newInstance(arguments);
     } catch (InvocationTargetException e) {
       LOG.error(e.getMessage(), e);
       if (e.getTargetException() instanceof RuntimeException) {
@@ -135,17 +125,40 @@ public final class ObjectBuilder<T> implements Builder<T> {
     }
   }
 
-  private Constructor<T> resolveConstructor(final Object[] arguments) {
-    return resolveConstructor(arguments, false);
-  }
-
-  private Constructor<T> resolveConstructor(final Object[] arguments, final boolean convertParameters) {
+  /**
+   * Resolves the constructor for the classes of the given arguments. The result is cached per type and argument classes, so the
+   * reflective lookup only happens on the first call.
+   */
+  private ResolvedConstructor<T> resolveConstructor(final Object[] arguments) throws NoSuchMethodException {
     Class<?>[] parameterTypes = new Class[arguments.length];
     for (int i = 0; i < parameterTypes.length; i++) {
       Object parameter = arguments[i];
       parameterTypes[i] = parameter != null ? parameter.getClass() : null;
     }
-    return resolveConstructor(parameterTypes, convertParameters);
+
+    ConcurrentMap<List<Class<?>>, ResolvedConstructor<?>> constructors = CONSTRUCTORS.get(type);
+    List<Class<?>> key = Arrays.asList(parameterTypes);
+    ResolvedConstructor<T> resolvedConstructor = (ResolvedConstructor<T>) constructors.get(key);
+    if (resolvedConstructor == null) {
+      resolvedConstructor = resolveConstructor(parameterTypes);
+      constructors.putIfAbsent(key, resolvedConstructor);
+    }
+    return resolvedConstructor;
+  }
+
+  private ResolvedConstructor<T> resolveConstructor(final Class<?>[] parameterTypes) throws NoSuchMethodException {
+    Constructor<T> constructor = resolveConstructor(parameterTypes, false);
+    if (constructor != null) {
+      constructor.setAccessible(true);
+      return new ResolvedConstructor<>(constructor, new Constructor<?>[parameterTypes.length]);
+    }
+
+    constructor = resolveConstructor(parameterTypes, true);
+    if (constructor == null) {
+      throw new IllegalStateException("No suitable constructor found for parameter types " + Arrays.toString(parameterTypes));
+    }
+    constructor.setAccessible(true);
+    return new ResolvedConstructor<>(constructor, resolveConverters(constructor, parameterTypes));
   }
 
   private Constructor<T> resolveConstructor(final Class<?>[] parameterTypes, final boolean convertParameters) {
@@ -169,10 +182,6 @@ public final class ObjectBuilder<T> implements Builder<T> {
     return resolvedConstructor;
   }
 
-  private Constructor<T> resolveConstructorWithParameterConversion(final Object[] arguments) {
-    return resolveConstructor(arguments, true);
-  }
-
   private boolean matches(final Constructor<T> constructor, final Class<?>[] parameterTypes, boolean
       convertParameterTypes) {
     Class<?>[] constructorParameterTypes = constructor.getParameterTypes();
@@ -208,24 +217,25 @@ public final class ObjectBuilder<T> implements Builder<T> {
       targetType.getDeclaredConstructor(sourceType);
       return true;
     } catch (NoSuchMethodException e) {
-      LOG.error(e.getMessage(), e);
+      LOG.trace("{} is not convertible to {}", sourceType, targetType);
       return false;
     }
   }
 
-  private Object[] convertArguments(final Constructor<T> constructor, final Object... arguments) throws ReflectiveOperationException {
+  private Constructor<?>[] resolveConverters(final Constructor<T> constructor, final Class<?>[] argumentTypes)
+      throws NoSuchMethodException {
     Class<?>[] parameterTypes = constructor.getParameterTypes();
-    for (int i = 0; i < arguments.length; i++) {
+    Constructor<?>[] converters = new Constructor<?>[argumentTypes.length];
+    for (int i = 0; i < argumentTypes.length; i++) {
       if (parameterTypes[i].isPrimitive()) {
         parameterTypes[i] = ClassUtils.primitiveToWrapper(parameterTypes[i]);
       }
-      if (!parameterTypes[i].isInstance(arguments[i])) {
-        Constructor<?> convertingConstructor = parameterTypes[i].getDeclaredConstructor(arguments[i].getClass());
-        convertingConstructor.setAccessible(true);
-        arguments[i] = convertingConstructor.newInstance(arguments[i]);
+      if (argumentTypes[i] != null && !parameterTypes[i].isAssignableFrom(argumentTypes[i])) {
+        converters[i] = parameterTypes[i].getDeclaredConstructor(argumentTypes[i]);
+        converters[i].setAccessible(true);
       }
     }
-    return arguments;
+    return converters;
   }
 
   private void validate(final Constructor<T> constructor, final Object... arguments) {
@@ -236,4 +246,28 @@ public final class ObjectBuilder<T> implements Builder<T> {
       }
     }
   }
+
+  /**
+   * A constructor together with the constructors that convert its arguments, <code>null</code> for arguments that need no conversion.
+   */
+  private static final class ResolvedConstructor<T> {
+
+    private final Constructor<T> constructor;
+
+    private final Constructor<?>[] converters;
+
+    private ResolvedConstructor(final Constructor<T> constructor, final Constructor<?>[] converters) {
+      this.constructor = constructor;
+      this.converters = converters;
+    }
+
+    private Object[] convertArguments(final Object[] arguments) throws ReflectiveOperationException {
+      for (int i = 0; i < arguments.length; i++) {
+        if (converters[i] != null) {
+          arguments[i] = converters[i].newInstance(arguments[i]);
+        }
+      }
+      return arguments;
+    }
+  }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.domain.generic;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the actual type arguments a subclass passes to a generic superclass, e.g. the entity class of a repository or the type built by a
+ * builder. Resolved types are cached per subclass, so the reflection only happens once.
+ */
+public final class TypeArgumentResolver {
+
+  private static final ClassValue<ConcurrentMap<List<Object>, Class<?>>> TYPE_ARGUMENTS
+      = new ClassValue<ConcurrentMap<List<Object>, Class<?>>>() {
+
+    @Override
+    protected ConcurrentMap<List<Object>, Class<?>> computeValue(final Class<?> subclass) {
+      return new ConcurrentHashMap<>();
+    }
+  };
+
+  private TypeArgumentResolver() {
+    super();
+  }
+
+  /**
+   * Resolves the type argument at the given index of the given generic superclass.
+   *
+   * @throws IllegalStateException if the type argument is missing or cannot be resolved to a class
+   */
+  public static <V> Class<V> resolve(final Class<?> subclass, final Class<?> superclass, final int parameterIndex) {
+    notNull(subclass, "subclass must not be null");
+    notNull(superclass, "superclass must not be null");
+
+    ConcurrentMap<List<Object>, Class<?>> typeArguments = TYPE_ARGUMENTS.get(subclass);
+    List<Object> key = Arrays.asList(superclass, parameterIndex);
+    Class<?> typeArgument = typeArguments.get(key);
+    if (typeArgument == null) {
+      typeArgument = resolveUncached(subclass, superclass, parameterIndex);
+      typeArguments.putIfAbsent(key, typeArgument);
+    }
+    return (Class<V>) typeArgument;
+  }
+
+  private static Class<?> resolveUncached(final Class<?> subclass, final Class<?> superclass, final int parameterIndex) {
+    Class<?> directSubclass = subclass;
+    while (directSubclass.getSuperclass() != superclass) {
+      directSubclass = directSubclass.getSuperclass();
+      if (directSubclass == null) {
+        throw new IllegalStateException(subclass.getName() + " is no subclass of " + superclass.getName());
+      }
+    }
+    Type genericSuperclass = directSubclass.getGenericSuperclass();
+    if (!(genericSuperclass instanceof ParameterizedType)) {
+      throw new IllegalStateException("Generic type argument missing for superclass " + superclass
+          .getSimpleName());
+    }
+    ParameterizedType parameterizedSuperclass = (ParameterizedType) genericSuperclass;
+    Type valueType = parameterizedSuperclass.getActualTypeArguments()[parameterIndex];
+    if (valueType instanceof TypeVariable) {
+      TypeVariable<?> variable = (TypeVariable<?>) valueType;
+      TypeVariable<?>[] typeParameters = directSubclass.getTypeParameters();
+      for (int i = 0; i < typeParameters.length; i++) {
+        if (typeParameters[i].getName().equals(variable.getName())) {
+          return resolve(subclass, directSubclass, i);
+        }
+      }
+      throw new IllegalStateException(variable + " cannot be resolved");
+    }
+    if (valueType instanceof ParameterizedType) {
+      return (Class<?>) ((ParameterizedType) valueType).getRawType();
+    }
+    if (!(valueType instanceof Class)) {
+      throw new IllegalStateException(valueType + " cannot be resolved");
+    }
+    return (Class<?>) valueType;
+  }
+}
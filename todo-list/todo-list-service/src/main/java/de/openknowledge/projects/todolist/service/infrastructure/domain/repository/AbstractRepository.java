@@ -18,13 +18,12 @@ package de.openknowledge.projects.todolist.service.infrastructure.domain.reposit
 import static org.apache.commons.lang3.Validate.notNull;
 
 import de.openknowledge.projects.todolist.service.infrastructure.domain.entity.AbstractEntity;
+import de.openknowledge.projects.todolist.service.infrastructure.domain.generic.TypeArgumentResolver;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.Optional;
 
 import javax.persistence.EntityManager;
@@ -48,9 +47,7 @@ public abstract class AbstractRepository<E extends AbstractEntity> implements Se
 
   protected AbstractRepository(final EntityManager entityManager) {
     this();
-    ParameterizedType genericSuperclass = (ParameterizedType) this.getClass().getGenericSuperclass();
-    Type type = genericSuperclass.getActualTypeArguments()[0];
-    this.clazz = (Class<E>) type;
+    this.clazz = TypeArgumentResolver.resolve(getClass(), AbstractRepository.class, 0);
     this.entityManager = notNull(entityManager, "entityManager must not be null");
   }
 
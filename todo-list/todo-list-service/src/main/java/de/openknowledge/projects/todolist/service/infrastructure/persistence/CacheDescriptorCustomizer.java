@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.persistence;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.persistence.annotations.CacheType;
+import org.eclipse.persistence.config.DescriptorCustomizer;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * EclipseLink descriptor customizer that configures the second-level cache of an entity with the config properties
+ * <ul>
+ * <li><code>persistence.cache.&lt;entity name&gt;.type</code>: the {@link CacheType}, e.g. <code>CACHE</code> for a bounded LRU cache</li>
+ * <li><code>persistence.cache.&lt;entity name&gt;.size</code>: the (initial) number of cached entities</li>
+ * <li><code>persistence.cache.&lt;entity name&gt;.ttl</code>: the time to live of a cached entity in milliseconds</li>
+ * </ul>
+ * The customizer has to be registered per entity with the persistence unit property
+ * <code>eclipselink.descriptor.customizer.&lt;entity name&gt;</code>.
+ */
+public class CacheDescriptorCustomizer implements DescriptorCustomizer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CacheDescriptorCustomizer.class);
+
+  private static final String CACHE_PROPERTY = "persistence.cache.%s.%s";
+
+  private final Function<String, Optional<String>> config;
+
+  public CacheDescriptorCustomizer() {
+    this(key -> ConfigProvider.getConfig().getOptionalValue(key, String.class));
+  }
+
+  CacheDescriptorCustomizer(final Function<String, Optional<String>> config) {
+    super();
+    this.config = notNull(config, "config must not be null");
+  }
+
+  @Override
+  public void customize(final ClassDescriptor descriptor) {
+    String entityName = descriptor.getAlias();
+
+    property(entityName, "type").map(type -> CacheType.valueOf(type.trim().toUpperCase(Locale.ROOT))).ifPresent(type -> {
+      LOG.info("Set cache type of {} to {}", entityName, type);
+      setCacheType(descriptor, type);
+    });
+
+    property(entityName, "size").map(Integer::valueOf).ifPresent(size -> {
+      isTrue(size > 0, "cache size of %s must be positive", entityName);
+      LOG.info("Set cache size of {} to {}", entityName, size);
+      descriptor.setIdentityMapSize(size);
+    });
+
+    property(entityName, "ttl").map(Long::valueOf).ifPresent(ttl -> {
+      isTrue(ttl > 0, "cache ttl of %s must be positive", entityName);
+      LOG.info("Set cache ttl of {} to {} ms", entityName, ttl);
+      descriptor.setCacheInvalidationPolicy(new TimeToLiveCacheInvalidationPolicy(ttl));
+    });
+  }
+
+  private Optional<String> property(final String entityName, final String name) {
+    return config.apply(String.format(CACHE_PROPERTY, entityName, name));
+  }
+
+  private static void setCacheType(final ClassDescriptor descriptor, final CacheType type) {
+    switch (type) {
+      case FULL:
+        descriptor.useFullIdentityMap();
+        break;
+      case WEAK:
+        descriptor.useWeakIdentityMap();
+        break;
+      case SOFT:
+        descriptor.useSoftIdentityMap();
+        break;
+      case SOFT_WEAK:
+        descriptor.useSoftCacheWeakIdentityMap();
+        break;
+      case HARD_WEAK:
+        descriptor.useHardCacheWeakIdentityMap();
+        break;
+      case CACHE:
+        descriptor.useCacheIdentityMap();
+        break;
+      case NONE:
+        descriptor.useNoIdentityMap();
+        break;
+      default:
+        throw new IllegalArgumentException("unsupported cache type " + type);
+    }
+  }
+}
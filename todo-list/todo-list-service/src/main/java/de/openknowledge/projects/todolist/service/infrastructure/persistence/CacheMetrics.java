@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.persistence;
+
+import org.eclipse.microprofile.metrics.MetricUnits;
+import org.eclipse.microprofile.metrics.annotation.Gauge;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Exposes the hits and misses of the second-level entity cache and the {@link QueryResultCache} as metrics.
+ */
+@ApplicationScoped
+public class CacheMetrics {
+
+  @Inject
+  private QueryResultCache queryResultCache;
+
+  @Gauge(name = "persistence.entity-cache.hits", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of entities read by id from the second-level cache")
+  public long getEntityCacheHits() {
+    return CacheStatisticsProfiler.getHits();
+  }
+
+  @Gauge(name = "persistence.entity-cache.misses", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of entities read by id from the database")
+  public long getEntityCacheMisses() {
+    return CacheStatisticsProfiler.getMisses();
+  }
+
+  @Gauge(name = "persistence.entity-cache.hit-ratio", unit = MetricUnits.NONE, absolute = true,
+      description = "Ratio of entities read by id from the second-level cache")
+  public double getEntityCacheHitRatio() {
+    return ratio(CacheStatisticsProfiler.getHits(), CacheStatisticsProfiler.getMisses());
+  }
+
+  @Gauge(name = "persistence.query-cache.hits", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of query results read from the query result cache")
+  public long getQueryCacheHits() {
+    return queryResultCache.getHits();
+  }
+
+  @Gauge(name = "persistence.query-cache.misses", unit = MetricUnits.NONE, absolute = true,
+      description = "Number of query results read from the database")
+  public long getQueryCacheMisses() {
+    return queryResultCache.getMisses();
+  }
+
+  @Gauge(name = "persistence.query-cache.hit-ratio", unit = MetricUnits.NONE, absolute = true,
+      description = "Ratio of query results read from the query result cache")
+  public double getQueryCacheHitRatio() {
+    return ratio(queryResultCache.getHits(), queryResultCache.getMisses());
+  }
+
+  private static double ratio(final long hits, final long misses) {
+    long total = hits + misses;
+    return total == 0 ? 0 : (double) hits / total;
+  }
+}
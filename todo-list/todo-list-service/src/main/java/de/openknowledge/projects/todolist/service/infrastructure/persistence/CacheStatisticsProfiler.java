@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.persistence;
+
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.queries.DatabaseQuery;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.sessions.SessionProfilerAdapter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EclipseLink profiler that counts the hits and misses of the second-level cache for reads by primary key. All other profiling events are
+ * ignored. The profiler has to be registered with the persistence unit property <code>eclipselink.profiler</code>.
+ */
+public class CacheStatisticsProfiler extends SessionProfilerAdapter {
+
+  private static final LongAdder HITS = new LongAdder();
+
+  private static final LongAdder MISSES = new LongAdder();
+
+  public static long getHits() {
+    return HITS.sum();
+  }
+
+  public static long getMisses() {
+    return MISSES.sum();
+  }
+
+  @Override
+  public void occurred(final String operationName, final DatabaseQuery query, final AbstractSession session) {
+    if (SessionProfiler.CacheHits.equals(operationName)) {
+      HITS.increment();
+    } else if (SessionProfiler.CacheMisses.equals(operationName)) {
+      MISSES.increment();
+    }
+  }
+
+  @Override
+  public int getProfileWeight() {
+    return SessionProfiler.NORMAL;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.persistence;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import de.openknowledge.projects.todolist.service.infrastructure.domain.value.AbstractValueObject;
+
+import java.util.Optional;
+
+/**
+ * A notification that was sent by the database on a channel, e.g. with the PostgreSQL command <code>NOTIFY channel, 'payload'</code>.
+ */
+public class DatabaseNotification extends AbstractValueObject {
+
+  private final String channel;
+
+  private final String payload;
+
+  public DatabaseNotification(final String channel, final String payload) {
+    super();
+    this.channel = notNull(channel, "channel must not be null");
+    this.payload = notNull(payload, "payload must not be null");
+  }
+
+  private DatabaseNotification(final String channel) {
+    super();
+    this.channel = notNull(channel, "channel must not be null");
+    this.payload = null;
+  }
+
+  /**
+   * Creates a notification that signals that notifications of the given channel may have been missed, e.g. while the connection to the
+   * database was lost. Receivers have to assume that anything may have changed.
+   */
+  public static DatabaseNotification missed(final String channel) {
+    return new DatabaseNotification(channel);
+  }
+
+  public String getChannel() {
+    return channel;
+  }
+
+  /**
+   * @return the payload, or an empty optional if notifications may have been missed
+   */
+  public Optional<String> getPayload() {
+    return Optional.ofNullable(payload);
+  }
+
+  @Override
+  protected Object[] values() {
+    return new Object[]{channel, payload};
+  }
+
+  @Override
+  public String toString() {
+    return "DatabaseNotification{" +
+           "channel='" + channel + '\'' +
+           ", payload='" + payload + '\'' +
+           '}';
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.persistence;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
+/**
+ * Listens for PostgreSQL notifications (<code>LISTEN/NOTIFY</code>) on the channels given by the config property
+ * <code>persistence.notification.channels</code> and fires them as CDI events of type {@link DatabaseNotification}.
+ * <p>
+ * PostgreSQL delivers notifications after the sending transaction has been committed to every listening connection, including the ones of
+ * the sending service instance. The listener holds one connection of the datasource for its whole lifetime. If the connection is lost, it
+ * reconnects and fires a {@link DatabaseNotification#missed(String)} notification for each channel.
+ */
+@ApplicationScoped
+public class DatabaseNotificationListener {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DatabaseNotificationListener.class);
+
+  private static final Pattern CHANNEL_NAME = Pattern.compile("[a-z_][a-z0-9_]*");
+
+  private static final int POLL_TIMEOUT_MILLIS = 1000;
+
+  private static final long RECONNECT_DELAY_MILLIS = 5000;
+
+  @Inject
+  private DataSource dataSource;
+
+  @Inject
+  private Event<DatabaseNotification> notifications;
+
+  @Resource
+  private ManagedExecutorService executor;
+
+  @Inject
+  @ConfigProperty(name = "persistence.notification.channels")
+  private List<String> channels;
+
+  private volatile boolean running;
+
+  private Future<?> task;
+
+  void start(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+    channels.forEach(channel -> isTrue(CHANNEL_NAME.matcher(channel).matches(), "invalid channel name %s", channel));
+
+    running = true;
+    task = executor.submit(this::listen);
+  }
+
+  @PreDestroy
+  void stop() {
+    running = false;
+    if (task != null) {
+      task.cancel(true);
+    }
+  }
+
+  private void listen() {
+    while (running) {
+      try (Connection connection = dataSource.getConnection()) {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        try (Statement statement = connection.createStatement()) {
+          for (String channel : channels) {
+            statement.execute("LISTEN " + channel);
+          }
+        }
+
+        LOG.info("Listening for notifications on {}", channels);
+        channels.forEach(channel -> fire(DatabaseNotification.missed(channel)));
+
+        while (running) {
+          PGNotification[] received = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+          if (received != null) {
+            for (PGNotification notification : received) {
+              fire(new DatabaseNotification(notification.getName(), notification.getParameter()));
+            }
+          }
+        }
+      } catch (SQLException e) {
+        if (!running) {
+          return;
+        }
+        LOG.warn("Listening for notifications failed, reconnecting in {} ms", RECONNECT_DELAY_MILLIS, e);
+        try {
+          TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private void fire(final DatabaseNotification notification) {
+    LOG.debug("Received {}", notification);
+    try {
+      notifications.fire(notification);
+    } catch (RuntimeException e) {
+      LOG.error("Processing of {} failed", notification, e);
+    }
+  }
+}
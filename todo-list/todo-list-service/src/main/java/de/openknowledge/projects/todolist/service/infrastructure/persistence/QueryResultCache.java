@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.persistence;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * A bounded cache for query results. The least recently used result is evicted if the cache is full, results expire after a configurable
+ * time to live. Results are cached per entity class and have to be invalidated whenever an entity of that class is created, updated or
+ * deleted.
+ * <p>
+ * Size and time to live are configured with the config properties <code>persistence.query-cache.size</code> and
+ * <code>persistence.query-cache.ttl</code> (milliseconds). A size of 0 disables the cache.
+ */
+@ApplicationScoped
+public class QueryResultCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(QueryResultCache.class);
+
+  @Inject
+  @ConfigProperty(name = "persistence.query-cache.size", defaultValue = "1000")
+  private int maxSize;
+
+  @Inject
+  @ConfigProperty(name = "persistence.query-cache.ttl", defaultValue = "60000")
+  private long ttl;
+
+  private final LongSupplier clock;
+
+  private final Map<List<Object>, CachedResult> results = new LinkedHashMap<List<Object>, CachedResult>(16, 0.75f, true) {
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<List<Object>, CachedResult> eldest) {
+      return size() > maxSize;
+    }
+  };
+
+  private final Map<Class<?>, Long> generations = new HashMap<>();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  public QueryResultCache() {
+    this.clock = System::nanoTime;
+  }
+
+  QueryResultCache(final int maxSize, final long ttl, final LongSupplier clock) {
+    isTrue(maxSize >= 0, "maxSize must not be negative");
+    isTrue(ttl > 0, "ttl must be positive");
+    this.maxSize = maxSize;
+    this.ttl = ttl;
+    this.clock = notNull(clock, "clock must not be null");
+  }
+
+  /**
+   * Returns the cached result of the given query or loads and caches it. A result that is loaded while the entity class is invalidated is
+   * returned but not cached.
+   *
+   * @param entityClass the entity class the query depends on
+   * @param query       the query key, e.g. the query name and its parameters
+   * @param loader      executes the query
+   */
+  @SuppressWarnings("unchecked")
+  public <R> R get(final Class<?> entityClass, final Object query, final Supplier<R> loader) {
+    notNull(entityClass, "entityClass must not be null");
+    notNull(loader, "loader must not be null");
+
+    List<Object> key = Arrays.asList(entityClass, query);
+    long generation;
+    synchronized (results) {
+      CachedResult cached = results.get(key);
+      if (cached != null && cached.isValid(clock.getAsLong())) {
+        hits.increment();
+        return (R) cached.result;
+      }
+      if (cached != null) {
+        results.remove(key);
+      }
+      generation = generations.getOrDefault(entityClass, 0L);
+    }
+
+    misses.increment();
+    R result = loader.get();
+
+    synchronized (results) {
+      if (maxSize > 0 && generation == generations.getOrDefault(entityClass, 0L)) {
+        results.put(key, new CachedResult(result, clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(ttl)));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Removes all cached results of queries that depend on the given entity class.
+   */
+  public void invalidate(final Class<?> entityClass) {
+    notNull(entityClass, "entityClass must not be null");
+
+    synchronized (results) {
+      generations.merge(entityClass, 1L, Long::sum);
+      results.keySet().removeIf(key -> key.get(0).equals(entityClass));
+    }
+
+    LOG.debug("Invalidated query results of {}", entityClass.getSimpleName());
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public int size() {
+    synchronized (results) {
+      return results.size();
+    }
+  }
+
+  private static final class CachedResult {
+
+    private final Object result;
+
+    private final long expiresAt;
+
+    CachedResult(final Object result, final long expiresAt) {
+      this.result = result;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isValid(final long now) {
+      return now - expiresAt < 0;
+    }
+  }
+}
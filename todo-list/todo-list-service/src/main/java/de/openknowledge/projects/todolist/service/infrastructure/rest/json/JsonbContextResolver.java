@@ -13,24 +13,24 @@
  * See the License for the specific language governing permissions
  * and limitations under the License.
  */
-package de.openknowledge.projects.todolist.service.infrastructure.qualifier;
+package de.openknowledge.projects.todolist.service.infrastructure.rest.json;
 
-import static java.lang.annotation.ElementType.FIELD;
-import static java.lang.annotation.ElementType.METHOD;
-import static java.lang.annotation.ElementType.PARAMETER;
-import static java.lang.annotation.RetentionPolicy.RUNTIME;
-
-import java.lang.annotation.Retention;
-import java.lang.annotation.Target;
-
-import javax.inject.Qualifier;
+import javax.json.bind.Jsonb;
+import javax.json.bind.JsonbBuilder;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
 
 /**
- * CDI Qualifier
+ * Provides the {@link Jsonb} instance that JSON entities are written with, so resources that write JSON themselves (e.g. newline
+ * delimited JSON) produce the same representation and don't create an instance of their own.
  */
-@Qualifier
-@Target({FIELD, PARAMETER, METHOD})
-@Retention(RUNTIME)
-public @interface Updated {
+@Provider
+public class JsonbContextResolver implements ContextResolver<Jsonb> {
+
+  private final Jsonb jsonb = JsonbBuilder.create();
 
+  @Override
+  public Jsonb getContext(final Class<?> type) {
+    return jsonb;
+  }
 }
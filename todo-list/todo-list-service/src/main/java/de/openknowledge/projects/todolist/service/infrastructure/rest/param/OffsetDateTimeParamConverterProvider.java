@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.rest.param;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ext.ParamConverter;
+import javax.ws.rs.ext.ParamConverterProvider;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Converts ISO-8601 query, path and header parameters to {@link OffsetDateTime}. Invalid values result in a 400 response.
+ */
+@Provider
+public class OffsetDateTimeParamConverterProvider implements ParamConverterProvider {
+
+  private static final ParamConverter<OffsetDateTime> CONVERTER = new OffsetDateTimeParamConverter();
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> ParamConverter<T> getConverter(final Class<T> rawType, final Type genericType, final Annotation[] annotations) {
+    return OffsetDateTime.class.equals(rawType) ? (ParamConverter<T>) CONVERTER : null;
+  }
+
+  private static class OffsetDateTimeParamConverter implements ParamConverter<OffsetDateTime> {
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+    @Override
+    public OffsetDateTime fromString(final String value) {
+      if (value == null || value.isEmpty()) {
+        return null;
+      }
+      try {
+        // an unencoded '+' of the offset arrives as a space
+        return formatter.parse(value.trim().replace(' ', '+'), OffsetDateTime::from);
+      } catch (DateTimeParseException e) {
+        throw new BadRequestException(String.format("'%s' is not a valid ISO-8601 date-time", value), e);
+      }
+    }
+
+    @Override
+    public String toString(final OffsetDateTime value) {
+      return value != null ? formatter.format(value) : null;
+    }
+  }
+}
@@ -18,8 +18,12 @@ package de.openknowledge.projects.todolist.service.infrastructure.validation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
-import java.util.Set;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.validation.MessageInterpolator;
 import javax.validation.Payload;
@@ -35,14 +39,35 @@ import javax.validation.Validation;
  * If neither any custom message, message template or ValidationErrorPayload is specified at the constraint, the default message will be
  * returned.
  *
+ * Interpolated messages are cached per message template, locale and constraint. Templates containing expression language
+ * (<code>${...}</code>) are not cached, as they may refer to the validated value. Messages in the ValidationMessages.properties that are
+ * referenced by a {@link ValidationErrorPayload} must not use expression language.
+ *
  * @see MessageInterpolator (https://beanvalidation.org/2.0/spec/#validationapi-message-customresolution)
  */
 public class CustomValidationErrorPayloadMessageInterpolator implements MessageInterpolator {
 
   private static final Logger LOG = LoggerFactory.getLogger(CustomValidationErrorPayloadMessageInterpolator.class);
 
+  private static final int MAX_CACHED_MESSAGES = 1024;
+
+  private static final ClassValue<String> PAYLOAD_TEMPLATES = new ClassValue<String>() {
+
+    @Override
+    protected String computeValue(final Class<?> payloadClass) {
+      try {
+        return "{" + ValidationErrorPayload.of(payloadClass.asSubclass(Payload.class)).getErrorCode() + "}";
+      } catch (RuntimeException e) {
+        LOG.error(e.getMessage(), e);
+        return "UNKNOWN";
+      }
+    }
+  };
+
   private final MessageInterpolator delegate;
 
+  private final ConcurrentMap<List<Object>, String> messages = new ConcurrentHashMap<>();
+
   /**
    * Default constructor required for XML configuration.
    */
@@ -57,12 +82,25 @@ public class CustomValidationErrorPayloadMessageInterpolator implements MessageI
 
   @Override
   public String interpolate(String message, Context context) {
-    return this.delegate.interpolate(getMessage(message, context), context);
+    return interpolate(message, context, Locale.getDefault());
   }
 
   @Override
   public String interpolate(String message, Context context, Locale locale) {
-    return this.delegate.interpolate(getMessage(message, context), context, locale);
+    String template = getMessage(message, context);
+    if (template.contains("${")) {
+      return this.delegate.interpolate(template, context, locale);
+    }
+
+    List<Object> key = Arrays.asList(template, locale, context.getConstraintDescriptor());
+    String interpolatedMessage = messages.get(key);
+    if (interpolatedMessage == null) {
+      interpolatedMessage = this.delegate.interpolate(template, context, locale);
+      if (messages.size() < MAX_CACHED_MESSAGES) {
+        messages.putIfAbsent(key, interpolatedMessage);
+      }
+    }
+    return interpolatedMessage;
   }
 
   private String getMessage(final String message, final Context context) {
@@ -74,11 +112,7 @@ public class CustomValidationErrorPayloadMessageInterpolator implements MessageI
       return message;
     }
 
-    if (isConstraintWithValidationErrorPayload(context)) {
-      return getValidationErrorPayloadMessage(context);
-    }
-
-    return message;
+    return getValidationErrorPayloadMessage(context).orElse(message);
   }
 
   private boolean isConstraintWithCustomMessage(final String message) {
@@ -92,21 +126,12 @@ public class CustomValidationErrorPayloadMessageInterpolator implements MessageI
            && !message.contains("org.hibernate.validator.constraints.");
   }
 
-  private boolean isConstraintWithValidationErrorPayload(final Context context) {
-    Set<Class<? extends Payload>> payloads = context.getConstraintDescriptor().getPayload();
-    return payloads.stream().anyMatch(ValidationErrorPayload.PREDICATE);
-  }
-
-  private String getValidationErrorPayloadMessage(final Context context) {
-    String message = "UNKNOWN";
-    try {
-      Set<Class<? extends Payload>> payloads = context.getConstraintDescriptor().getPayload();
-      Class<? extends Payload> clazz = payloads.stream().filter(ValidationErrorPayload.PREDICATE).findFirst().get();
-      ValidationErrorPayload payload = (ValidationErrorPayload) clazz.newInstance();
-      message = "{" + payload.getErrorCode() + "}";
-    } catch (InstantiationException | IllegalAccessException e) {
-      LOG.error(e.getMessage(), e);
+  private Optional<String> getValidationErrorPayloadMessage(final Context context) {
+    for (Class<? extends Payload> payload : context.getConstraintDescriptor().getPayload()) {
+      if (ValidationErrorPayload.PREDICATE.test(payload)) {
+        return Optional.of(PAYLOAD_TEMPLATES.get(payload));
+      }
     }
-    return message;
+    return Optional.empty();
   }
 }
@@ -47,9 +47,9 @@ public class ValidationErrorDTO extends ErrorDTO {
       Set<Class<? extends Payload>> payloads = constraintViolation.getConstraintDescriptor().getPayload();
       if (isConstraintWithValidationErrorPayload(payloads)) {
         Class<? extends Payload> clazz = payloads.stream().filter(ValidationErrorPayload.PREDICATE).findFirst().get();
-        errorPayload = (ValidationErrorPayload) clazz.newInstance();
+        errorPayload = ValidationErrorPayload.of(clazz);
       }
-    } catch (InstantiationException | IllegalAccessException e) {
+    } catch (IllegalStateException e) {
       LOG.error(e.getMessage(), e);
     }
 
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.validation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.spi.CDI;
+import javax.validation.Validation;
+import javax.validation.Validator;
+
+/**
+ * Provides a shared, thread-safe {@link Validator}. The container managed validator is used if CDI is available, otherwise a validator of
+ * the default validator factory is created once.
+ */
+public final class ValidatorProvider {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ValidatorProvider.class);
+
+  private static volatile Validator validator;
+
+  private ValidatorProvider() {
+    super();
+  }
+
+  public static Validator getValidator() {
+    Validator result = validator;
+    if (result == null) {
+      result = lookupValidator();
+      validator = result;
+    }
+    return result;
+  }
+
+  private static Validator lookupValidator() {
+    try {
+      Instance<Validator> instance = CDI.current().select(Validator.class);
+      if (instance.isResolvable()) {
+        LOG.debug("Use container managed validator");
+        return instance.get();
+      }
+    } catch (IllegalStateException e) {
+      LOG.debug("CDI is not available ({})", e.getMessage());
+    }
+
+    LOG.debug("Use validator of the default validator factory");
+    return Validation.buildDefaultValidatorFactory().getValidator();
+  }
+}
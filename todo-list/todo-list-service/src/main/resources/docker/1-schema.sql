@@ -5,7 +5,52 @@ CREATE TABLE IF NOT EXISTS PUBLIC.TAB_TODO
     tod_description VARCHAR(500),
     tod_duedate     TIMESTAMP NOT NULL,
     tod_done        BOOLEAN NOT NULL,
+    tod_version     BIGINT NOT NULL DEFAULT 1,
+    tod_modified_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     PRIMARY KEY (tod_id)
 );
 
-ALTER SEQUENCE PUBLIC.TAB_TODO_TOD_ID_SEQ RESTART 1000;
\ No newline at end of file
+-- ids are allocated by the application in blocks of 50 (see Todo), the first block is 1000 - 1049. The column has no default, because
+-- nextval returns the end of a block that may already be in use, so every insert has to give the id.
+ALTER SEQUENCE PUBLIC.TAB_TODO_TOD_ID_SEQ INCREMENT BY 50 RESTART 1049;
+ALTER TABLE PUBLIC.TAB_TODO ALTER COLUMN tod_id DROP DEFAULT;
+
+CREATE INDEX IF NOT EXISTS IDX_TODO_DUEDATE_ID ON PUBLIC.TAB_TODO (tod_duedate, tod_id);
+CREATE INDEX IF NOT EXISTS IDX_TODO_DONE_DUEDATE_ID ON PUBLIC.TAB_TODO (tod_done, tod_duedate, tod_id);
+
+-- notify all service instances about changes to invalidate their caches (see TodoCacheInvalidator)
+CREATE OR REPLACE FUNCTION PUBLIC.NOTIFY_TODO_CHANGED() RETURNS TRIGGER AS '
+BEGIN
+    IF TG_LEVEL = ''ROW'' THEN
+        PERFORM pg_notify(''todo_changed'', OLD.tod_id::text);
+    ELSE
+        PERFORM pg_notify(''todo_changed'', '''');
+    END IF;
+    RETURN NULL;
+END;
+' LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS TRG_TODO_CHANGED ON PUBLIC.TAB_TODO;
+CREATE TRIGGER TRG_TODO_CHANGED AFTER UPDATE OR DELETE ON PUBLIC.TAB_TODO FOR EACH ROW EXECUTE PROCEDURE PUBLIC.NOTIFY_TODO_CHANGED();
+
+DROP TRIGGER IF EXISTS TRG_TODO_CREATED ON PUBLIC.TAB_TODO;
+CREATE TRIGGER TRG_TODO_CREATED AFTER INSERT ON PUBLIC.TAB_TODO FOR EACH STATEMENT EXECUTE PROCEDURE PUBLIC.NOTIFY_TODO_CHANGED();
+
+-- publish every changed todo with a global sequence number to the change feeds of all service instances (see TodoChangeFeed)
+CREATE SEQUENCE IF NOT EXISTS PUBLIC.SQ_TODO_CHANGE;
+
+CREATE OR REPLACE FUNCTION PUBLIC.NOTIFY_TODO_FEED() RETURNS TRIGGER AS '
+BEGIN
+    IF TG_OP = ''DELETE'' THEN
+        PERFORM pg_notify(''todo_feed'', nextval(''PUBLIC.SQ_TODO_CHANGE'') || '',deleted,'' || OLD.tod_id);
+    ELSIF TG_OP = ''UPDATE'' THEN
+        PERFORM pg_notify(''todo_feed'', nextval(''PUBLIC.SQ_TODO_CHANGE'') || '',updated,'' || NEW.tod_id);
+    ELSE
+        PERFORM pg_notify(''todo_feed'', nextval(''PUBLIC.SQ_TODO_CHANGE'') || '',created,'' || NEW.tod_id);
+    END IF;
+    RETURN NULL;
+END;
+' LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS TRG_TODO_FEED ON PUBLIC.TAB_TODO;
+CREATE TRIGGER TRG_TODO_FEED AFTER INSERT OR UPDATE OR DELETE ON PUBLIC.TAB_TODO FOR EACH ROW EXECUTE PROCEDURE PUBLIC.NOTIFY_TODO_FEED();
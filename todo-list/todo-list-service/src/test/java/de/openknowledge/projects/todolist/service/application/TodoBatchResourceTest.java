@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+import de.openknowledge.projects.todolist.service.domain.TestTodos;
+import de.openknowledge.projects.todolist.service.domain.Todo;
+import de.openknowledge.projects.todolist.service.domain.TodoRepository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.Response;
+
+/**
+ * Test class for the resource {@link TodoBatchResource}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TodoBatchResourceTest {
+
+  @InjectMocks
+  private TodoBatchResource resource;
+
+  @Mock
+  private TodoRepository repository;
+
+  @Spy
+  private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+  @Test
+  public void createTodosShouldReturnResultPerItem() {
+    Todo defaultTodo = TestTodos.newDefaultTodo();
+
+    NewTodo validTodo = new NewTodo();
+    validTodo.setTitle(defaultTodo.getTitle());
+    validTodo.setDueDate(defaultTodo.getDueDate());
+
+    NewTodo invalidTodo = new NewTodo();
+    invalidTodo.setDueDate(defaultTodo.getDueDate());
+
+    Response response = resource.createTodos(Arrays.asList(validTodo, invalidTodo));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+
+    List<TodoBatchResultDTO> results = getResults(response);
+    assertThat(results).extracting(TodoBatchResultDTO::getIndex).containsExactly(0, 1);
+    assertThat(results).extracting(TodoBatchResultDTO::getStatus).containsExactly(201, 400);
+    assertThat(results.get(1).getErrors()).extracting("code").containsExactly("TITLE_IS_NULL");
+
+    verify(repository).create(any(Todo.class));
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void createTodosShouldFailForEmptyBatch() {
+    assertThatExceptionOfType(BadRequestException.class)
+        .isThrownBy(() -> resource.createTodos(Collections.emptyList()));
+
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void deleteTodosShouldReturnResultPerItem() {
+    Todo defaultTodo = TestTodos.newDefaultTodo();
+    Mockito.doReturn(Collections.singletonList(defaultTodo)).when(repository).findAllById(anyCollection());
+
+    Response response = resource.deleteTodos(Arrays.asList(1L, 2L));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+
+    List<TodoBatchResultDTO> results = getResults(response);
+    assertThat(results).extracting(TodoBatchResultDTO::getId).containsExactly(1L, 2L);
+    assertThat(results).extracting(TodoBatchResultDTO::getStatus).containsExactly(204, 404);
+
+    verify(repository).findAllById(anyCollection());
+    verify(repository).delete(defaultTodo);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void deleteTodosShouldFailForTooLargeBatch() {
+    Long[] ids = new Long[TodoBatchResource.MAX_BATCH_SIZE + 1];
+    Arrays.fill(ids, 1L);
+
+    assertThatExceptionOfType(BadRequestException.class)
+        .isThrownBy(() -> resource.deleteTodos(Arrays.asList(ids)));
+
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void getTodosShouldReturnResultPerIdInRequestOrder() {
+    Todo defaultTodo = TestTodos.newDefaultTodo();
+    Mockito.doReturn(Collections.singletonList(defaultTodo)).when(repository).findAllById(anyCollection());
+
+    Response response = resource.getTodos(Arrays.asList(2L, 1L, 2L));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+
+    List<TodoBatchResultDTO> results = getResults(response);
+    assertThat(results).extracting(TodoBatchResultDTO::getIndex).containsExactly(0, 1, 2);
+    assertThat(results).extracting(TodoBatchResultDTO::getId).containsExactly(2L, 1L, 2L);
+    assertThat(results).extracting(TodoBatchResultDTO::getStatus).containsExactly(404, 200, 404);
+    assertThat(results.get(1).getTodo()).isEqualTo(new TodoFullDTO(defaultTodo));
+    assertThat(results.get(0).getTodo()).isNull();
+
+    verify(repository).findAllById(anyCollection());
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void getTodosShouldRejectIdsOutOfRange() {
+    Todo defaultTodo = TestTodos.newDefaultTodo();
+    Mockito.doReturn(Collections.singletonList(defaultTodo)).when(repository).findAllById(anyCollection());
+
+    Response response = resource.getTodos(Arrays.asList(0L, 1L, 10001L));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+
+    List<TodoBatchResultDTO> results = getResults(response);
+    assertThat(results).extracting(TodoBatchResultDTO::getStatus).containsExactly(400, 200, 400);
+    assertThat(results.get(0).getErrors()).hasSize(1);
+    assertThat(results.get(1).getErrors()).isEmpty();
+    assertThat(results.get(2).getErrors()).hasSize(1);
+  }
+
+  @Test
+  public void updateTodosShouldReturnResultPerItem() {
+    Todo defaultTodo = TestTodos.newDefaultTodo();
+    Mockito.doReturn(Collections.singletonList(defaultTodo)).when(repository).findAllById(anyCollection());
+
+    IdentifiedModifiedTodo existingTodo = newModifiedTodo(1L, defaultTodo);
+    IdentifiedModifiedTodo unknownTodo = newModifiedTodo(2L, defaultTodo);
+    IdentifiedModifiedTodo invalidTodo = newModifiedTodo(null, defaultTodo);
+
+    Response response = resource.updateTodos(Arrays.asList(existingTodo, unknownTodo, invalidTodo));
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+
+    List<TodoBatchResultDTO> results = getResults(response);
+    assertThat(results).extracting(TodoBatchResultDTO::getStatus).containsExactly(204, 404, 400);
+    assertThat(results.get(2).getErrors()).extracting("code").containsExactly("ID_IS_NULL");
+    assertThat(defaultTodo.getDone()).isTrue();
+
+    verify(repository).findAllById(anyCollection());
+    verify(repository).update(defaultTodo);
+    verifyNoMoreInteractions(repository);
+  }
+
+  private static IdentifiedModifiedTodo newModifiedTodo(final Long id, final Todo todo) {
+    IdentifiedModifiedTodo modifiedTodo = new IdentifiedModifiedTodo();
+    modifiedTodo.setId(id);
+    modifiedTodo.setTitle(todo.getTitle());
+    modifiedTodo.setDueDate(todo.getDueDate());
+    modifiedTodo.setDone(true);
+    return modifiedTodo;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<TodoBatchResultDTO> getResults(final Response response) {
+    return (List<TodoBatchResultDTO>) response.getEntity();
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.openknowledge.projects.todolist.service.infrastructure.persistence.DatabaseNotification;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseBroadcaster;
+import javax.ws.rs.sse.SseEventSink;
+
+/**
+ * Test class for the {@link TodoChangeFeed}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TodoChangeFeedTest {
+
+  @Mock
+  private Sse sse;
+
+  @Mock
+  private SseBroadcaster broadcaster;
+
+  @Mock
+  private SseEventSink sink;
+
+  private final TodoChangeFeed feed = new TodoChangeFeed(3);
+
+  @Test
+  public void changesAfterShouldReturnChangesAfterLastEvent() {
+    notify("41,created,1");
+    String lastEventId = feed.lastEventId();
+    notify("43,updated,2");
+    notify("42,deleted,1");
+
+    Optional<List<TodoChangeFeed.Change>> changes = feed.changesAfter(lastEventId);
+
+    assertThat(lastEventId).isEqualTo("41");
+    assertThat(changes).isPresent();
+    assertThat(changes.get().stream().map(TodoChangeFeed.Change::getName).collect(Collectors.toList()))
+        .containsExactly(TodoChangeFeed.UPDATED_EVENT, TodoChangeFeed.DELETED_EVENT);
+    assertThat(changes.get().stream().map(TodoChangeFeed.Change::getTodoId).collect(Collectors.toList()))
+        .containsExactly(2L, 1L);
+  }
+
+  @Test
+  public void changesAfterShouldReturnNoChangesForLatestEvent() {
+    notify("1,created,1");
+
+    assertThat(feed.changesAfter(feed.lastEventId())).hasValue(Collections.emptyList());
+  }
+
+  @Test
+  public void changesAfterShouldReturnNothingForDroppedChanges() {
+    notify("1,created,1");
+    String lastEventId = feed.lastEventId();
+    for (long id = 2; id <= 4; id++) {
+      notify(id + ",created," + id);
+    }
+
+    assertThat(feed.changesAfter(lastEventId)).isEmpty();
+  }
+
+  @Test
+  public void changesAfterShouldReturnNothingForUnknownEvent() {
+    notify("1,created,1");
+
+    assertThat(feed.changesAfter("2")).isEmpty();
+    assertThat(feed.changesAfter("not an event id")).isEmpty();
+  }
+
+  @Test
+  public void changesAfterShouldReturnNothingAfterMissedNotifications() {
+    notify("1,created,1");
+    String lastEventId = feed.lastEventId();
+
+    feed.onNotification(DatabaseNotification.missed(TodoChangeFeed.CHANNEL));
+
+    assertThat(feed.changesAfter(lastEventId)).isEmpty();
+    assertThat(feed.lastEventId()).isNull();
+  }
+
+  @Test
+  public void onNotificationShouldIgnoreOtherChannels() {
+    feed.onNotification(new DatabaseNotification("todo_changed", "1"));
+
+    assertThat(feed.lastEventId()).isNull();
+  }
+
+  @Test
+  public void registerShouldAddSinkToBroadcaster() {
+    when(sse.newBroadcaster()).thenReturn(broadcaster);
+
+    feed.register(sse, sink, null);
+
+    verify(broadcaster).register(sink);
+  }
+
+  private void notify(final String payload) {
+    feed.onNotification(new DatabaseNotification(TodoChangeFeed.CHANNEL, payload));
+  }
+}
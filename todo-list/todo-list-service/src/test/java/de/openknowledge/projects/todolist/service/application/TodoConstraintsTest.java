@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.openknowledge.projects.todolist.service.infrastructure.validation.ValidationErrorPayload;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import javax.validation.metadata.ConstraintDescriptor;
+import javax.validation.metadata.PropertyDescriptor;
+
+/**
+ * Test class for the constraints of {@link NewTodo} and {@link ModifiedTodo}.
+ * <p>
+ * The todo-list-gateway validates todos with copies of these constraints. Both modules compare their constraints with
+ * <code>constraints/Todo-constraints.txt</code>, so a constraint that is changed on one side only fails the build.
+ */
+public class TodoConstraintsTest {
+
+  static final String CONSTRAINTS = "constraints/Todo-constraints.txt";
+
+  private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+  @Test
+  public void constraintsShouldMatchDescription() throws IOException, URISyntaxException {
+    List<String> expected = Files.readAllLines(Paths.get(getClass().getClassLoader().getResource(CONSTRAINTS).toURI()),
+                                               StandardCharsets.UTF_8);
+
+    List<String> constraints = new ArrayList<>();
+    constraints.addAll(describe(NewTodo.class));
+    constraints.addAll(describe(ModifiedTodo.class));
+
+    assertThat(constraints).containsExactlyElementsOf(expected);
+  }
+
+  /**
+   * Describes each constraint of the given class by a line with the class, property, constraint, attributes, groups and error code, e.g.
+   * <code>NewTodo.title NotNull {} [CreateTodoValidationGroup, UpdateTodoValidationGroup] TITLE_IS_NULL</code>.
+   */
+  private List<String> describe(final Class<?> type) {
+    List<String> constraints = new ArrayList<>();
+    for (PropertyDescriptor property : validator.getConstraintsForClass(type).getConstrainedProperties()) {
+      for (ConstraintDescriptor<?> constraint : property.getConstraintDescriptors()) {
+        Map<String, Object> attributes = new TreeMap<>(constraint.getAttributes());
+        attributes.remove("message");
+        attributes.remove("groups");
+        attributes.remove("payload");
+        String groups = constraint.getGroups().stream().map(Class::getSimpleName).sorted().collect(Collectors.toList()).toString();
+        String code = constraint.getPayload().stream()
+            .map(payload -> ValidationErrorPayload.of(payload).getErrorCode())
+            .collect(Collectors.joining(","));
+        constraints.add(String.format("%s.%s %s %s %s %s", type.getSimpleName(), property.getPropertyName(),
+                                      constraint.getAnnotation().annotationType().getSimpleName(), attributes, groups, code));
+      }
+    }
+    return constraints.stream().sorted().collect(Collectors.toList());
+  }
+}
@@ -45,4 +45,19 @@ public class TodoListDTOTest {
     assertThat(todo.getDueDate()).isEqualTo(defaultTodo.getDueDate());
     assertThat(todo.getDone()).isEqualTo(defaultTodo.getDone());
   }
+
+  @Test
+  public void instantiationFromValuesShouldSucceed() {
+    Todo defaultTodo = TestTodos.newDefaultTodo();
+    TodoListDTO todo = new TodoListDTO(defaultTodo.getId(), defaultTodo.getTitle(), defaultTodo.getDueDate(), defaultTodo.getDone());
+    assertThat(todo).isEqualTo(new TodoListDTO(defaultTodo));
+  }
+
+  @Test
+  public void instantiationFromValuesShouldFailForMissingValue() {
+    assertThatNullPointerException()
+        .isThrownBy(() -> new TodoListDTO(1L, null, null, false))
+        .withMessage("title must not be null")
+        .withNoCause();
+  }
 }
@@ -17,14 +17,21 @@ package de.openknowledge.projects.todolist.service.application;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import de.openknowledge.projects.todolist.service.domain.TestTodos;
 import de.openknowledge.projects.todolist.service.domain.Todo;
+import de.openknowledge.projects.todolist.service.domain.TodoCursor;
+import de.openknowledge.projects.todolist.service.domain.TodoFilter;
+import de.openknowledge.projects.todolist.service.domain.TodoListVersion;
 import de.openknowledge.projects.todolist.service.domain.TodoRepository;
 
+import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -33,10 +40,27 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import javax.json.bind.Jsonb;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Providers;
 
 /**
  * Test class for the resource {@link TodoResource}.
@@ -50,6 +74,20 @@ public class TodoResourceTest {
   @Mock
   private TodoRepository repository;
 
+  @Mock
+  private UriInfo uriInfo;
+
+  @Mock
+  private Request request;
+
+  @Mock
+  private Providers providers;
+
+  @Mock
+  private Jsonb jsonb;
+
+  private final TodoListVersion version = new TodoListVersion(2L, 3L, OffsetDateTime.parse("2018-01-01T12:34:56Z"));
+
   @Test
   public void createTodoShouldReturn201() {
     Todo defaultTodo = TestTodos.newDefaultTodo();
@@ -78,29 +116,59 @@ public class TodoResourceTest {
 
   @Test
   public void deleteTodoShouldReturn204() {
-    Todo defaultTodo = TestTodos.newDefaultTodo();
-    Mockito.doNothing().when(repository).delete(any(Todo.class));
-    Mockito.doReturn(Optional.of(defaultTodo)).when(repository).find(anyLong());
+    Mockito.doReturn(true).when(repository).delete(1L, null);
 
-    Response response = resource.deleteTodo(1L);
+    Response response = resource.deleteTodo(1L, null);
     assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
 
-    verify(repository).delete(any(Todo.class));
-    verify(repository).find(anyLong());
+    verify(repository).delete(1L, null);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void deleteTodoShouldReturn204ForMatchingVersion() {
+    Mockito.doReturn(true).when(repository).delete(1L, 3L);
+
+    Response response = resource.deleteTodo(1L, "\"3\"");
+    assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
+
+    verify(repository).delete(1L, 3L);
     verifyNoMoreInteractions(repository);
   }
 
   @Test
   public void deleteTodoShouldReturn404ForUnknownTodo() {
-    Mockito.doReturn(Optional.empty()).when(repository).find(anyLong());
+    Mockito.doReturn(false).when(repository).delete(-1L, null);
 
-    Response response = resource.deleteTodo(-1L);
+    Response response = resource.deleteTodo(-1L, null);
     assertThat(response.getStatus()).isEqualTo(Response.Status.NOT_FOUND.getStatusCode());
 
-    verify(repository).find(anyLong());
+    verify(repository).delete(-1L, null);
     verifyNoMoreInteractions(repository);
   }
 
+  @Test
+  public void deleteTodoShouldReturn412ForModifiedTodo() {
+    Mockito.doReturn(false).when(repository).delete(1L, 3L);
+    Mockito.doReturn(Optional.of(TestTodos.newDefaultTodo())).when(repository).find(1L);
+
+    Response response = resource.deleteTodo(1L, "\"3\"");
+    assertThat(response.getStatus()).isEqualTo(Response.Status.PRECONDITION_FAILED.getStatusCode());
+
+    verify(repository).delete(1L, 3L);
+    verify(repository).find(1L);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void deleteTodoShouldReturn412ForWeakEntityTag() {
+    Mockito.doReturn(false).when(repository).delete(1L, -1L);
+    Mockito.doReturn(Optional.of(TestTodos.newDefaultTodo())).when(repository).find(1L);
+
+    Response response = resource.deleteTodo(1L, "W/\"3\"");
+    assertThat(response.getStatus()).isEqualTo(Response.Status.PRECONDITION_FAILED.getStatusCode());
+  }
+
   @Test
   public void getTodoShouldReturn200() {
     Todo defaultTodo = TestTodos.newDefaultTodo();
@@ -113,6 +181,29 @@ public class TodoResourceTest {
     verifyNoMoreInteractions(repository);
   }
 
+  @Test
+  public void getTodoShouldReturnEntityTagAndLastModified() {
+    Todo defaultTodo = TestTodos.newDefaultTodo();
+    Mockito.doReturn(Optional.of(defaultTodo)).when(repository).find(anyLong());
+
+    Response response = resource.getTodo(1L);
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(response.getEntityTag()).isEqualTo(new EntityTag("1"));
+    assertThat(response.getLastModified()).isEqualTo(Date.from(defaultTodo.getModifiedAt().toInstant()));
+  }
+
+  @Test
+  public void getTodoShouldReturn304ForMatchingEntityTag() {
+    Todo defaultTodo = TestTodos.newDefaultTodo();
+    Mockito.doReturn(Optional.of(defaultTodo)).when(repository).find(anyLong());
+    Mockito.doReturn(Response.notModified()).when(request).evaluatePreconditions(any(Date.class), eq(new EntityTag("1")));
+
+    Response response = resource.getTodo(1L);
+    assertThat(response.getStatus()).isEqualTo(Response.Status.NOT_MODIFIED.getStatusCode());
+    assertThat(response.getEntityTag()).isEqualTo(new EntityTag("1"));
+    assertThat(response.hasEntity()).isFalse();
+  }
+
   @Test
   public void getTodoShouldReturn404ForEntityNotFoundException() {
     Mockito.doReturn(Optional.empty()).when(repository).find(anyLong());
@@ -126,46 +217,127 @@ public class TodoResourceTest {
 
   @Test
   public void getTodosShouldReturn200() {
-    Todo defaultTodo = TestTodos.newDefaultTodo();
-    Mockito.doReturn(Collections.singletonList(defaultTodo)).when(repository).findAll();
+    TodoListDTO defaultTodo = new TodoListDTO(TestTodos.newDefaultTodo());
+    Mockito.doReturn(version).when(repository).findVersion(any(TodoFilter.class), isNull());
+    Mockito.doReturn(Collections.singletonList(defaultTodo)).when(repository).findAll(eq(TodoListDTO.class), any(TodoFilter.class), isNull(), eq(101));
+
+    Response response = resource.getTodos(100, null, null, null, null);
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(response.getLink("next")).isNull();
+    assertThat(response.getEntityTag()).isEqualTo(new EntityTag(version.encode()));
 
-    Response response = resource.getTodos();
+    verify(repository).findVersion(TodoFilter.none(), null);
+    verify(repository).findAll(TodoListDTO.class, TodoFilter.none(), null, 101);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void getTodosShouldReturn200WithNextLink() {
+    TodoListDTO firstTodo = new TodoListDTO(TestTodos.newDefaultTodo());
+    TodoListDTO secondTodo = new TodoListDTO(TestTodos.newDefaultTodo());
+    Mockito.doReturn(version).when(repository).findVersion(any(TodoFilter.class), isNull());
+    Mockito.doReturn(Arrays.asList(firstTodo, secondTodo)).when(repository).findAll(eq(TodoListDTO.class), any(TodoFilter.class), isNull(), eq(2));
+    Mockito.doReturn(UriBuilder.fromUri("http://localhost/api/todos?limit=1&done=false")).when(uriInfo).getRequestUriBuilder();
+
+    Response response = resource.getTodos(1, null, false, null, null);
     assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(response.getLink("next").getUri().getQuery())
+        .contains("limit=1", "done=false", "after=" + new TodoCursor(firstTodo.getDueDate(), firstTodo.getId()).encode());
+
+    verify(repository).findVersion(new TodoFilter(false, null, null), null);
+    verify(repository).findAll(TodoListDTO.class, new TodoFilter(false, null, null), null, 2);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void getTodosShouldPassCursor() {
+    TodoCursor cursor = TodoCursor.of(TestTodos.newDefaultTodo());
+    Mockito.doReturn(version).when(repository).findVersion(any(TodoFilter.class), eq(cursor));
+    Mockito.doReturn(Collections.emptyList()).when(repository).findAll(eq(TodoListDTO.class), any(TodoFilter.class), eq(cursor), eq(11));
+
+    Response response = resource.getTodos(10, cursor.encode(), null, null, null);
+    assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
+
+    verify(repository).findVersion(TodoFilter.none(), cursor);
+    verify(repository).findAll(TodoListDTO.class, TodoFilter.none(), cursor, 11);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void getTodosShouldReturn304ForMatchingEntityTag() {
+    Mockito.doReturn(version).when(repository).findVersion(any(TodoFilter.class), isNull());
+    Mockito.doReturn(Response.notModified()).when(request).evaluatePreconditions(new EntityTag(version.encode()));
+
+    Response response = resource.getTodos(100, null, null, null, null);
+    assertThat(response.getStatus()).isEqualTo(Response.Status.NOT_MODIFIED.getStatusCode());
+    assertThat(response.getEntityTag()).isEqualTo(new EntityTag(version.encode()));
+
+    verify(repository).findVersion(TodoFilter.none(), null);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void getTodosShouldFailForInvalidCursor() {
+    Assertions.assertThatExceptionOfType(BadRequestException.class)
+        .isThrownBy(() -> resource.getTodos(10, "invalid", null, null, null));
 
-    verify(repository).findAll();
     verifyNoMoreInteractions(repository);
   }
 
   @Test
   public void getTodosShouldReturn204ForEmptyList() {
-    Mockito.doReturn(Collections.emptyList()).when(repository).findAll();
+    Mockito.doReturn(version).when(repository).findVersion(any(TodoFilter.class), isNull());
+    Mockito.doReturn(Collections.emptyList()).when(repository).findAll(eq(TodoListDTO.class), any(TodoFilter.class), isNull(), eq(101));
 
-    Response response = resource.getTodos();
+    Response response = resource.getTodos(100, null, null, null, null);
     assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
 
-    verify(repository).findAll();
+    verify(repository).findVersion(TodoFilter.none(), null);
+    verify(repository).findAll(TodoListDTO.class, TodoFilter.none(), null, 101);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void streamTodosShouldWriteNdjson() throws IOException {
+    TodoListDTO defaultTodo = new TodoListDTO(TestTodos.newDefaultTodo());
+    Mockito.doAnswer(invocation -> {
+      Consumer<TodoListDTO> consumer = invocation.getArgument(3);
+      consumer.accept(defaultTodo);
+      consumer.accept(defaultTodo);
+      return 2L;
+    }).when(repository).scrollAll(eq(TodoListDTO.class), any(TodoFilter.class), anyInt(), any(Consumer.class));
+    Mockito.doReturn((ContextResolver<Jsonb>) type -> jsonb)
+        .when(providers).getContextResolver(Jsonb.class, MediaType.APPLICATION_JSON_TYPE);
+    Mockito.doReturn("{\"id\":1,\"title\":\"clean fridge\"}").when(jsonb).toJson(defaultTodo);
+
+    Response response = resource.streamTodos(false, null, null);
+    assertThat(response.getStatus()).isEqualTo(Response.Status.OK.getStatusCode());
+    assertThat(response.getMediaType().toString()).isEqualTo(TodoResource.APPLICATION_NDJSON);
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ((StreamingOutput) response.getEntity()).write(output);
+
+    assertThat(new String(output.toByteArray(), StandardCharsets.UTF_8))
+        .isEqualTo("{\"id\":1,\"title\":\"clean fridge\"}\n{\"id\":1,\"title\":\"clean fridge\"}\n");
+
+    verify(repository).scrollAll(eq(TodoListDTO.class), eq(new TodoFilter(false, null, null)), anyInt(), any(Consumer.class));
     verifyNoMoreInteractions(repository);
   }
 
   @Test
   public void updateTodoShouldReturn204() {
     Todo defaultTodo = TestTodos.newDefaultTodo();
+    ModifiedTodo modifiedTodo = newModifiedTodo(defaultTodo);
 
-    ModifiedTodo modifiedTodo = new ModifiedTodo();
-    modifiedTodo.setTitle(defaultTodo.getTitle());
-    modifiedTodo.setDescription(null);
-    modifiedTodo.setDueDate(defaultTodo.getDueDate());
-    modifiedTodo.setDone(true);
-
-    Mockito.doReturn(Optional.of(defaultTodo)).when(repository).find(anyLong());
-    Mockito.doReturn(defaultTodo).when(repository).update(any(Todo.class));
+    Mockito.doReturn(true).when(repository).update(eq(1L), isNull(), any(Todo.class));
 
-    Response response = resource.updateTodo(1L, modifiedTodo);
+    Response response = resource.updateTodo(1L, null, modifiedTodo);
     assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
+    assertThat(response.getEntityTag()).isNull();
 
     ArgumentCaptor<Todo> captor = ArgumentCaptor.forClass(Todo.class);
-    verify(repository).find(anyLong());
-    verify(repository).update(captor.capture());
+    verify(repository).update(eq(1L), isNull(), captor.capture());
     verifyNoMoreInteractions(repository);
 
     Todo updatedTodo = captor.getValue();
@@ -176,21 +348,55 @@ public class TodoResourceTest {
   }
 
   @Test
-  public void updateTodoShouldReturn404ForUnknownTodo() {
-    Todo defaultTodo = TestTodos.newDefaultTodo();
+  public void updateTodoShouldReturn204WithNextVersionForMatchingVersion() {
+    ModifiedTodo modifiedTodo = newModifiedTodo(TestTodos.newDefaultTodo());
 
-    ModifiedTodo modifiedTodo = new ModifiedTodo();
-    modifiedTodo.setTitle(defaultTodo.getTitle());
-    modifiedTodo.setDescription(null);
-    modifiedTodo.setDueDate(defaultTodo.getDueDate());
-    modifiedTodo.setDone(true);
+    Mockito.doReturn(true).when(repository).update(eq(1L), eq(3L), any(Todo.class));
 
-    Mockito.doReturn(Optional.empty()).when(repository).find(anyLong());
+    Response response = resource.updateTodo(1L, "\"3\"", modifiedTodo);
+    assertThat(response.getStatus()).isEqualTo(Response.Status.NO_CONTENT.getStatusCode());
+    assertThat(response.getEntityTag()).isEqualTo(new EntityTag("4"));
+
+    verify(repository).update(eq(1L), eq(3L), any(Todo.class));
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void updateTodoShouldReturn404ForUnknownTodo() {
+    ModifiedTodo modifiedTodo = newModifiedTodo(TestTodos.newDefaultTodo());
 
-    Response response = resource.updateTodo(-1L, modifiedTodo);
+    Mockito.doReturn(false).when(repository).update(eq(-1L), eq(3L), any(Todo.class));
+    Mockito.doReturn(Optional.empty()).when(repository).find(-1L);
+
+    Response response = resource.updateTodo(-1L, "\"3\"", modifiedTodo);
     assertThat(response.getStatus()).isEqualTo(Response.Status.NOT_FOUND.getStatusCode());
 
-    verify(repository).find(anyLong());
+    verify(repository).update(eq(-1L), eq(3L), any(Todo.class));
+    verify(repository).find(-1L);
+    verifyNoMoreInteractions(repository);
+  }
+
+  @Test
+  public void updateTodoShouldReturn412ForModifiedTodo() {
+    ModifiedTodo modifiedTodo = newModifiedTodo(TestTodos.newDefaultTodo());
+
+    Mockito.doReturn(false).when(repository).update(eq(1L), eq(3L), any(Todo.class));
+    Mockito.doReturn(Optional.of(TestTodos.newDefaultTodo())).when(repository).find(1L);
+
+    Response response = resource.updateTodo(1L, "\"3\"", modifiedTodo);
+    assertThat(response.getStatus()).isEqualTo(Response.Status.PRECONDITION_FAILED.getStatusCode());
+
+    verify(repository).update(eq(1L), eq(3L), any(Todo.class));
+    verify(repository).find(1L);
     verifyNoMoreInteractions(repository);
   }
+
+  private static ModifiedTodo newModifiedTodo(final Todo todo) {
+    ModifiedTodo modifiedTodo = new ModifiedTodo();
+    modifiedTodo.setTitle(todo.getTitle());
+    modifiedTodo.setDescription(null);
+    modifiedTodo.setDueDate(todo.getDueDate());
+    modifiedTodo.setDone(true);
+    return modifiedTodo;
+  }
 }
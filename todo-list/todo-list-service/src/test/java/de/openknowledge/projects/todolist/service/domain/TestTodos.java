@@ -34,6 +34,8 @@ public class TestTodos {
                                 .build());
 
     Mockito.lenient().doReturn(1L).when(todo).getId();
+    Mockito.lenient().doReturn(1L).when(todo).getVersion();
+    Mockito.lenient().doReturn(OffsetDateTime.parse("2018-01-01T12:34:56Z")).when(todo).getModifiedAt();
 
     return todo;
   }
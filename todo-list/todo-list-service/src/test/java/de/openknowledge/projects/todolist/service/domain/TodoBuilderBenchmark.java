@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of creating a validated todo, as <code>TodoResource#createTodo</code> does, run with
+ * <code>mvn -P benchmark test -DskipTests -Dbenchmark=TodoBuilderBenchmark</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoBuilderBenchmark {
+
+  private static final OffsetDateTime DUE_DATE = OffsetDateTime.of(2018, 1, 1, 12, 34, 56, 0, ZoneOffset.UTC);
+
+  @Benchmark
+  public Todo build() {
+    return Todo.newBuilder()
+        .withTitle("clean fridge")
+        .withDescription("It's a mess")
+        .withDueDate(DUE_DATE)
+        .setDone(false)
+        .build();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.domain;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import de.openknowledge.projects.todolist.service.infrastructure.persistence.DatabaseNotification;
+import de.openknowledge.projects.todolist.service.infrastructure.persistence.QueryResultCache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Test class for the {@link TodoCacheInvalidator}.
+ */
+@ExtendWith(MockitoExtension.class)
+public class TodoCacheInvalidatorTest {
+
+  @InjectMocks
+  private TodoCacheInvalidator invalidator;
+
+  @Mock
+  private EntityManagerFactory entityManagerFactory;
+
+  @Mock
+  private QueryResultCache queryResultCache;
+
+  @Mock
+  private Cache cache;
+
+  @BeforeEach
+  public void setUp() {
+    Mockito.lenient().doReturn(cache).when(entityManagerFactory).getCache();
+  }
+
+  @Test
+  public void updateShouldEvictTodo() {
+    invalidator.onNotification(new DatabaseNotification(TodoCacheInvalidator.CHANNEL, "42"));
+
+    verify(queryResultCache).invalidate(Todo.class);
+    verify(cache).evict(Todo.class, 42L);
+    verifyNoMoreInteractions(cache);
+  }
+
+  @Test
+  public void creationShouldOnlyInvalidateQueryResults() {
+    invalidator.onNotification(new DatabaseNotification(TodoCacheInvalidator.CHANNEL, ""));
+
+    verify(queryResultCache).invalidate(Todo.class);
+    verifyZeroInteractions(cache);
+  }
+
+  @Test
+  public void missedNotificationsShouldEvictAllTodos() {
+    invalidator.onNotification(DatabaseNotification.missed(TodoCacheInvalidator.CHANNEL));
+
+    verify(queryResultCache).invalidate(Todo.class);
+    verify(cache).evict(Todo.class);
+  }
+
+  @Test
+  public void otherChannelShouldBeIgnored() {
+    invalidator.onNotification(new DatabaseNotification("other_changed", "42"));
+
+    verifyZeroInteractions(queryResultCache, cache);
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Test class for the value object {@link TodoCursor}.
+ */
+public class TodoCursorTest {
+
+  @Test
+  public void encodeAndDecode() {
+    TodoCursor cursor = new TodoCursor(OffsetDateTime.of(2018, 1, 1, 12, 34, 56, 0, ZoneOffset.ofHours(1)), 42L);
+
+    String encoded = cursor.encode();
+
+    assertThat(encoded).doesNotContain("+", "/", "=");
+    assertThat(TodoCursor.decode(encoded)).isEqualTo(cursor);
+  }
+
+  @Test
+  public void ofTodo() {
+    Todo todo = TestTodos.newDefaultTodo();
+
+    TodoCursor cursor = TodoCursor.of(todo);
+
+    assertThat(cursor.getDueDate()).isEqualTo(todo.getDueDate());
+    assertThat(cursor.getId()).isEqualTo(1L);
+  }
+
+  @Test
+  public void decodeShouldFailForInvalidCursor() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> TodoCursor.decode("not a cursor"));
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> TodoCursor.decode("Zm9vfGJhcg"))
+        .withMessage("cursor is malformed");
+  }
+}
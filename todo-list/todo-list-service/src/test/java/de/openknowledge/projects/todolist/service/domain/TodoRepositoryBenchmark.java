@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.domain;
+
+import de.openknowledge.projects.todolist.service.application.TodoListDTO;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+/**
+ * Benchmark of loading a page of todo summaries as entities and as projection (see {@link TodoRepository}), run with
+ * <code>mvn -P benchmark test -DskipTests -Dbenchmark="TodoRepositoryBenchmark -prof gc"</code>.
+ * <p>
+ * The todos are stored in a PostgreSQL container (persistence unit <code>postgres-tc</code>), so Docker is required. Each invocation uses a
+ * new entity manager, like a request does, and the shared cache is disabled, so the entity path materializes every todo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TodoRepositoryBenchmark {
+
+  private static final int TODOS = 1000;
+
+  private static final int PAGE_SIZE = 100;
+
+  private EntityManagerFactory entityManagerFactory;
+
+  @Setup
+  public void setUp() {
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("javax.persistence.sharedCache.mode", "NONE");
+    properties.put("eclipselink.logging.level", "OFF");
+    properties.put("eclipselink.logging.level.sql", "OFF");
+    entityManagerFactory = Persistence.createEntityManagerFactory("postgres-tc", properties);
+
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    entityManager.getTransaction().begin();
+    OffsetDateTime dueDate = OffsetDateTime.of(2018, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+    for (int i = 0; i < TODOS; i++) {
+      entityManager.persist(Todo.newBuilder()
+                                .withTitle("todo " + i)
+                                .withDescription(StringUtils.repeat('x', 500))
+                                .withDueDate(dueDate.plusHours(i))
+                                .setDone(i % 2 == 0)
+                                .build());
+    }
+    entityManager.getTransaction().commit();
+    entityManager.close();
+  }
+
+  @TearDown
+  public void tearDown() {
+    entityManagerFactory.close();
+  }
+
+  /**
+   * Loads the todos as entities and maps them to DTOs, as the list path did before.
+   */
+  @Benchmark
+  public List<TodoListDTO> entities() {
+    return query(repository -> repository.findAll(TodoFilter.none(), null, PAGE_SIZE)
+        .stream()
+        .map(TodoListDTO::new)
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Selects id, title, due date and done state into DTOs.
+   */
+  @Benchmark
+  public List<TodoListDTO> projection() {
+    return query(repository -> repository.findAll(TodoListDTO.class, TodoFilter.none(), null, PAGE_SIZE));
+  }
+
+  private List<TodoListDTO> query(final Function<TodoRepository, List<TodoListDTO>> query) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      return query.apply(new TodoRepository(entityManager));
+    } finally {
+      entityManager.close();
+    }
+  }
+}
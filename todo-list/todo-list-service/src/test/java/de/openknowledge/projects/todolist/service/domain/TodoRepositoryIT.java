@@ -43,6 +43,8 @@ import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.output.Slf4jLogConsumer;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -153,6 +155,18 @@ public class TodoRepositoryIT {
     entityManagerProvider.getEm().getTransaction().commit();
   }
 
+  @Test
+  @DataSet(value = "datasets/todos-delete.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
+  @ExpectedDataSet(value = "datasets/todos-delete-expected.yml")
+  public void deleteWithVersion() {
+    entityManagerProvider.getEm().getTransaction().begin();
+
+    Assertions.assertThat(repository.delete(4L, 2L)).isFalse();
+    Assertions.assertThat(repository.delete(4L, 1L)).isTrue();
+
+    entityManagerProvider.getEm().getTransaction().commit();
+  }
+
   @Test
   @DataSet(value = "datasets/todos.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
   public void findAll() {
@@ -160,6 +174,69 @@ public class TodoRepositoryIT {
     Assertions.assertThat(todos).hasSize(7);
   }
 
+  @Test
+  @DataSet(value = "datasets/todos.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
+  public void findAllPaginated() {
+    List<Todo> firstPage = repository.findAll(TodoFilter.none(), null, 3);
+    Assertions.assertThat(firstPage).extracting(Todo::getId).containsExactly(1L, 7L, 2L);
+
+    List<Todo> secondPage = repository.findAll(TodoFilter.none(), TodoCursor.of(firstPage.get(2)), 3);
+    Assertions.assertThat(secondPage).extracting(Todo::getId).containsExactly(3L, 4L, 5L);
+
+    List<Todo> lastPage = repository.findAll(TodoFilter.none(), TodoCursor.of(secondPage.get(2)), 3);
+    Assertions.assertThat(lastPage).extracting(Todo::getId).containsExactly(6L);
+  }
+
+  @Test
+  @DataSet(value = "datasets/todos.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
+  public void findAllFiltered() {
+    List<Todo> todos = repository.findAll(new TodoFilter(true, null, null), null, 10);
+    Assertions.assertThat(todos).extracting(Todo::getId).containsExactly(4L);
+
+    todos = repository.findAll(new TodoFilter(false, null, OffsetDateTime.parse("2018-01-02T00:00:00Z")), null, 10);
+    Assertions.assertThat(todos).extracting(Todo::getId).containsExactly(1L, 7L);
+  }
+
+  @Test
+  @DataSet(value = "datasets/todos.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
+  public void findVersion() {
+    TodoListVersion version = repository.findVersion(TodoFilter.none(), null);
+    Assertions.assertThat(version.getCount()).isEqualTo(7L);
+    Assertions.assertThat(version.getLastModified()).isPresent();
+
+    TodoListVersion doneVersion = repository.findVersion(new TodoFilter(true, null, null), null);
+    Assertions.assertThat(doneVersion.getCount()).isEqualTo(1L);
+    Assertions.assertThat(doneVersion).isNotEqualTo(version);
+  }
+
+  @Test
+  @DataSet(value = "datasets/todos.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
+  public void scrollAll() {
+    List<Long> ids = new ArrayList<>();
+
+    entityManagerProvider.getEm().getTransaction().begin();
+    long count = repository.scrollAll(TodoSummary.class, new TodoFilter(false, null, null), 2, todo -> ids.add(todo.id));
+    entityManagerProvider.getEm().getTransaction().commit();
+
+    Assertions.assertThat(count).isEqualTo(6);
+    Assertions.assertThat(ids).containsExactly(1L, 7L, 2L, 3L, 5L, 6L);
+  }
+
+  @Test
+  @DataSet(value = "datasets/todos.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
+  public void findAllProjected() {
+    List<TodoSummary> todos = repository.findAll(TodoSummary.class, new TodoFilter(true, null, null), null, 10);
+    Assertions.assertThat(todos).extracting(todo -> todo.id).containsExactly(4L);
+    Assertions.assertThat(todos).extracting(todo -> todo.title).containsExactly("go to supermarket");
+  }
+
+  @Test
+  @DataSet(value = "datasets/todos.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
+  public void findAllById() {
+    List<Todo> todos = repository.findAllById(Arrays.asList(1L, 4L, -1L));
+    Assertions.assertThat(todos).extracting(Todo::getId).containsExactlyInAnyOrder(1L, 4L);
+  }
+
   @Test
   @DataSet(value = "datasets/todos.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
   public void findByIdShouldReturnTodo() {
@@ -186,4 +263,35 @@ public class TodoRepositoryIT {
 
     entityManagerProvider.getEm().getTransaction().commit();
   }
+
+  public static class TodoSummary {
+
+    private final Long id;
+
+    private final String title;
+
+    public TodoSummary(final Long id, final String title, final OffsetDateTime dueDate, final Boolean done) {
+      this.id = id;
+      this.title = title;
+    }
+  }
+
+  @Test
+  @DataSet(value = "datasets/todos-update.yml", strategy = SeedStrategy.CLEAN_INSERT, cleanBefore = true)
+  @ExpectedDataSet(value = "datasets/todos-update-expected.yml")
+  public void updateWithVersion() {
+    entityManagerProvider.getEm().getTransaction().begin();
+
+    Todo changes = Todo.newBuilder()
+        .withTitle("clean bathroom")
+        .withDescription("It's really dirty :(")
+        .withDueDate(OffsetDateTime.parse("2018-01-02T10:30:00Z"))
+        .setDone(true)
+        .build();
+
+    Assertions.assertThat(repository.update(2L, 2L, changes)).isFalse();
+    Assertions.assertThat(repository.update(2L, 1L, changes)).isTrue();
+
+    entityManagerProvider.getEm().getTransaction().commit();
+  }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.domain.builder;
+
+import de.openknowledge.projects.todolist.service.domain.Todo;
+import de.openknowledge.projects.todolist.service.infrastructure.domain.value.AbstractSimpleValueObject;
+import de.openknowledge.projects.todolist.service.infrastructure.domain.value.AbstractValueObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of {@link ObjectBuilder#build()}, run with <code>mvn -P benchmark test -DskipTests -Dbenchmark=ObjectBuilderBenchmark</code>.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectBuilderBenchmark {
+
+  @Benchmark
+  public Object buildWithoutParameter() {
+    return ObjectBuilder.forType(Value.class).build();
+  }
+
+  @Benchmark
+  public Object buildWithParameter() {
+    return ObjectBuilder.forType(Value.class).withParameter("value").build();
+  }
+
+  @Benchmark
+  public Object buildWithParameterConversion() {
+    return ObjectBuilder.forType(Pair.class).withParameter("first").andParameter("second").build();
+  }
+
+  /**
+   * Creates the builder of a todo, which creates the todo with {@link ObjectBuilder#fromGenericType(Class, Class)}.
+   */
+  @Benchmark
+  public Object newTodoBuilder() {
+    return Todo.newBuilder();
+  }
+
+  public static class Value extends AbstractSimpleValueObject<String> {
+
+    Value() {
+      super();
+    }
+
+    Value(final String value) {
+      super(value);
+    }
+  }
+
+  public static class Pair extends AbstractValueObject {
+
+    private final Value first;
+
+    private final Value second;
+
+    Pair(final Value first, final Value second) {
+      super();
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    protected Object[] values() {
+      return new Object[]{first, second};
+    }
+  }
+}
@@ -129,6 +129,18 @@ public class ObjectBuilderTest {
         .isEqualTo(new TestMultiValueObject(new TestFirstSimpleValueObject("first"), new TestSecondSimpleValueObject("second")));
   }
 
+  @Test
+  public void buildRepeatedlyWithParameterConversion() {
+    for (int i = 0; i < 3; i++) {
+      TestMultiValueObject name = ObjectBuilder.forType(TestMultiValueObject.class)
+          .withParameter("first" + i)
+          .andParameter("second" + i)
+          .andParameter(true).build();
+      assertThat(name)
+          .isEqualTo(new TestMultiValueObject(new TestFirstSimpleValueObject("first" + i), new TestSecondSimpleValueObject("second" + i)));
+    }
+  }
+
   @Test
   public void buildWithSpecificConstructor() {
     TestMultiValueObject name = ObjectBuilder.forType(TestMultiValueObject.class)
@@ -178,6 +190,17 @@ public class ObjectBuilderTest {
             .build());
   }
 
+  @Test
+  public void buildRepeatedlyWithAmbiguousConstructors() {
+    for (int i = 0; i < 2; i++) {
+      assertThatIllegalStateException()
+          .isThrownBy(() -> ObjectBuilder.forType(ClassWithAmbiguousConstructors.class)
+              .withParameter("first")
+              .andParameter("second")
+              .build());
+    }
+  }
+
   @Test
   public void buildWithValidator() throws ReflectiveOperationException {
     Validator validator = Mockito.mock(Validator.class);
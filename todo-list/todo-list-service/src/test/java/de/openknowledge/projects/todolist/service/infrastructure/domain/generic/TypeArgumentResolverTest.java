@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.domain.generic;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+/**
+ * Test class for the {@link TypeArgumentResolver}.
+ */
+public class TypeArgumentResolverTest {
+
+  @Test
+  public void resolveDirectTypeArgument() {
+    assertThat(TypeArgumentResolver.<Object>resolve(StringSubclass.class, GenericSuperclass.class, 0)).isEqualTo(String.class);
+  }
+
+  @Test
+  public void resolveInheritedTypeArgument() {
+    assertThat(TypeArgumentResolver.<Object>resolve(IntegerSubclass.class, GenericSuperclass.class, 0)).isEqualTo(Integer.class);
+  }
+
+  @Test
+  public void resolveParameterizedTypeArgument() {
+    assertThat(TypeArgumentResolver.<Object>resolve(ListSubclass.class, GenericSuperclass.class, 0)).isEqualTo(List.class);
+  }
+
+  @Test
+  public void resolveRepeatedly() {
+    Class<?> first = TypeArgumentResolver.resolve(IntegerSubclass.class, GenericSuperclass.class, 0);
+    Class<?> second = TypeArgumentResolver.resolve(IntegerSubclass.class, GenericSuperclass.class, 0);
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  public void resolveShouldFailForRawSuperclass() {
+    for (int i = 0; i < 2; i++) {
+      assertThatIllegalStateException()
+          .isThrownBy(() -> TypeArgumentResolver.resolve(RawSubclass.class, GenericSuperclass.class, 0))
+          .withMessage("Generic type argument missing for superclass GenericSuperclass");
+    }
+  }
+
+  @Test
+  public void resolveShouldFailForUnrelatedClass() {
+    assertThatIllegalStateException()
+        .isThrownBy(() -> TypeArgumentResolver.resolve(String.class, GenericSuperclass.class, 0));
+  }
+
+  public abstract static class GenericSuperclass<A> {
+
+  }
+
+  public static class GenericNumberSubclass<N extends Number> extends GenericSuperclass<N> {
+
+  }
+
+  public static class IntegerSubclass extends GenericNumberSubclass<Integer> {
+
+  }
+
+  public static class StringSubclass extends GenericSuperclass<String> {
+
+  }
+
+  public static class ListSubclass extends GenericSuperclass<List<String>> {
+
+  }
+
+  public static class RawSubclass extends GenericSuperclass {
+
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.descriptors.invalidation.TimeToLiveCacheInvalidationPolicy;
+import org.eclipse.persistence.internal.identitymaps.CacheIdentityMap;
+import org.eclipse.persistence.internal.identitymaps.SoftCacheWeakIdentityMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Test class for the descriptor customizer {@link CacheDescriptorCustomizer}.
+ */
+public class CacheDescriptorCustomizerTest {
+
+  private ClassDescriptor descriptor;
+
+  private Map<String, String> properties;
+
+  @BeforeEach
+  public void setUp() {
+    descriptor = new ClassDescriptor();
+    descriptor.setAlias("Todo");
+    descriptor.useSoftCacheWeakIdentityMap();
+
+    properties = new HashMap<>();
+  }
+
+  @Test
+  public void customizeShouldApplyConfiguredCache() {
+    properties.put("persistence.cache.Todo.type", "cache");
+    properties.put("persistence.cache.Todo.size", "500");
+    properties.put("persistence.cache.Todo.ttl", "60000");
+
+    newCustomizer().customize(descriptor);
+
+    assertThat(descriptor.getIdentityMapClass()).isEqualTo(CacheIdentityMap.class);
+    assertThat(descriptor.getIdentityMapSize()).isEqualTo(500);
+    assertThat(descriptor.getCacheInvalidationPolicy()).isInstanceOfSatisfying(TimeToLiveCacheInvalidationPolicy.class,
+        policy -> assertThat(policy.getTimeToLive()).isEqualTo(60000));
+  }
+
+  @Test
+  public void customizeShouldKeepDefaultsWithoutConfiguration() {
+    properties.put("persistence.cache.Other.size", "500");
+
+    newCustomizer().customize(descriptor);
+
+    assertThat(descriptor.getIdentityMapClass()).isEqualTo(SoftCacheWeakIdentityMap.class);
+    assertThat(descriptor.getIdentityMapSize()).isNotEqualTo(500);
+  }
+
+  @Test
+  public void customizeShouldFailForInvalidSize() {
+    properties.put("persistence.cache.Todo.size", "0");
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> newCustomizer().customize(descriptor));
+  }
+
+  private CacheDescriptorCustomizer newCustomizer() {
+    return new CacheDescriptorCustomizer(key -> Optional.ofNullable(properties.get(key)));
+  }
+}
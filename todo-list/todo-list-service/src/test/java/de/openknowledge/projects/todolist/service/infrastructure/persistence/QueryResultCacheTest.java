@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test class for the {@link QueryResultCache}.
+ */
+public class QueryResultCacheTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  @Test
+  public void getShouldReturnCachedResult() {
+    QueryResultCache cache = new QueryResultCache(10, 1000, clock::get);
+
+    assertThat(cache.get(String.class, "query", this::load)).isEqualTo(1);
+    assertThat(cache.get(String.class, "query", this::load)).isEqualTo(1);
+    assertThat(cache.get(String.class, "other query", this::load)).isEqualTo(2);
+
+    assertThat(cache.getHits()).isEqualTo(1);
+    assertThat(cache.getMisses()).isEqualTo(2);
+  }
+
+  @Test
+  public void getShouldReloadExpiredResult() {
+    QueryResultCache cache = new QueryResultCache(10, 1000, clock::get);
+
+    assertThat(cache.get(String.class, "query", this::load)).isEqualTo(1);
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+    assertThat(cache.get(String.class, "query", this::load)).isEqualTo(2);
+  }
+
+  @Test
+  public void getShouldEvictLeastRecentlyUsedResult() {
+    QueryResultCache cache = new QueryResultCache(2, 1000, clock::get);
+
+    cache.get(String.class, "first", this::load);
+    cache.get(String.class, "second", this::load);
+    cache.get(String.class, "first", this::load);
+    cache.get(String.class, "third", this::load);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get(String.class, "first", this::load)).isEqualTo(1);
+    assertThat(cache.get(String.class, "second", this::load)).isEqualTo(4);
+  }
+
+  @Test
+  public void invalidateShouldOnlyRemoveResultsOfEntityClass() {
+    QueryResultCache cache = new QueryResultCache(10, 1000, clock::get);
+
+    cache.get(String.class, "query", this::load);
+    cache.get(Integer.class, "query", this::load);
+
+    cache.invalidate(String.class);
+
+    assertThat(cache.get(String.class, "query", this::load)).isEqualTo(3);
+    assertThat(cache.get(Integer.class, "query", this::load)).isEqualTo(2);
+  }
+
+  @Test
+  public void getShouldNotCacheResultLoadedDuringInvalidation() {
+    QueryResultCache cache = new QueryResultCache(10, 1000, clock::get);
+
+    assertThat(cache.get(String.class, "query", () -> {
+      cache.invalidate(String.class);
+      return load();
+    })).isEqualTo(1);
+
+    assertThat(cache.get(String.class, "query", this::load)).isEqualTo(2);
+  }
+
+  @Test
+  public void getShouldNotCacheIfDisabled() {
+    QueryResultCache cache = new QueryResultCache(0, 1000, clock::get);
+
+    assertThat(cache.get(String.class, "query", this::load)).isEqualTo(1);
+    assertThat(cache.get(String.class, "query", this::load)).isEqualTo(2);
+    assertThat(cache.size()).isZero();
+  }
+
+  private Integer load() {
+    return loads.incrementAndGet();
+  }
+}
@@ -30,6 +30,7 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
 
 /**
  * Test class for the Bean Validation message interpolator {@link CustomValidationErrorPayloadMessageInterpolator}
@@ -94,6 +95,23 @@ public class CustomValidationErrorPayloadMessageInterpolatorTest {
     assertThat(constraintViolation.getMessageTemplate()).isEqualTo("{javax.validation.constraints.NotNull.message}");
   }
 
+  @Test
+  public void repeatedInterpolationShouldReturnSameMessage() {
+    for (int i = 0; i < 3; i++) {
+      Set<ConstraintViolation<TestEntityWithValidationErrorPayload>> constraintViolations = validator.validate(new TestEntityWithValidationErrorPayload());
+      assertThat(constraintViolations).extracting(ConstraintViolation::getMessage).containsExactly("value must not be null");
+    }
+  }
+
+  @Test
+  public void expressionLanguageMessageShouldNotBeCached() {
+    TestEntityWithExpressionLanguageMessage first = new TestEntityWithExpressionLanguageMessage("first");
+    TestEntityWithExpressionLanguageMessage second = new TestEntityWithExpressionLanguageMessage("second");
+
+    assertThat(validator.validate(first)).extracting(ConstraintViolation::getMessage).containsExactly("first is too long");
+    assertThat(validator.validate(second)).extracting(ConstraintViolation::getMessage).containsExactly("second is too long");
+  }
+
   private static class TestEntityWithValidationErrorPayloadAndCustomMessage extends AbstractEntity<Long> {
 
     private Long id;
@@ -161,4 +179,25 @@ public class CustomValidationErrorPayloadMessageInterpolatorTest {
       return value;
     }
   }
-}
\ No newline at end of file
+
+  private static class TestEntityWithExpressionLanguageMessage extends AbstractEntity<Long> {
+
+    private Long id;
+
+    @Size(max = 1, message = "${validatedValue} is too long")
+    private String value;
+
+    TestEntityWithExpressionLanguageMessage(final String value) {
+      this.value = value;
+    }
+
+    @Override
+    public Long getId() {
+      return id;
+    }
+
+    public String getValue() {
+      return value;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.validation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+import javax.validation.Payload;
+
+/**
+ * Test class for the {@link ValidationErrorPayload}.
+ */
+public class ValidationErrorPayloadTest {
+
+  @Test
+  public void ofShouldReturnSharedInstance() {
+    ValidationErrorPayload payload = ValidationErrorPayload.of(TestValueIsNull.class);
+    assertThat(payload.getErrorCode()).isEqualTo("VALUE_IS_NULL");
+    assertThat(ValidationErrorPayload.of(TestValueIsNull.class)).isSameAs(payload);
+  }
+
+  @Test
+  public void ofShouldFailForOtherPayload() {
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> ValidationErrorPayload.of(OtherPayload.class));
+  }
+
+  private static class OtherPayload implements Payload {
+
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) open knowledge GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.openknowledge.projects.todolist.service.infrastructure.validation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import javax.validation.Validator;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Test class for the {@link ValidatorProvider}.
+ */
+public class ValidatorProviderTest {
+
+  @Test
+  public void getValidatorShouldFallBackToDefaultValidatorFactory() {
+    Validator validator = ValidatorProvider.getValidator();
+    assertThat(validator).isNotNull();
+    assertThat(validator.validate(new TestBean())).hasSize(1);
+  }
+
+  @Test
+  public void getValidatorShouldReturnSharedValidator() {
+    assertThat(ValidatorProvider.getValidator()).isSameAs(ValidatorProvider.getValidator());
+  }
+
+  private static class TestBean {
+
+    @NotNull(payload = TestValueIsNull.class)
+    private String value;
+  }
+}